@@ -161,11 +161,42 @@ public final class DICOMSend {
     }
 
     private static void printUsage() {
-        System.err.println("Usage: DICOMSend PORT ROOTDIR [CSTORESCPIP [REMOTEAETITLE [LOCALAETITLE]]]");
+        System.err.println("Usage: DICOMSend [-loops N] [-rate INSTANCES_PER_SECOND]"
+                + " PORT ROOTDIR [CSTORESCPIP [REMOTEAETITLE [LOCALAETITLE]]]");
+        System.err.println("  -loops and -rate run a benchmark: the instances are sent N times (default 1)"
+                + " with new UIDs on every loop, at the given rate (default as fast as possible),"
+                + " and throughput and latency are reported");
     }
 
-    public static void main(final String[] args) {
+    public static void main(final String[] commandLine) {
         final long startTime = System.currentTimeMillis();
+        boolean benchmark = false;
+        int loops = 1;
+        double rate = 0;
+        int argPos = 0;
+        try {
+            for (; argPos < commandLine.length && commandLine[argPos].startsWith("-"); argPos += 2) {
+                if (argPos + 1 >= commandLine.length) {
+                    throw new IllegalArgumentException("Missing value for option " + commandLine[argPos]);
+                }
+                if (commandLine[argPos].equals("-loops")) {
+                    loops = Integer.parseInt(commandLine[argPos + 1]);
+                } else if (commandLine[argPos].equals("-rate")) {
+                    rate = Double.parseDouble(commandLine[argPos + 1]);
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + commandLine[argPos]);
+                }
+                benchmark = true;
+            }
+            if (loops < 1 || rate < 0) {
+                throw new IllegalArgumentException("Loops must be at least 1 and rate must not be negative");
+            }
+        } catch (final IllegalArgumentException e) {
+            LOG.fatal("Invalid option: " + e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+        final String[] args = Arrays.copyOfRange(commandLine, argPos, commandLine.length);
         if (args.length < 2 || args.length > 5) {
             LOG.fatal("Invalid number of arguments: " + args.length);
             printUsage();
@@ -197,6 +228,15 @@ public final class DICOMSend {
             System.exit(4);
         }
         dicomSend.initTransferCapability();
+        if (benchmark) {
+            try {
+                new DICOMSendBenchmark(dicomSend, loops, rate).run(rootDir);
+            } catch (final Exception e) {
+                LOG.fatal("Benchmark failed", e);
+                System.exit(11);
+            }
+            System.exit(0);
+        }
         Association association = null;
         try {
             association = dicomSend.connect();
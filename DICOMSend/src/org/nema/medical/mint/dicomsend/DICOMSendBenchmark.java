@@ -0,0 +1,287 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.nema.medical.mint.dicomsend;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.dcm4che2.io.StopTagInputHandler;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.ConfigurationException;
+import org.dcm4che2.net.DataWriter;
+import org.dcm4che2.net.DimseRSPHandler;
+import org.dcm4che2.net.NoPresentationContextException;
+import org.dcm4che2.net.PDVOutputStream;
+import org.dcm4che2.util.UIDUtils;
+
+/**
+ * Load generator for a C-STORE SCP such as DICOMReceive: sends a dataset a number of times, optionally at a target
+ * rate, and reports throughput and C-STORE latency percentiles.
+ *
+ * Study, series, SOP instance and frame of reference UIDs are replaced on every loop, consistently within the loop,
+ * so that each loop stores new studies rather than overwriting the previous ones. The instances are therefore
+ * decoded and re-encoded, unlike in a regular DICOMSend run which copies files as they are.
+ */
+final class DICOMSendBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(DICOMSendBenchmark.class);
+
+    private static final int[] REWRITTEN_UID_TAGS = {
+            Tag.StudyInstanceUID, Tag.SeriesInstanceUID, Tag.SOPInstanceUID, Tag.FrameOfReferenceUID
+    };
+
+    private final DICOMSend dicomSend;
+    private final int loops;
+    private final double targetRate;
+    private final Statistics statistics = new Statistics();
+
+    /**
+     * @param loops number of times to send the dataset
+     * @param targetRate instances per second to send at; 0 to send as fast as the SCP accepts them
+     */
+    DICOMSendBenchmark(final DICOMSend dicomSend, final int loops, final double targetRate) {
+        this.dicomSend = dicomSend;
+        this.loops = loops;
+        this.targetRate = targetRate;
+    }
+
+    public void run(final File rootDir) throws Exception {
+        final List<File> files = findDicomFiles(rootDir);
+        if (files.isEmpty()) {
+            throw new IOException("No DICOM files found in " + rootDir);
+        }
+        System.out.println("Sending " + files.size() + " instances " + loops + " time(s) "
+                + (targetRate > 0 ? "at " + targetRate + " instances/s" : "as fast as possible"));
+
+        final long intervalNanos = targetRate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / targetRate) : 0;
+        Association association = dicomSend.connect();
+        try {
+            final long startNanos = System.nanoTime();
+            long sendCount = 0;
+            for (int loop = 1; loop <= loops; ++loop) {
+                final Map<String, String> uidMap = new HashMap<String, String>();
+                for (final File file: files) {
+                    if (intervalNanos > 0) {
+                        waitUntil(startNanos + sendCount * intervalNanos);
+                    }
+                    association = send(association, file, uidMap);
+                    ++sendCount;
+                }
+                System.out.println("Loop " + loop + "/" + loops + ": " + statistics.rates(startNanos));
+            }
+            association.waitForDimseRSP();
+            statistics.printSummary(startNanos);
+        } finally {
+            dicomSend.release(association);
+        }
+    }
+
+    private Association send(final Association association, final File file, final Map<String, String> uidMap)
+            throws ConfigurationException, IOException, InterruptedException {
+        final DicomObject dicomObject;
+        final TransferSyntax transferSyntax;
+        final DicomInputStream in = new DicomInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            dicomObject = in.readDicomObject();
+            transferSyntax = in.getTransferSyntax();
+        } finally {
+            in.close();
+        }
+        for (final int tag: REWRITTEN_UID_TAGS) {
+            final String uid = dicomObject.getString(tag);
+            if (uid != null) {
+                dicomObject.putString(tag, VR.UI, rewriteUID(uidMap, uid));
+            }
+        }
+        final String sopClassUID = dicomObject.getString(Tag.SOPClassUID);
+        final String sopInstanceUID = dicomObject.getString(Tag.SOPInstanceUID);
+        final DicomObject dataset = dicomObject.dataset();
+
+        final long[] bytesWritten = new long[1];
+        final DataWriter dataWriter = new DataWriter() {
+            @Override
+            public void writeTo(final PDVOutputStream outStream, final String reqTransferSyntaxUID)
+                    throws IOException {
+                final DicomOutputStream out = new DicomOutputStream(outStream);
+                out.writeDataset(dataset, transferSyntax);
+                bytesWritten[0] = out.getStreamPosition();
+            }
+        };
+
+        //As in a regular run, retry once on a new association if the SCP has closed the current one
+        Association currentAssociation = association;
+        for (int i = 0; ; ++i) {
+            final long sendStartNanos = System.nanoTime();
+            try {
+                currentAssociation.cstore(sopClassUID, sopInstanceUID, 0, dataWriter, transferSyntax.uid(),
+                        new DimseRSPHandler() {
+                            @Override
+                            public void onDimseRSP(final Association as, final DicomObject cmd,
+                                                   final DicomObject data) {
+                                statistics.addResponse(cmd.getInt(Tag.Status), System.nanoTime() - sendStartNanos,
+                                        bytesWritten[0]);
+                            }
+                        });
+                return currentAssociation;
+            } catch (final NoPresentationContextException e) {
+                LOG.error("Presentation Context not supported for file " + file + " - skipping");
+                statistics.addSkipped();
+                return currentAssociation;
+            } catch (final IllegalStateException e) {
+                if (i > 0) {
+                    throw e;
+                }
+                LOG.warn("Association is in invalid state; will attempt to reestablish association: " + e);
+                currentAssociation = dicomSend.connect();
+            }
+        }
+    }
+
+    private static String rewriteUID(final Map<String, String> uidMap, final String uid) {
+        String newUID = uidMap.get(uid);
+        if (newUID == null) {
+            newUID = UIDUtils.createUID();
+            uidMap.put(uid, newUID);
+        }
+        return newUID;
+    }
+
+    private static void waitUntil(final long targetNanos) throws InterruptedException {
+        final long waitNanos = targetNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * @return the files under rootDir that can be read as DICOM, in a stable order
+     */
+    private static List<File> findDicomFiles(final File rootDir) {
+        final List<File> dicomFiles = new ArrayList<File>();
+        final Queue<File> fileQueue = new LinkedList<File>();
+        fileQueue.add(rootDir);
+        while (!fileQueue.isEmpty()) {
+            final File curFile = fileQueue.remove();
+            if (curFile.isDirectory()) {
+                final File[] dirFiles = curFile.listFiles();
+                Arrays.sort(dirFiles);
+                fileQueue.addAll(Arrays.asList(dirFiles));
+                continue;
+            }
+            try {
+                final DicomInputStream in = new DicomInputStream(new BufferedInputStream(new FileInputStream(curFile)));
+                try {
+                    in.setHandler(new StopTagInputHandler(Tag.SOPInstanceUID + 1));
+                    final DicomObject dicomObject = in.readDicomObject();
+                    if (dicomObject.getString(Tag.SOPClassUID) != null
+                            && dicomObject.getString(Tag.SOPInstanceUID) != null) {
+                        dicomFiles.add(curFile);
+                    } else {
+                        LOG.info("Missing SOP Class or Instance UID in file - skipping: " + curFile);
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (final IOException e) {
+                LOG.info("Cannot read file as DICOM - skipping: " + curFile);
+            }
+        }
+        return dicomFiles;
+    }
+
+    /**
+     * Collects C-STORE results; responses arrive on the association's reader thread.
+     */
+    private static final class Statistics {
+        private long[] latencyNanos = new long[1024];
+        private int responseCount = 0;
+        private int failureCount = 0;
+        private int skippedCount = 0;
+        private long totalBytes = 0;
+
+        public synchronized void addResponse(final int status, final long latency, final long bytes) {
+            // 0 is success, 0xBxxx are warnings; the instance was stored in both cases
+            if (status != 0 && (status & 0xF000) != 0xB000) {
+                ++failureCount;
+                LOG.error("C-STORE failed with status " + Integer.toHexString(status));
+                return;
+            }
+            if (responseCount == latencyNanos.length) {
+                latencyNanos = Arrays.copyOf(latencyNanos, latencyNanos.length * 2);
+            }
+            latencyNanos[responseCount++] = latency;
+            totalBytes += bytes;
+        }
+
+        public synchronized void addSkipped() {
+            ++skippedCount;
+        }
+
+        public synchronized String rates(final long startNanos) {
+            final double seconds = (System.nanoTime() - startNanos) / 1e9;
+            return String.format(Locale.US, "%d instances in %.2f s, %.1f instances/s, %.2f MB/s",
+                    responseCount, seconds, responseCount / seconds, totalBytes / (1024.0 * 1024.0) / seconds);
+        }
+
+        public synchronized void printSummary(final long startNanos) {
+            System.out.println("Summary: " + rates(startNanos) + ", " + totalBytes + " bytes");
+            if (failureCount > 0 || skippedCount > 0) {
+                System.out.println("Failed: " + failureCount + ", skipped: " + skippedCount);
+            }
+            if (responseCount > 0) {
+                final long[] sorted = Arrays.copyOf(latencyNanos, responseCount);
+                Arrays.sort(sorted);
+                long sum = 0;
+                for (final long latency: sorted) {
+                    sum += latency;
+                }
+                System.out.println(String.format(Locale.US,
+                        "C-STORE latency (ms): mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, max %.2f",
+                        toMillis(sum / sorted.length), toMillis(percentile(sorted, 0.50)),
+                        toMillis(percentile(sorted, 0.90)), toMillis(percentile(sorted, 0.99)),
+                        toMillis(sorted[sorted.length - 1])));
+            }
+        }
+
+        private static long percentile(final long[] sorted, final double quantile) {
+            final int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        private static double toMillis(final long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.jobs;
+
+/**
+ * Headers the server adds to job status responses, and clients read, to report the progress of a job that is
+ * in progress; the job status document itself is defined by its binding and does not carry them.
+ */
+public final class JobHeaders {
+
+    /** Percentage of the job completed, 0 to 100 */
+    public static final String PROGRESS = "X-MINT-Job-Progress";
+
+    /** Name of the stage the job is in */
+    public static final String STAGE = "X-MINT-Job-Stage";
+
+    /** Milliseconds spent in each completed stage, as comma separated stage=ms pairs */
+    public static final String STAGE_TIMINGS = "X-MINT-Job-Stage-Timings";
+
+    private JobHeaders() {
+        throw new Error("Not to be instantiated");
+    }
+}
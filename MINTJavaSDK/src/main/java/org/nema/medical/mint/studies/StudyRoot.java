@@ -1,6 +1,9 @@
 package org.nema.medical.mint.studies;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 public class StudyRoot extends SearchResultStudy {
 
@@ -14,4 +17,17 @@ public class StudyRoot extends SearchResultStudy {
 		super(studyInstanceUid, lastModified, version);
 	}
 
+    private List<StudyRootSeries> series = new ArrayList<StudyRootSeries>();
+
+    /**
+     * Lists a series of the study, of the given type
+     */
+    public void addSeries(final String type, final String seriesInstanceUid) {
+        series.add(new StudyRootSeries(type, seriesInstanceUid));
+    }
+
+    public Iterator<StudyRootSeries> seriesIterator() {
+        return series.iterator();
+    }
+
 }
@@ -0,0 +1,37 @@
+package org.nema.medical.mint.studies;
+
+/**
+ * A series listed in a study root, identifying a per-series metadata resource of the study.
+ */
+public class StudyRootSeries {
+
+    private String type;
+    private String seriesInstanceUid;
+
+    /**
+     * Default constructor for JiBX
+     */
+    public StudyRootSeries() {
+    }
+
+    public StudyRootSeries(final String type, final String seriesInstanceUid) {
+        this.type = type;
+        this.seriesInstanceUid = seriesInstanceUid;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(final String type) {
+        this.type = type;
+    }
+
+    public String getSeriesInstanceUid() {
+        return seriesInstanceUid;
+    }
+
+    public void setSeriesInstanceUid(final String seriesInstanceUid) {
+        this.seriesInstanceUid = seriesInstanceUid;
+    }
+}
@@ -20,6 +20,7 @@ import org.dcm4che2.data.DicomElement;
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.io.DicomCodingException;
 import org.dcm4che2.io.DicomInputStream;
+import org.nema.medical.mint.server.util.BufferPool;
 
 import java.io.*;
 import java.lang.ref.Reference;
@@ -48,7 +49,7 @@ public final class BinaryDcmData implements BinaryData {
             if (!dcmFile.equals(cachedRootDicomObjectFile)) {
                 final DicomObject newRootDicomObject;
                 final DicomInputStream stream = new DicomInputStream(
-                        new BufferedInputStream(new FileInputStream(dcmFile), 600000));
+                        BufferPool.getInstance().bufferedInputStream(new FileInputStream(dcmFile), 600000));
                 try {
                     newRootDicomObject = stream.readDicomObject();
                 } finally {
@@ -16,6 +16,8 @@
 
 package org.nema.medical.mint.dcm2mint;
 
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.ResponseHandler;
@@ -36,8 +38,11 @@ import org.dcm4che2.io.DicomInputStream;
 import org.dcm4che2.io.StopTagInputHandler;
 import org.nema.medical.mint.datadictionary.*;
 import org.nema.medical.mint.jobs.HttpMessagePart;
+import org.nema.medical.mint.jobs.JobHeaders;
 import org.nema.medical.mint.metadata.StudyIO;
 import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
 import org.nema.medical.mint.utils.StudyTraversals;
 import org.nema.medical.mint.utils.StudyValidation;
 import org.w3c.dom.Document;
@@ -59,6 +64,7 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 
 import static org.nema.medical.mint.utils.Iter.iter;
 
@@ -104,6 +110,33 @@ public final class ProcessImportDir {
         this.deletePhysicalInstanceFiles = deletePhysicalInstanceFiles;
         this.forceCreate = forceCreate;
         this.binaryInlineThreshold = binaryInlineThreshold;
+
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.registerGauge("import.sendQueue", new Gauge() {
+            public long getValue() {
+                return studySendQueue.size();
+            }
+        });
+        metrics.registerGauge("import.pendingJobs", new Gauge() {
+            public long getValue() {
+                return jobIDInfo.size();
+            }
+        });
+        metrics.registerGauge("import.handledFiles", new Gauge() {
+            public long getValue() {
+                return handledFiles.size();
+            }
+        });
+    }
+
+    /**
+     * Unregisters the metrics of this processor; to be called once it is no longer scheduled.
+     */
+    public void close() {
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.unregisterGauge("import.sendQueue");
+        metrics.unregisterGauge("import.pendingJobs");
+        metrics.unregisterGauge("import.handledFiles");
     }
 
     public void processDir() throws IOException{
@@ -163,6 +196,8 @@ public final class ProcessImportDir {
             }
         }
         final long fileGatherEnd = System.currentTimeMillis();
+        MetricsRegistry.getInstance().histogram("import.gather").update(fileGatherEnd - fileGatherStart,
+                TimeUnit.MILLISECONDS);
         LOG.info("Gathering " + instancesProcessed + " files and study allocation completed in "
                 + String.format("%.1f", (fileGatherEnd - fileGatherStart) / 1000.0f) + " seconds.");
 
@@ -234,6 +269,8 @@ public final class ProcessImportDir {
             }
 
             final long mintConvertEnd = System.currentTimeMillis();
+            MetricsRegistry.getInstance().histogram("import.convert").update(mintConvertEnd - mintConvertStart,
+                    TimeUnit.MILLISECONDS);
             LOG.info("MINT creation for study instance UID " + studyUID + " ("
                     + instanceFileCount + " instances) completed in "
                     + String.format("%.1f", (mintConvertEnd - mintConvertStart) / 1000.0f) + " seconds.");
@@ -305,6 +342,8 @@ public final class ProcessImportDir {
                 final JobInfo jobInfo = send(sendData.metadataFile, sendData.binaryData, sendData.studyInstanceFiles,
                         studyQueryInfo);
                 final long uploadEnd = System.currentTimeMillis();
+                MetricsRegistry.getInstance().histogram("import.upload").update(uploadEnd - uploadStart,
+                        TimeUnit.MILLISECONDS);
                 assert studyQueryInfo == null || studyQueryInfo.studyUUID.equals(jobInfo.studyID);
                 LOG.info("Completed uploading MINT to server for study instance UID "
                         + studyInstanceUID + " (" + sendData.studyInstanceFiles.size() + " instances) in "
@@ -361,13 +400,13 @@ public final class ProcessImportDir {
      * @throws IOException
      */
     public void handleResponses() throws IOException {
-        final ResponseHandler<String> responseHandler = new BasicResponseHandler();
         final Iterator<Entry<String, JobInfo>> studyIter = jobIDInfo.entrySet().iterator();
         while (studyIter.hasNext()) {
             final Entry<String, JobInfo> studyEntry = studyIter.next();
             final String jobID = studyEntry.getKey();
             final HttpGet httpGet = new HttpGet(jobStatusURI + "/" + jobID);
-            final String response = httpClient.execute(httpGet, responseHandler);
+            final JobStatusResponse statusResponse = httpClient.execute(httpGet, JobStatusResponse.HANDLER);
+            final String response = statusResponse.body;
 
             LOG.debug("Server job status response:\n" + response);
 
@@ -385,6 +424,12 @@ public final class ProcessImportDir {
             final JobInfo jobInfo = studyEntry.getValue();
             final Collection<File> studyFiles = jobInfo.getFiles();
             if (statusStr.equals("IN_PROGRESS")) {
+                final String stage = statusResponse.stage;
+                if (stage.length() > 0 && !stage.equals(jobInfo.getLastReportedStage())) {
+                    jobInfo.setLastReportedStage(stage);
+                    LOG.info("Querying job " + jobID + ": " + statusResponse.progress + "% complete, in stage "
+                            + stage + ", stage timings (ms): " + statusResponse.stageTimings);
+                }
                 continue;
             } else if (statusStr.equals("FAILED")) {
                 LOG.error("Querying job " + jobID + ": server processing failed:\n" + response);
@@ -407,6 +452,35 @@ public final class ProcessImportDir {
         }
     }
 
+    private static String getHeaderValue(final HttpResponse httpResponse, final String name) {
+        final Header header = httpResponse.getFirstHeader(name);
+        return header == null ? "" : header.getValue();
+    }
+
+    /**
+     * A job status document with the progress headers sent along with it.
+     */
+    private static final class JobStatusResponse {
+        // Reads the whole response within execute(), so that the connection is released whatever the status
+        static final ResponseHandler<JobStatusResponse> HANDLER = new ResponseHandler<JobStatusResponse>() {
+            private final ResponseHandler<String> bodyHandler = new BasicResponseHandler();
+
+            public JobStatusResponse handleResponse(final HttpResponse httpResponse) throws IOException {
+                final JobStatusResponse statusResponse = new JobStatusResponse();
+                statusResponse.body = bodyHandler.handleResponse(httpResponse);
+                statusResponse.progress = getHeaderValue(httpResponse, JobHeaders.PROGRESS);
+                statusResponse.stage = getHeaderValue(httpResponse, JobHeaders.STAGE);
+                statusResponse.stageTimings = getHeaderValue(httpResponse, JobHeaders.STAGE_TIMINGS);
+                return statusResponse;
+            }
+        };
+
+        String body;
+        String progress;
+        String stage;
+        String stageTimings;
+    }
+
     private void removeStudyFiles(final Collection<File> studyFiles, final boolean delete) {
         if (delete && deletePhysicalInstanceFiles) {
             for (final File undeletedStudyFile: studyFiles) {
@@ -545,6 +619,7 @@ public final class ProcessImportDir {
         private final String studyID;
         private final Collection<File> files;
         private final long jobStartTime;
+        private String lastReportedStage;
 
         public JobInfo(final String jobID, final String studyID, final Collection<File> files, final long jobStartTime) {
             this.jobID = jobID;
@@ -564,6 +639,12 @@ public final class ProcessImportDir {
         public final long getJobStartTime() {
             return jobStartTime;
         }
+        public final String getLastReportedStage() {
+            return lastReportedStage;
+        }
+        public final void setLastReportedStage(final String lastReportedStage) {
+            this.lastReportedStage = lastReportedStage;
+        }
     }
 
     private static final class StudyQueryInfo {
@@ -35,10 +35,14 @@ import org.hibernate.SessionFactory;
 import org.nema.medical.mint.datadictionary.DataDictionaryIO;
 import org.nema.medical.mint.datadictionary.MetadataType;
 import org.nema.medical.mint.dcm2mint.ProcessImportDir;
+import org.nema.medical.mint.server.cache.BinaryItemCache;
+import org.nema.medical.mint.server.cache.MetadataCache;
 import org.nema.medical.mint.server.domain.ChangeDAO;
 import org.nema.medical.mint.server.domain.JobInfoDAO;
 import org.nema.medical.mint.server.domain.StudyDAO;
+import org.nema.medical.mint.server.metrics.ServerTimingFilter;
 import org.nema.medical.mint.server.receiver.DICOMReceive;
+import org.nema.medical.mint.server.util.BufferPool;
 import org.springframework.beans.factory.annotation.Autowire;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -89,10 +93,37 @@ public class ServerConfig {
 	protected Integer binaryInlineThreshold = null;
     protected DICOMReceive dcmRcv = null;
     protected ScheduledExecutorService dcm2MintExecutor = null;
+    protected ProcessImportDir importProcessor = null;
     protected Integer binaryItemStreamBufferSize = null;
     protected Integer binaryItemResponseBufferSize = null;
+    protected Integer binaryItemRequestLimit = null;
+    protected Boolean packedBinaryStorage = null;
+    protected Integer binaryItemMaxStreams = null;
+    protected Integer binaryItemStreamQueueTimeoutMS = null;
+    protected Integer binaryItemWriteTimeoutMS = null;
+    protected Integer binaryItemMinBytesPerSecond = null;
+    protected Integer binaryItemPrefetchDepth = null;
+    protected Integer binaryItemPrefetchMaxItemKB = null;
+    protected Integer binaryItemPrefetchThreads = null;
+    protected Integer binaryItemBulkMaxStudies = null;
+    protected BinaryItemCache binaryItemCache = null;
+    protected Boolean admitNewStudiesToCache = null;
+    protected MetadataCache metadataCache = null;
+    protected Integer metadataSnapshotInterval = null;
+    protected Integer metadataBatchMaxStudies = null;
+    protected Integer metadataBatchThreads = null;
+    protected Integer metadataBatchReadAhead = null;
+    protected Boolean binaryItemCompression = null;
+    protected Integer binaryItemCompressionLevel = null;
+    protected Integer binaryItemCompressionMinBytes = null;
+    protected Boolean cacheCompressedBinaryItems = null;
     protected Integer fileResponseBufferSize = null;
     protected Integer fileStreamBufferSize = null;
+    protected Boolean useSendfile = null;
+    protected String binaryItemCacheControl = null;
+    protected String metadataCacheControl = null;
+    protected Boolean serverTimingHeader = null;
+    protected Integer slowRequestThresholdMS = null;
     protected ArrayList<String> availableTypeNames = null;
     protected HashMap<String, File> availableTypeFiles = null;
     protected HashMap<String, MetadataType> availableTypes = null;
@@ -101,6 +132,11 @@ public class ServerConfig {
     public void postConstruct() {
         //@PostConstruct method cannot throw checked exception
         try {
+            final Integer bufferPoolSizeMB = getConfigInt("io.buffer_pool.size_mb");
+            //Without a setting, the pool keeps its built-in capacity
+            if (bufferPoolSizeMB != null) {
+                BufferPool.getInstance().setCapacity(bufferPoolSizeMB * 1024L * 1024L);
+            }
             setUpCStoreSCP();
             setUpDICOM2MINT();
         } catch (final IOException e) {
@@ -137,6 +173,7 @@ public class ServerConfig {
         final ProcessImportDir importProcessor = new ProcessImportDir(
                 storageRootDir(), serverURI(), useXMLNotGPB(), deletePhysicalFiles(),
                 forceCreate(), binaryInlineThreshold());
+        this.importProcessor = importProcessor;
         final Runnable checkResponsesTask = new Runnable() {
             public void run() {
                 try {
@@ -189,6 +226,10 @@ public class ServerConfig {
             }
             dcm2MintExecutor = null;
         }
+        if (importProcessor != null) {
+            importProcessor.close();
+            importProcessor = null;
+        }
     }
 
     @Bean(name = "mintHome", autowire = Autowire.BY_NAME)
@@ -602,6 +643,176 @@ public class ServerConfig {
         return binaryItemStreamBufferSize;
     }
 
+    @Bean
+    public Integer binaryItemRequestLimit() throws IOException {
+        if (binaryItemRequestLimit == null) {
+        	binaryItemRequestLimit = getConfigInt("binaryitem.request.max_items");
+        }
+        return binaryItemRequestLimit;
+    }
+
+    @Bean
+    public Boolean packedBinaryStorage() throws IOException {
+        if (packedBinaryStorage == null) {
+        	packedBinaryStorage = getConfigBool("binaryitem.storage.packed");
+        }
+        return packedBinaryStorage;
+    }
+
+    @Bean
+    public Integer binaryItemMaxStreams() throws IOException {
+        if (binaryItemMaxStreams == null) {
+        	binaryItemMaxStreams = getConfigInt("binaryitem.stream.max_concurrent");
+        }
+        return binaryItemMaxStreams;
+    }
+
+    @Bean
+    public Integer binaryItemStreamQueueTimeoutMS() throws IOException {
+        if (binaryItemStreamQueueTimeoutMS == null) {
+        	binaryItemStreamQueueTimeoutMS = getConfigInt("binaryitem.stream.queue_timeout_ms");
+        }
+        return binaryItemStreamQueueTimeoutMS;
+    }
+
+    @Bean
+    public Integer binaryItemWriteTimeoutMS() throws IOException {
+        if (binaryItemWriteTimeoutMS == null) {
+        	binaryItemWriteTimeoutMS = getConfigInt("binaryitem.stream.write_timeout_ms");
+        }
+        return binaryItemWriteTimeoutMS;
+    }
+
+    @Bean
+    public Integer binaryItemMinBytesPerSecond() throws IOException {
+        if (binaryItemMinBytesPerSecond == null) {
+        	binaryItemMinBytesPerSecond = getConfigInt("binaryitem.stream.min_bytes_per_sec");
+        }
+        return binaryItemMinBytesPerSecond;
+    }
+
+    @Bean
+    public Integer binaryItemPrefetchDepth() throws IOException {
+        if (binaryItemPrefetchDepth == null) {
+        	binaryItemPrefetchDepth = getConfigInt("binaryitem.prefetch.depth");
+        }
+        return binaryItemPrefetchDepth;
+    }
+
+    @Bean
+    public Integer binaryItemPrefetchMaxItemKB() throws IOException {
+        if (binaryItemPrefetchMaxItemKB == null) {
+        	binaryItemPrefetchMaxItemKB = getConfigInt("binaryitem.prefetch.max_item_kb");
+        }
+        return binaryItemPrefetchMaxItemKB;
+    }
+
+    @Bean
+    public Integer binaryItemPrefetchThreads() throws IOException {
+        if (binaryItemPrefetchThreads == null) {
+        	binaryItemPrefetchThreads = getConfigInt("binaryitem.prefetch.threads");
+        }
+        return binaryItemPrefetchThreads;
+    }
+
+    @Bean
+    public Integer binaryItemBulkMaxStudies() throws IOException {
+        if (binaryItemBulkMaxStudies == null) {
+            binaryItemBulkMaxStudies = getConfigInt("binaryitem.bulk.max_studies");
+        }
+        return binaryItemBulkMaxStudies;
+    }
+
+    @Bean
+    public BinaryItemCache binaryItemCache() throws IOException {
+        if (binaryItemCache == null) {
+            final long capacity = getConfigInt("binaryitem.cache.size_mb") * 1024L * 1024L;
+            binaryItemCache = new BinaryItemCache(capacity, getConfigInt("binaryitem.cache.max_item_kb") * 1024);
+        }
+        return binaryItemCache;
+    }
+
+    @Bean
+    public Boolean admitNewStudiesToCache() throws IOException {
+        if (admitNewStudiesToCache == null) {
+        	admitNewStudiesToCache = getConfigBool("binaryitem.cache.admit_new_studies");
+        }
+        return admitNewStudiesToCache;
+    }
+
+    @Bean
+    public MetadataCache metadataCache() throws IOException {
+        if (metadataCache == null) {
+            final long capacity = getConfigInt("metadata.cache.size_mb") * 1024L * 1024L;
+            metadataCache = new MetadataCache(capacity, getConfigInt("metadata.cache.max_entry_kb") * 1024);
+        }
+        return metadataCache;
+    }
+
+    @Bean
+    public Integer metadataSnapshotInterval() throws IOException {
+        if (metadataSnapshotInterval == null) {
+            metadataSnapshotInterval = getConfigInt("metadata.snapshot_interval");
+        }
+        return metadataSnapshotInterval;
+    }
+
+    @Bean
+    public Integer metadataBatchMaxStudies() throws IOException {
+        if (metadataBatchMaxStudies == null) {
+            metadataBatchMaxStudies = getConfigInt("metadata.batch.max_studies");
+        }
+        return metadataBatchMaxStudies;
+    }
+
+    @Bean
+    public Integer metadataBatchThreads() throws IOException {
+        if (metadataBatchThreads == null) {
+            metadataBatchThreads = getConfigInt("metadata.batch.threads");
+        }
+        return metadataBatchThreads;
+    }
+
+    @Bean
+    public Integer metadataBatchReadAhead() throws IOException {
+        if (metadataBatchReadAhead == null) {
+            metadataBatchReadAhead = getConfigInt("metadata.batch.read_ahead");
+        }
+        return metadataBatchReadAhead;
+    }
+
+    @Bean
+    public Boolean binaryItemCompression() throws IOException {
+        if (binaryItemCompression == null) {
+        	binaryItemCompression = getConfigBool("binaryitem.compression.enable");
+        }
+        return binaryItemCompression;
+    }
+
+    @Bean
+    public Integer binaryItemCompressionLevel() throws IOException {
+        if (binaryItemCompressionLevel == null) {
+        	binaryItemCompressionLevel = getConfigInt("binaryitem.compression.level");
+        }
+        return binaryItemCompressionLevel;
+    }
+
+    @Bean
+    public Integer binaryItemCompressionMinBytes() throws IOException {
+        if (binaryItemCompressionMinBytes == null) {
+        	binaryItemCompressionMinBytes = getConfigInt("binaryitem.compression.min_bytes");
+        }
+        return binaryItemCompressionMinBytes;
+    }
+
+    @Bean
+    public Boolean cacheCompressedBinaryItems() throws IOException {
+        if (cacheCompressedBinaryItems == null) {
+        	cacheCompressedBinaryItems = getConfigBool("binaryitem.compression.cache");
+        }
+        return cacheCompressedBinaryItems;
+    }
+
     @Bean
     public Integer fileResponseBufferSize() throws IOException {
         if (fileResponseBufferSize == null) {
@@ -618,6 +829,58 @@ public class ServerConfig {
         return fileStreamBufferSize;
     }
 
+    @Bean
+    public Boolean useSendfile() throws IOException {
+        if (useSendfile == null) {
+        	useSendfile = getConfigBool("file.sendfile");
+        }
+        return useSendfile;
+    }
+
+    @Bean
+    public String binaryItemCacheControl() throws IOException {
+        if (binaryItemCacheControl == null) {
+        	binaryItemCacheControl = getConfigString("http.cache_control.binaryitems");
+        }
+        return binaryItemCacheControl;
+    }
+
+    @Bean
+    public String metadataCacheControl() throws IOException {
+        if (metadataCacheControl == null) {
+        	metadataCacheControl = getConfigString("http.cache_control.metadata");
+        }
+        return metadataCacheControl;
+    }
+
+    @Bean
+    public Boolean serverTimingHeader() throws IOException {
+        if (serverTimingHeader == null) {
+        	serverTimingHeader = getConfigBool("timing.server_timing_header");
+        }
+        return serverTimingHeader;
+    }
+
+    @Bean
+    public Integer slowRequestThresholdMS() throws IOException {
+        if (slowRequestThresholdMS == null) {
+        	slowRequestThresholdMS = getConfigInt("timing.slow_request_ms");
+        }
+        return slowRequestThresholdMS;
+    }
+
+    /**
+     * Looked up by name from web.xml through a DelegatingFilterProxy.
+     */
+    @Bean
+    public ServerTimingFilter serverTimingFilter() throws IOException {
+        final ServerTimingFilter serverTimingFilter = new ServerTimingFilter();
+        serverTimingFilter.setServerTimingHeader(Boolean.TRUE.equals(serverTimingHeader()));
+        final Integer threshold = slowRequestThresholdMS();
+        serverTimingFilter.setSlowRequestThresholdMS(threshold == null ? 0 : threshold);
+        return serverTimingFilter;
+    }
+
     @Bean
     public String xmlStylesheet() {
     	return "type=\"text/xsl\" href=\"style.xsl\"";
@@ -0,0 +1,455 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+
+import org.apache.log4j.Logger;
+import org.nema.medical.mint.server.metrics.Counter;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.util.BinaryItemStore;
+import org.nema.medical.mint.server.util.BinaryItemStore.BinaryItem;
+
+/**
+ * In-process cache of binary item contents, held off-heap in direct buffers so that a large cache does not add to
+ * garbage collection work. Binary items never change once stored, so entries only need to be dropped when their
+ * study is deleted.
+ *
+ * Eviction is a size-aware segmented LRU: new entries go to a probation segment and are promoted to the protected
+ * segment (at most 80% of the capacity) when they are hit again, so a one-off scan through a large study cannot
+ * push out the items that are requested repeatedly. Concurrent loads of the same item share a single read.
+ *
+ * Buffers come in size classes, powers of two, and count against the capacity at their class size. The buffer of an
+ * evicted entry is kept for the next load of its class, up to a quarter of the capacity in free buffers, since direct
+ * memory is only given back when the garbage collector gets around to it and allocating while it is short stalls on
+ * a full collection. Readers pin the entry they read from, and its buffer is only reused once they release it.
+ */
+public final class BinaryItemCache {
+
+    private final long capacity;
+    private final long protectedCapacity;
+    private final int maxEntryBytes;
+
+    // Both in access order, least recently used first; guarded by this
+    private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long probationBytes = 0;
+    private long protectedBytes = 0;
+
+    // Free buffers by size class; guarded by this
+    private final List<Queue<ByteBuffer>> freeBuffers = new ArrayList<Queue<ByteBuffer>>();
+    private final long maxFreeBytes;
+    private long freeBytes = 0;
+
+    private final SingleFlight<Entry> loading = new SingleFlight<Entry>(LOADS, SHARED_LOADS);
+
+    /**
+     * @param capacity total size of the cached items in bytes, 0 to disable the cache
+     * @param maxEntryBytes larger items are not cached; at most 1 GB
+     */
+    public BinaryItemCache(final long capacity, final int maxEntryBytes) {
+        this.capacity = capacity;
+        this.protectedCapacity = capacity * 4 / 5;
+        this.maxEntryBytes = Math.min(maxEntryBytes, MAX_ENTRY_BYTES);
+        this.maxFreeBytes = capacity / 4;
+        for (int sizeClass = 0; sizeClass <= sizeClassOf(this.maxEntryBytes); ++sizeClass) {
+            freeBuffers.add(new ArrayDeque<ByteBuffer>());
+        }
+
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.registerGauge("binaryitems.cache.bytes", new Gauge() {
+            public long getValue() {
+                return getSize();
+            }
+        });
+        metrics.registerGauge("binaryitems.cache.entries", new Gauge() {
+            public long getValue() {
+                return getEntryCount();
+            }
+        });
+        metrics.registerGauge("binaryitems.cache.freeBytes", new Gauge() {
+            public long getValue() {
+                return getFreeBytes();
+            }
+        });
+    }
+
+    /**
+     * A cached item pinned for reading. Its buffer is not reused for another item until it is released, even if the
+     * item is evicted in the meantime; an item that is never released only keeps its buffer from being reused.
+     */
+    public final class CachedItem {
+        private final Entry entry;
+        private final ByteBuffer content;
+        // Guarded by the cache
+        private boolean released = false;
+
+        CachedItem(final Entry entry) {
+            this.entry = entry;
+            this.content = entry.buffer.asReadOnlyBuffer();
+        }
+
+        /**
+         * @return a read-only view of the content of the item, positioned at its start
+         */
+        public ByteBuffer getContent() {
+            return content;
+        }
+
+        /**
+         * Unpins the item; its content must not be used any more. Releasing it again does nothing.
+         */
+        public void release() {
+            unpin(this);
+        }
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * @return the cache key prefix for the binary items of a study type; append the bid to get an item's key
+     */
+    public static String keyPrefix(final String studyUUID, final String type) {
+        return studyUUID + '/' + type + '/';
+    }
+
+    /**
+     * @return the cached item, pinned until it is released, or null if it is not cached
+     */
+    public CachedItem getIfPresent(final String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        final CachedItem cached = lookUp(key);
+        if (cached == null) {
+            MISSES.inc();
+            return null;
+        }
+        HITS.inc();
+        return cached;
+    }
+
+    /**
+     * @return the item, read through the store and cached if it was not cached yet and pinned until it is released,
+     * or null if the item is too large to cache
+     * @throws IOException if the item had to be read and could not be
+     */
+    public CachedItem get(final String key, final BinaryItemStore store, final BinaryItem item) throws IOException {
+        final CachedItem cached = getIfPresent(key);
+        return cached != null ? cached : load(key, store, item);
+    }
+
+    /**
+     * Reads the item through the store into the cache, unless it is cached already; without counting a hit or miss.
+     * If another thread is loading the same item, waits for it to finish instead of reading the item again.
+     *
+     * @return the item, pinned until it is released, or null if it is too large to cache or was evicted again before
+     * it could be pinned
+     * @throws IOException if the item could not be read
+     */
+    public CachedItem load(final String key, final BinaryItemStore store, final BinaryItem item) throws IOException {
+        if (!isEnabled() || item.getLength() > maxEntryBytes) {
+            return null;
+        }
+        final CachedItem cached = lookUp(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        return pin(loading.load(key, new Callable<Entry>() {
+            public Entry call() throws IOException {
+                final ByteBuffer buffer = allocate((int) item.getLength());
+                boolean stored = false;
+                try {
+                    if (store.read(item, 0, buffer) != item.getLength()) {
+                        throw new IOException("Binary item " + key + " ended before its length of "
+                                + item.getLength());
+                    }
+                    buffer.flip();
+                    final Entry entry = put(key, buffer);
+                    stored = true;
+                    return entry;
+                } finally {
+                    if (!stored) {
+                        free(buffer);
+                    }
+                }
+            }
+        }, "binary item " + key));
+    }
+
+    /**
+     * Caches the given binary items of a study type, e.g. when a study has just been stored and is expected to be
+     * opened soon. Items go to the probation segment like any other, so they do not displace the hot set unless
+     * they are requested. Failures are logged, not thrown.
+     */
+    public void admit(final String studyUUID, final String type, final File binaryRoot,
+                      final Collection<Integer> bids) {
+        if (!isEnabled()) {
+            return;
+        }
+        final String prefix = keyPrefix(studyUUID, type);
+        long admitted = 0;
+        try {
+            final BinaryItemStore store = BinaryItemStore.open(binaryRoot);
+            try {
+                for (final int bid: bids) {
+                    final BinaryItem item = store.getItem(bid, false);
+                    if (item == null) {
+                        continue;
+                    }
+                    // Admitting more than the cache holds would only evict what was just admitted
+                    if (admitted + item.getLength() > capacity - protectedCapacity) {
+                        break;
+                    }
+                    final CachedItem cached = load(prefix + bid, store, item);
+                    if (cached != null) {
+                        cached.release();
+                        admitted += item.getLength();
+                    }
+                }
+            } finally {
+                store.close();
+            }
+        } catch (final IOException e) {
+            LOG.warn("Unable to admit binary items of study " + studyUUID + " to the cache", e);
+        }
+        LOG.debug("Admitted " + admitted + " bytes of binary items of study " + studyUUID + " to the cache");
+    }
+
+    /**
+     * Drops all cached binary items of a study.
+     */
+    public synchronized void invalidateStudy(final String studyUUID) {
+        final String prefix = studyUUID + '/';
+        probationBytes -= removeKeys(probation, prefix);
+        protectedBytes -= removeKeys(protectedSegment, prefix);
+    }
+
+    public synchronized long getSize() {
+        return probationBytes + protectedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * @return the size of the buffers kept for reuse, which are not part of the cache size
+     */
+    public synchronized long getFreeBytes() {
+        return freeBytes;
+    }
+
+    private synchronized CachedItem lookUp(final String key) {
+        Entry entry = protectedSegment.get(key);
+        if (entry != null) {
+            return pin(entry);
+        }
+        entry = probation.remove(key);
+        if (entry != null) {
+            // Second hit: promote, demoting the least recently used protected entries back to probation
+            probationBytes -= entry.size();
+            protectedSegment.put(key, entry);
+            protectedBytes += entry.size();
+            final Iterator<Map.Entry<String, Entry>> lru = protectedSegment.entrySet().iterator();
+            while (protectedBytes > protectedCapacity && lru.hasNext()) {
+                final Map.Entry<String, Entry> demoted = lru.next();
+                if (demoted.getKey().equals(key)) {
+                    continue;
+                }
+                lru.remove();
+                protectedBytes -= demoted.getValue().size();
+                probation.put(demoted.getKey(), demoted.getValue());
+                probationBytes += demoted.getValue().size();
+            }
+            // Pinned before evicting, which may evict the entry itself if it does not fit next to the protected ones
+            final CachedItem cached = pin(entry);
+            evict();
+            return cached;
+        }
+        return null;
+    }
+
+    /**
+     * @return the entry cached under the key: the new one, or one that was put by another thread meanwhile
+     */
+    private synchronized Entry put(final String key, final ByteBuffer buffer) {
+        Entry entry = protectedSegment.get(key);
+        if (entry == null) {
+            entry = probation.get(key);
+        }
+        if (entry != null) {
+            free(buffer);
+            return entry;
+        }
+        entry = new Entry(buffer);
+        probation.put(key, entry);
+        probationBytes += entry.size();
+        evict();
+        return entry;
+    }
+
+    /**
+     * @return the pinned entry, or null if it has been evicted and its buffer may have been reused
+     */
+    private synchronized CachedItem pin(final Entry entry) {
+        if (entry.evicted) {
+            return null;
+        }
+        ++entry.pins;
+        return new CachedItem(entry);
+    }
+
+    private synchronized void unpin(final CachedItem cached) {
+        if (cached.released) {
+            return;
+        }
+        cached.released = true;
+        final Entry entry = cached.entry;
+        if (--entry.pins == 0 && entry.evicted) {
+            free(entry.buffer);
+        }
+    }
+
+    private void evict() {
+        evict(probation, true);
+        evict(protectedSegment, false);
+    }
+
+    private void evict(final LinkedHashMap<String, Entry> segment, final boolean isProbation) {
+        final Iterator<Entry> lru = segment.values().iterator();
+        while (probationBytes + protectedBytes > capacity && lru.hasNext()) {
+            final Entry entry = lru.next();
+            lru.remove();
+            if (isProbation) {
+                probationBytes -= entry.size();
+            } else {
+                protectedBytes -= entry.size();
+            }
+            drop(entry);
+            EVICTIONS.inc();
+        }
+    }
+
+    private long removeKeys(final Map<String, Entry> segment, final String prefix) {
+        long removed = 0;
+        final Iterator<Map.Entry<String, Entry>> entries = segment.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<String, Entry> entry = entries.next();
+            if (entry.getKey().startsWith(prefix)) {
+                removed += entry.getValue().size();
+                entries.remove();
+                drop(entry.getValue());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Marks a removed entry as evicted, and frees its buffer unless it is pinned; the last reader frees it then.
+     */
+    private void drop(final Entry entry) {
+        entry.evicted = true;
+        if (entry.pins == 0) {
+            free(entry.buffer);
+        }
+    }
+
+    /**
+     * @return a buffer of the size class of the length, limited to the length; a free one if there is one
+     */
+    private ByteBuffer allocate(final int length) {
+        final int sizeClass = sizeClassOf(length);
+        synchronized (this) {
+            final ByteBuffer free = freeBuffers.get(sizeClass).poll();
+            if (free != null) {
+                freeBytes -= free.capacity();
+                free.limit(length);
+                REUSED_BUFFERS.inc();
+                return free;
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << sizeClass);
+        buffer.limit(length);
+        ALLOCATED_BUFFERS.inc();
+        return buffer;
+    }
+
+    /**
+     * Keeps a buffer that is no longer used for reuse, or leaves it to the garbage collector if enough are kept.
+     */
+    private synchronized void free(final ByteBuffer buffer) {
+        if (freeBytes + buffer.capacity() > maxFreeBytes) {
+            return;
+        }
+        buffer.clear();
+        freeBuffers.get(sizeClassOf(buffer.capacity())).add(buffer);
+        freeBytes += buffer.capacity();
+    }
+
+    /**
+     * @return the base 2 logarithm of the smallest power of two that holds the length
+     */
+    private static int sizeClassOf(final int length) {
+        return length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    /**
+     * A cached item: its buffer, whose capacity is its size class, and the readers holding it.
+     */
+    private static final class Entry {
+        private final ByteBuffer buffer;
+        // Guarded by the cache
+        private int pins = 0;
+        private boolean evicted = false;
+
+        Entry(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int size() {
+            return buffer.capacity();
+        }
+    }
+
+    private static final int MAX_ENTRY_BYTES = 1 << 30;
+
+    private static final Logger LOG = Logger.getLogger(BinaryItemCache.class);
+    private static final Counter HITS = MetricsRegistry.getInstance().counter("binaryitems.cache.hits");
+    private static final Counter MISSES = MetricsRegistry.getInstance().counter("binaryitems.cache.misses");
+    private static final Counter LOADS = MetricsRegistry.getInstance().counter("binaryitems.cache.loads");
+    private static final Counter SHARED_LOADS = MetricsRegistry.getInstance().counter("binaryitems.cache.sharedLoads");
+    private static final Counter EVICTIONS = MetricsRegistry.getInstance().counter("binaryitems.cache.evictions");
+    private static final Counter ALLOCATED_BUFFERS =
+            MetricsRegistry.getInstance().counter("binaryitems.cache.allocatedBuffers");
+    private static final Counter REUSED_BUFFERS =
+            MetricsRegistry.getInstance().counter("binaryitems.cache.reusedBuffers");
+}
@@ -0,0 +1,222 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.nema.medical.mint.server.metrics.Counter;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+
+/**
+ * In-process cache of the serialized metadata representations of studies (metadata.gpb, metadata.xml, their
+ * gzipped forms, summary.xml), held off-heap in direct buffers. Keys include the study version, so an entry never
+ * goes stale: an update makes requests look for the new version, and invalidating the study on update or delete
+ * only frees the memory of versions that will not be asked for again.
+ *
+ * Eviction is least recently used, weighted by size. Concurrent loads of the same entry share a single read.
+ */
+public final class MetadataCache {
+
+    private final long capacity;
+    private final int maxEntryBytes;
+
+    // In access order, least recently used first; guarded by this
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<String, ByteBuffer>(16, 0.75f, true);
+    private long size = 0;
+
+    private final SingleFlight<ByteBuffer> loading = new SingleFlight<ByteBuffer>(LOADS, SHARED_LOADS);
+
+    /**
+     * @param capacity total size of the cached representations in bytes, 0 to disable the cache
+     * @param maxEntryBytes larger representations are not cached
+     */
+    public MetadataCache(final long capacity, final int maxEntryBytes) {
+        this.capacity = capacity;
+        this.maxEntryBytes = maxEntryBytes;
+
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.registerGauge("metadata.cache.bytes", new Gauge() {
+            public long getValue() {
+                return getSize();
+            }
+        });
+        metrics.registerGauge("metadata.cache.entries", new Gauge() {
+            public long getValue() {
+                return getEntryCount();
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * @param version the version of the study the representation belongs to, e.g. the index of its last change
+     * @param variant the representation, e.g. its file name
+     */
+    public static String key(final String studyUUID, final String type, final long version, final String variant) {
+        return studyUUID + '/' + type + '/' + version + '/' + variant;
+    }
+
+    /**
+     * @return a read-only view of the cached representation, positioned at its start, or null if it is not cached
+     */
+    public ByteBuffer getIfPresent(final String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        final ByteBuffer buffer;
+        synchronized (this) {
+            buffer = entries.get(key);
+        }
+        if (buffer == null) {
+            MISSES.inc();
+            return null;
+        }
+        HITS.inc();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only view of the representation, read from the file and cached if it was not cached yet, or
+     * null if the file is too large to cache
+     * @throws IOException if the file had to be read and could not be
+     */
+    public ByteBuffer get(final String key, final File file) throws IOException {
+        final ByteBuffer buffer = getIfPresent(key);
+        return buffer != null ? buffer : load(key, file);
+    }
+
+    /**
+     * Reads the file into the cache, unless the representation is cached already. If another thread is loading the
+     * same entry, waits for it to finish instead of reading the file again.
+     *
+     * @return a read-only view of the representation, or null if the file is too large to cache
+     * @throws IOException if the file could not be read
+     */
+    public ByteBuffer load(final String key, final File file) throws IOException {
+        if (!isEnabled() || file.length() > maxEntryBytes) {
+            return null;
+        }
+        synchronized (this) {
+            final ByteBuffer cached = entries.get(key);
+            if (cached != null) {
+                return cached.asReadOnlyBuffer();
+            }
+        }
+
+        final ByteBuffer buffer = loading.load(key, new Callable<ByteBuffer>() {
+            public ByteBuffer call() throws IOException {
+                final FileInputStream in = new FileInputStream(file);
+                try {
+                    final FileChannel channel = in.getChannel();
+                    final long length = channel.size();
+                    if (length > maxEntryBytes) {
+                        return null;
+                    }
+                    final ByteBuffer buffer = ByteBuffer.allocateDirect((int) length);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer) < 0) {
+                            throw new IOException(file + " ended before its length of " + length);
+                        }
+                    }
+                    buffer.flip();
+                    put(key, buffer);
+                    return buffer;
+                } finally {
+                    in.close();
+                }
+            }
+        }, file.toString());
+        return buffer != null ? buffer.asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * Caches a representation generated in memory.
+     *
+     * @return a read-only view of the cached copy, or null if it is too large to cache
+     */
+    public ByteBuffer put(final String key, final byte[] bytes, final int length) {
+        if (!isEnabled() || length > maxEntryBytes) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        buffer.put(bytes, 0, length);
+        buffer.flip();
+        put(key, buffer);
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Drops all cached representations of a study.
+     */
+    public synchronized void invalidateStudy(final String studyUUID) {
+        final String prefix = studyUUID + '/';
+        final Iterator<Map.Entry<String, ByteBuffer>> i = entries.entrySet().iterator();
+        while (i.hasNext()) {
+            final Map.Entry<String, ByteBuffer> entry = i.next();
+            if (entry.getKey().startsWith(prefix)) {
+                size -= entry.getValue().capacity();
+                i.remove();
+            }
+        }
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    private synchronized void put(final String key, final ByteBuffer buffer) {
+        if (buffer.capacity() > capacity) {
+            return;
+        }
+        final ByteBuffer previous = entries.put(key, buffer);
+        if (previous != null) {
+            size -= previous.capacity();
+        }
+        size += buffer.capacity();
+        final Iterator<ByteBuffer> lru = entries.values().iterator();
+        while (size > capacity && lru.hasNext()) {
+            final ByteBuffer evicted = lru.next();
+            if (evicted == buffer) {
+                continue;
+            }
+            size -= evicted.capacity();
+            lru.remove();
+            EVICTIONS.inc();
+        }
+    }
+
+    private static final Counter HITS = MetricsRegistry.getInstance().counter("metadata.cache.hits");
+    private static final Counter MISSES = MetricsRegistry.getInstance().counter("metadata.cache.misses");
+    private static final Counter LOADS = MetricsRegistry.getInstance().counter("metadata.cache.loads");
+    private static final Counter SHARED_LOADS = MetricsRegistry.getInstance().counter("metadata.cache.sharedLoads");
+    private static final Counter EVICTIONS = MetricsRegistry.getInstance().counter("metadata.cache.evictions");
+}
@@ -0,0 +1,79 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.cache;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.nema.medical.mint.server.metrics.Counter;
+
+/**
+ * Loads of cache entries where concurrent loads of the same key share a single read: the first caller runs the
+ * loader, and the others wait for its result instead of reading the entry again.
+ */
+final class SingleFlight<V> {
+
+    private final ConcurrentMap<String, FutureTask<V>> loading = new ConcurrentHashMap<String, FutureTask<V>>();
+    private final Counter loads;
+    private final Counter sharedLoads;
+
+    /**
+     * @param loads counts loads that ran the loader
+     * @param sharedLoads counts loads that waited for another thread's load of the same key
+     */
+    SingleFlight(final Counter loads, final Counter sharedLoads) {
+        this.loads = loads;
+        this.sharedLoads = sharedLoads;
+    }
+
+    /**
+     * @param description what is loaded, for error messages, e.g. the file read
+     * @return the value returned by whichever loader ran for the key
+     * @throws IOException if the loader threw, or the wait for another thread's load was interrupted
+     */
+    V load(final String key, final Callable<V> loader, final String description) throws IOException {
+        FutureTask<V> task = new FutureTask<V>(loader);
+        final FutureTask<V> existing = loading.putIfAbsent(key, task);
+        if (existing == null) {
+            loads.inc();
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+        } else {
+            sharedLoads.inc();
+            task = existing;
+        }
+
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + description + " to be read");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Unable to read " + description + ": " + cause);
+        }
+    }
+}
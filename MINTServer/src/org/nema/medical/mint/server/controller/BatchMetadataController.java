@@ -0,0 +1,337 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.nema.medical.mint.server.cache.MetadataCache;
+import org.nema.medical.mint.server.domain.ChangeDAO;
+import org.nema.medical.mint.server.domain.StudyDAO;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.Meter;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.metrics.RequestTiming;
+import org.nema.medical.mint.server.util.BufferPool;
+import org.nema.medical.mint.server.util.MetadataVariants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Metadata of many studies in one response, for prefetchers and worklists that would otherwise send a request per
+ * study. The studies are validated together, with at most one database query, and their metadata is read on a
+ * bounded pool of threads while earlier studies are sent. Their versions are looked up in one more query, so that
+ * metadata is read through the metadata cache under the same keys as single metadata requests use.
+ * <p>
+ * The response is multipart/mixed with one part per requested study, in request order. Each part is identified by
+ * a Content-ID of &lt;type@uuid&gt; and has an X-MINT-Status header: 200 for metadata, or the status that a
+ * metadata request for that study alone would have failed with, in which case the part holds the reason as text.
+ */
+@Controller
+public class BatchMetadataController {
+
+    @Autowired
+    protected File studiesRoot;
+
+    @Autowired
+    protected StudyDAO studyDAO;
+
+    @Autowired
+    protected ChangeDAO changeDAO;
+
+    @Autowired
+    protected MetadataCache metadataCache;
+
+    @Autowired
+    protected Integer fileResponseBufferSize;
+
+    @Autowired
+    protected Integer fileStreamBufferSize;
+
+    @Autowired
+    protected Integer metadataBatchMaxStudies;
+
+    @Autowired
+    protected Integer metadataBatchThreads;
+
+    @Autowired
+    protected Integer metadataBatchReadAhead;
+
+    private ThreadPoolExecutor readExecutor;
+
+    @PostConstruct
+    public void setupReads() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final int threads = Math.max(1, metadataBatchThreads);
+        readExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "metadata-batch-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        readExecutor.allowCoreThreadTimeOut(true);
+        MetricsRegistry.getInstance().registerGauge("metadata.batch.queueDepth", new Gauge() {
+            public long getValue() {
+                return readExecutor.getQueue().size();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stopReads() {
+        MetricsRegistry.getInstance().unregisterGauge("metadata.batch.queueDepth");
+        readExecutor.shutdownNow();
+    }
+
+    /**
+     * @param format xml, gpb, xml.gz or gpb.gz, as the extension of a single metadata request
+     */
+    @RequestMapping(value = "/studies/metadata", method = {RequestMethod.GET, RequestMethod.POST})
+    public void batchMetadata(@RequestParam(value = "type", required = false, defaultValue = "DICOM") final String type,
+                              @RequestParam(value = "format", required = false, defaultValue = "xml")
+                              final String format,
+                              final HttpServletRequest req,
+                              final HttpServletResponse res) throws IOException {
+        final List<String> uuids = parseStudyIDs(req.getParameterValues("uuid"));
+        if (uuids.isEmpty()) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing study IDs");
+            return;
+        }
+        if (uuids.size() > metadataBatchMaxStudies) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "At most " + metadataBatchMaxStudies + " studies may be requested at once");
+            return;
+        }
+        if (!Utils.isPathElement(type)) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid type requested");
+            return;
+        }
+        final String contentType = CONTENT_TYPES.get(format);
+        if (contentType == null) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown metadata format: " + format);
+            return;
+        }
+        final String filename = "metadata." + format;
+
+        final Map<String, Integer> statuses = validate(uuids, type);
+        final List<String> found = new ArrayList<String>();
+        for (final String uuid: uuids) {
+            if (statuses.get(uuid) == HttpServletResponse.SC_OK) {
+                found.add(uuid);
+            }
+        }
+        final long dbStart = RequestTiming.begin();
+        final Map<String, Integer> versions = changeDAO.findLastChangeIndexes(found);
+        RequestTiming.end(RequestTiming.DB, dbStart);
+
+        res.setBufferSize(fileResponseBufferSize);
+        final MultipartOutput multipart = new MultipartOutput(res.getOutputStream(), BOUNDARY);
+        res.setContentType(multipart.getContentType());
+
+        // At most read_ahead studies are read at once, counting the one whose part is being written, so memory
+        // stays bounded however many studies are asked for
+        final int readAhead = Math.max(1, metadataBatchReadAhead);
+        final Queue<PendingPart> pending = new ArrayDeque<PendingPart>();
+        final Iterator<String> remaining = uuids.iterator();
+        final byte[] copyBuffer = BufferPool.getInstance().acquire(fileStreamBufferSize);
+        final long streamStart = RequestTiming.begin();
+        try {
+            while (remaining.hasNext() || !pending.isEmpty()) {
+                while (remaining.hasNext() && pending.size() < readAhead) {
+                    final String uuid = remaining.next();
+                    final int status = statuses.get(uuid);
+                    final Integer version = versions.get(uuid);
+                    final String cacheKey = version != null ? MetadataCache.key(uuid, type, version, filename) : null;
+                    final Future<ByteBuffer> content = status == HttpServletResponse.SC_OK
+                            ? readExecutor.submit(read(new File(new File(studiesRoot, uuid), type), filename,
+                                    cacheKey))
+                            : null;
+                    pending.add(new PendingPart(uuid, status, content));
+                }
+                writePart(multipart, type, contentType, pending.remove(), copyBuffer);
+            }
+            multipart.finish();
+        } finally {
+            for (final PendingPart part: pending) {
+                if (part.content != null) {
+                    part.content.cancel(false);
+                }
+            }
+            BufferPool.getInstance().release(copyBuffer);
+            RequestTiming.end(RequestTiming.STREAMING, streamStart);
+        }
+        STUDIES.mark(uuids.size());
+    }
+
+    /**
+     * Finds the status each study would be sent with by a metadata request for it alone.
+     */
+    private Map<String, Integer> validate(final List<String> uuids, final String type) {
+        final Map<String, Integer> statuses = new HashMap<String, Integer>();
+        for (final Map.Entry<String, Utils.StudyStatus> entry:
+                Utils.validateStudyStatuses(studiesRoot, uuids, studyDAO).entrySet()) {
+            final String uuid = entry.getKey();
+            switch (entry.getValue()) {
+            case OK:
+                final File typeDir = new File(new File(studiesRoot, uuid), type);
+                if (typeDir.isDirectory() && typeDir.canRead()) {
+                    statuses.put(uuid, HttpServletResponse.SC_OK);
+                } else {
+                    LOG.error("Unable to locate directory for study: " + typeDir);
+                    statuses.put(uuid, HttpServletResponse.SC_NOT_FOUND);
+                }
+                break;
+            case DELETED:
+                statuses.put(uuid, HttpServletResponse.SC_GONE);
+                break;
+            case INVALID_ID:
+                statuses.put(uuid, HttpServletResponse.SC_BAD_REQUEST);
+                break;
+            default:
+                statuses.put(uuid, HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * @param cacheKey the key of the metadata in the metadata cache, or null if the study version is not known
+     */
+    private Callable<ByteBuffer> read(final File typeDir, final String filename, final String cacheKey) {
+        return new Callable<ByteBuffer>() {
+            public ByteBuffer call() throws IOException {
+                ByteBuffer content = cacheKey != null ? metadataCache.getIfPresent(cacheKey) : null;
+                if (content == null) {
+                    final File file = MetadataVariants.ensure(typeDir, filename);
+                    content = cacheKey != null ? metadataCache.load(cacheKey, file) : null;
+                    if (content == null) {
+                        // Not cached: too large, or the cache is disabled
+                        content = ByteBuffer.wrap(FileUtils.readFileToByteArray(file));
+                    }
+                }
+                return content;
+            }
+        };
+    }
+
+    private static void writePart(final MultipartOutput multipart, final String type, final String contentType,
+                                  final PendingPart part, final byte[] copyBuffer) throws IOException {
+        final String contentID = "Content-ID: <" + type + "@" + part.uuid + ">";
+        int status = part.status;
+        if (part.content != null) {
+            try {
+                final ByteBuffer content = part.content.get();
+                final int length = content.remaining();
+                multipart.writePart(contentType, content, copyBuffer, contentID, "X-MINT-Status: " + status);
+                BYTES_STREAMED.mark(length);
+                return;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted reading metadata of study " + part.uuid);
+            } catch (final ExecutionException e) {
+                LOG.error("Unable to read metadata of study " + part.uuid, e.getCause());
+                status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            }
+        }
+        multipart.writePart("text/plain", getReason(status).getBytes("UTF-8"), contentID, "X-MINT-Status: " + status);
+    }
+
+    private static String getReason(final int status) {
+        switch (status) {
+        case HttpServletResponse.SC_BAD_REQUEST:
+            return "Invalid study ID";
+        case HttpServletResponse.SC_GONE:
+            return "Invalid study requested: deleted";
+        case HttpServletResponse.SC_NOT_FOUND:
+            return "Invalid study requested: Not found";
+        default:
+            return "Unable to provide study metadata. See server logs.";
+        }
+    }
+
+    /**
+     * Splits the uuid parameters, each of which may list several IDs separated by commas or white space, keeping
+     * the first occurrence of each ID.
+     */
+    static List<String> parseStudyIDs(final String[] values) {
+        final Set<String> uuids = new LinkedHashSet<String>();
+        if (values != null) {
+            for (final String value: values) {
+                for (final String uuid: StringUtils.split(value, ", \t\r\n")) {
+                    uuids.add(uuid);
+                }
+            }
+        }
+        return new ArrayList<String>(uuids);
+    }
+
+    private static final class PendingPart {
+        final String uuid;
+        final int status;
+        final Future<ByteBuffer> content;
+
+        PendingPart(final String uuid, final int status, final Future<ByteBuffer> content) {
+            this.uuid = uuid;
+            this.status = status;
+            this.content = content;
+        }
+    }
+
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<String, String>();
+    static {
+        CONTENT_TYPES.put("xml", "text/xml");
+        CONTENT_TYPES.put("gpb", "application/octet-stream");
+        CONTENT_TYPES.put("xml.gz", "application/gzip");
+        CONTENT_TYPES.put("gpb.gz", "application/gzip");
+    }
+
+    private static final String BOUNDARY = "StudyMetadataBoundary-5d1e9c7a3f2b4e8d9a6c0b1f2e3d4c5b";
+    private static final Logger LOG = Logger.getLogger(BatchMetadataController.class);
+    private static final Meter STUDIES = MetricsRegistry.getInstance().meter("metadata.batch.studies");
+    private static final Meter BYTES_STREAMED = MetricsRegistry.getInstance().meter("metadata.batch.bytes");
+}
@@ -0,0 +1,147 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The binary item ids requested by the seq parameter of a binary items request, such as "0-99,200,150-160".
+ * Ranges are sorted and overlapping or adjacent ones merged, so ids come out in ascending order, each once. Ids are
+ * produced as they are iterated; memory use depends on the number of ranges, not the number of ids.
+ */
+final class BinaryItemSequence implements Iterator<Integer> {
+    private final int[] firsts;
+    private final int[] lasts;
+    private int rangeIndex = 0;
+    private long nextId;
+
+    private BinaryItemSequence(final int[] firsts, final int[] lasts) {
+        this.firsts = firsts;
+        this.lasts = lasts;
+        this.nextId = firsts.length > 0 ? firsts[0] : 0;
+    }
+
+    /**
+     * @return all ids from 0 up to and including highestId
+     */
+    static BinaryItemSequence all(final int highestId) {
+        return highestId < 0
+                ? new BinaryItemSequence(new int[0], new int[0])
+                : new BinaryItemSequence(new int[] {0}, new int[] {highestId});
+    }
+
+    /**
+     * @param seq comma separated ids and inclusive id ranges, e.g. "0-99,200"
+     * @throws IllegalArgumentException if seq is malformed
+     */
+    static BinaryItemSequence parse(final String seq) {
+        final String[] elements = seq.split(",");
+        // Pack each range into a long, first id in the high half, so that sorting orders ranges by first id
+        final long[] ranges = new long[elements.length];
+        for (int i = 0; i < elements.length; ++i) {
+            final String element = elements[i].trim();
+            final int dash = element.indexOf('-', 1);
+            final int first;
+            final int last;
+            if (dash < 0) {
+                first = Integer.parseInt(element);
+                last = first;
+            } else {
+                first = Integer.parseInt(element.substring(0, dash).trim());
+                last = Integer.parseInt(element.substring(dash + 1).trim());
+            }
+            if (first < 0 || last < first) {
+                throw new IllegalArgumentException("Invalid binary item range: " + element);
+            }
+            ranges[i] = ((long) first << 32) | last;
+        }
+        Arrays.sort(ranges);
+
+        int count = 0;
+        final int[] firsts = new int[ranges.length];
+        final int[] lasts = new int[ranges.length];
+        for (final long range: ranges) {
+            final int first = (int) (range >>> 32);
+            final int last = (int) range;
+            if (count > 0 && first <= (long) lasts[count - 1] + 1) {
+                lasts[count - 1] = Math.max(lasts[count - 1], last);
+            } else {
+                firsts[count] = first;
+                lasts[count] = last;
+                ++count;
+            }
+        }
+        return new BinaryItemSequence(Arrays.copyOf(firsts, count), Arrays.copyOf(lasts, count));
+    }
+
+    /**
+     * @return the number of ids in the sequence, regardless of how many have been iterated
+     */
+    public long size() {
+        long size = 0;
+        for (int i = 0; i < firsts.length; ++i) {
+            size += (long) lasts[i] - firsts[i] + 1;
+        }
+        return size;
+    }
+
+    /**
+     * @return the highest id in the sequence, or -1 if it is empty
+     */
+    public int getHighestId() {
+        return lasts.length > 0 ? lasts[lasts.length - 1] : -1;
+    }
+
+    /**
+     * Skips the ids below bid that have not been iterated yet.
+     */
+    public void skipTo(final int bid) {
+        while (rangeIndex < firsts.length && lasts[rangeIndex] < bid) {
+            if (++rangeIndex < firsts.length) {
+                nextId = firsts[rangeIndex];
+            }
+        }
+        if (rangeIndex < firsts.length && nextId < bid) {
+            nextId = bid;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rangeIndex < firsts.length;
+    }
+
+    @Override
+    public Integer next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final int id = (int) nextId;
+        if (nextId < lasts[rangeIndex]) {
+            ++nextId;
+        } else if (++rangeIndex < firsts.length) {
+            nextId = firsts[rangeIndex];
+        }
+        return id;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The manifest of a bulk binary items request: one line per study type, "uuid [type [seq]]" separated by white
+ * space, where type defaults to DICOM and seq, as in a binary items request, to all. Blank lines and lines starting
+ * with # are skipped. Lines naming the same study type are merged into one entry, so that its items are read once,
+ * in ascending id order.
+ */
+final class BulkManifest {
+
+    private BulkManifest() {
+    }
+
+    /**
+     * @return the entries in the order their study types first appear
+     * @throws IllegalArgumentException if a line is malformed or there are more than maxEntries entries
+     */
+    static List<Entry> parse(final BufferedReader reader, final int maxEntries) throws IOException {
+        final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            ++lineNumber;
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#")) {
+                continue;
+            }
+            final String[] fields = StringUtils.split(line);
+            if (fields.length > 3) {
+                throw new IllegalArgumentException("Invalid manifest line " + lineNumber + ": " + line);
+            }
+            final String uuid = fields[0];
+            final String type = fields.length > 1 ? fields[1] : "DICOM";
+            final String seq = fields.length > 2 ? fields[2] : "all";
+            final String key = uuid + "/" + type;
+            final Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.merge(seq);
+            } else if (entries.size() < maxEntries) {
+                entries.put(key, new Entry(uuid, type, seq));
+            } else {
+                throw new IllegalArgumentException("At most " + maxEntries + " study types may be requested at once");
+            }
+        }
+        return new ArrayList<Entry>(entries.values());
+    }
+
+    /**
+     * The binary items requested of one study type.
+     */
+    static final class Entry {
+        private final String uuid;
+        private final String type;
+        private String seq;
+
+        Entry(final String uuid, final String type, final String seq) {
+            this.uuid = uuid;
+            this.type = type;
+            this.seq = seq;
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return the ids and id ranges of the items, or "all"
+         */
+        public String getSeq() {
+            return seq;
+        }
+
+        private void merge(final String other) {
+            seq = seq.equals("all") || other.equals("all") ? "all" : seq + "," + other;
+        }
+    }
+
+    /**
+     * A position in the manifest, "entry:bid": the index of an entry, and the lowest binary item id of that entry
+     * still to be sent. The entries before it have been sent completely.
+     */
+    static final class Cursor {
+        private final int entry;
+        private final int bid;
+
+        Cursor(final int entry, final int bid) {
+            this.entry = entry;
+            this.bid = bid;
+        }
+
+        /**
+         * @param value a cursor as formatted by toString, or null for the start of the manifest
+         * @throws IllegalArgumentException if value is not a valid cursor
+         */
+        static Cursor parse(final String value) {
+            if (value == null) {
+                return new Cursor(0, 0);
+            }
+            final int colon = value.indexOf(':');
+            try {
+                final int entry = Integer.parseInt(value.substring(0, Math.max(colon, 0)));
+                final int bid = Integer.parseInt(value.substring(colon + 1));
+                if (entry >= 0 && bid >= 0) {
+                    return new Cursor(entry, bid);
+                }
+            } catch (final NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+
+        public int getEntry() {
+            return entry;
+        }
+
+        public int getBid() {
+            return bid;
+        }
+
+        @Override
+        public String toString() {
+            return entry + ":" + bid;
+        }
+    }
+}
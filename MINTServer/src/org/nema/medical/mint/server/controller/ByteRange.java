@@ -0,0 +1,111 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A satisfiable byte range of an entity, as requested in an HTTP Range header.
+ */
+final class ByteRange {
+    /** More ranges than this in one request are not worth the multipart overhead; the whole entity is sent instead */
+    static final int MAX_RANGES = 64;
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long first;
+    private final long last;
+
+    ByteRange(final long first, final long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * @return the position of the last byte of the range, inclusive
+     */
+    public long getLast() {
+        return last;
+    }
+
+    public long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * @return the Content-Range header value for this range
+     */
+    public String toContentRange(final long entityLength) {
+        return "bytes " + first + '-' + last + '/' + entityLength;
+    }
+
+    /**
+     * Parses a Range header such as "bytes=0-499, 1000-, -500" against an entity of the given length. Ranges that
+     * lie beyond the end of the entity are dropped and the remaining ones are clipped to the entity.
+     *
+     * @return null if the header is absent or should be ignored (malformed, other unit, too many ranges); an empty
+     * list if none of the ranges can be satisfied; otherwise the satisfiable ranges, in the requested order
+     */
+    static List<ByteRange> parse(final String rangeHeader, final long entityLength) {
+        if (rangeHeader == null || !rangeHeader.trim().startsWith(BYTES_UNIT)) {
+            return null;
+        }
+        final String[] specs = rangeHeader.trim().substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        final List<ByteRange> ranges = new ArrayList<ByteRange>(specs.length);
+        for (final String rawSpec: specs) {
+            final String spec = rawSpec.trim();
+            final int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                final String firstString = spec.substring(0, dash).trim();
+                final String lastString = spec.substring(dash + 1).trim();
+                if (firstString.length() == 0) {
+                    // Suffix range: the last N bytes
+                    final long suffixLength = Long.parseLong(lastString);
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    if (suffixLength > 0 && entityLength > 0) {
+                        ranges.add(new ByteRange(Math.max(0, entityLength - suffixLength), entityLength - 1));
+                    }
+                } else {
+                    final long first = Long.parseLong(firstString);
+                    final long last = lastString.length() == 0 ? Long.MAX_VALUE : Long.parseLong(lastString);
+                    if (first < 0 || last < first) {
+                        return null;
+                    }
+                    if (first < entityLength) {
+                        ranges.add(new ByteRange(first, Math.min(last, entityLength - 1)));
+                    }
+                }
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+}
@@ -17,14 +17,14 @@ package org.nema.medical.mint.server.controller;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
-import org.jibx.runtime.BindingDirectory;
-import org.jibx.runtime.IBindingFactory;
-import org.jibx.runtime.IMarshallingContext;
 import org.jibx.runtime.JiBXException;
 import org.nema.medical.mint.changelog.ChangeSet;
 import org.nema.medical.mint.server.domain.Change;
 import org.nema.medical.mint.server.domain.ChangeDAO;
 import org.nema.medical.mint.server.domain.StudyDAO;
+import org.nema.medical.mint.server.metrics.RequestTiming;
+import org.nema.medical.mint.server.util.Marshalling;
+import org.nema.medical.mint.server.util.MetadataVariants;
 import org.nema.medical.mint.utils.DateTimeParseException;
 import org.nema.medical.mint.utils.ISO8601DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -72,8 +72,17 @@ public class ChangeLogController {
             @RequestParam(value = "limit", required = false) Integer limit,
             @RequestParam(value = "offset", required = false) Integer offset,
             @RequestParam(value = "consolidate", required = false, defaultValue = "true") boolean consolidate,
+			final HttpServletRequest req,
 			final HttpServletResponse res) throws IOException, JiBXException {
 
+		final ResponseFormat format;
+		try {
+			format = ResponseFormat.negotiate(req);
+		} catch (final IllegalArgumentException e) {
+			res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+
 		final List<org.nema.medical.mint.changelog.Change> changes = new ArrayList<org.nema.medical.mint.changelog.Change>();
  
 		// TODO read limit from a config file
@@ -87,6 +96,7 @@ public class ChangeLogController {
 
         final List<Change> changesFound;
 
+        final long dbStart = RequestTiming.begin();
         if(consolidate) {
         	//only get a list of most recent changes for each study
     		changesFound = changeDAO.findLastChanges();
@@ -111,6 +121,7 @@ public class ChangeLogController {
 				changesFound = changeDAO.findChanges(firstIndex, limit);
 			}
         }
+        RequestTiming.end(RequestTiming.DB, dbStart);
 		
 		if (changesFound != null) {
 			for (final Change change : changesFound) {
@@ -121,14 +132,10 @@ public class ChangeLogController {
 		}	
 		
 		res.setBufferSize(fileResponseBufferSize);
+		final long generationStart = RequestTiming.begin();
 		final ChangeSet changeSet = new ChangeSet(changes);
-		final IBindingFactory bfact = BindingDirectory.getFactory("serverChangelog", ChangeSet.class);
-		final IMarshallingContext mctx = bfact.createMarshallingContext();
-		mctx.setIndent(2);
-		mctx.startDocument("UTF-8", null, res.getOutputStream());
-		mctx.getXmlWriter().writePI("xml-stylesheet", xmlStylesheet);
-		mctx.marshalDocument(changeSet);
-		mctx.endDocument();
+		writeChangeSet(changeSet, "serverChangelog", format, res);
+		RequestTiming.end(RequestTiming.GENERATION, generationStart);
 	}
 
 	@RequestMapping("/studies/{uuid}/changelog")
@@ -141,9 +148,19 @@ public class ChangeLogController {
             return;
         }
 
+		final ResponseFormat format;
+		try {
+			format = ResponseFormat.negotiate(req);
+		} catch (final IllegalArgumentException e) {
+			res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+
 		final List<org.nema.medical.mint.changelog.Change> changes = new ArrayList<org.nema.medical.mint.changelog.Change>();
 
+        final long dbStart = RequestTiming.begin();
         final List<Change> changesFound = changeDAO.findChanges(uuid);
+        RequestTiming.end(RequestTiming.DB, dbStart);
 		if (changesFound != null) {
 			for (Change change : changesFound) {
 				changes.add(new org.nema.medical.mint.changelog.Change(
@@ -153,14 +170,21 @@ public class ChangeLogController {
 		}
 
 		res.setBufferSize(fileResponseBufferSize);
+        final long generationStart = RequestTiming.begin();
         final ChangeSet changeSet = new ChangeSet(uuid, changes);
-        final IBindingFactory bfact = BindingDirectory.getFactory("studyChangelog", ChangeSet.class);
-        final IMarshallingContext mctx = bfact.createMarshallingContext();
-		mctx.setIndent(2);
-		mctx.startDocument("UTF-8", null, res.getOutputStream());
-		mctx.getXmlWriter().writePI("xml-stylesheet", xmlStylesheet);
-		mctx.marshalDocument(changeSet);
-		mctx.endDocument();
+		writeChangeSet(changeSet, "studyChangelog", format, res);
+		RequestTiming.end(RequestTiming.GENERATION, generationStart);
+	}
+
+	private void writeChangeSet(final ChangeSet changeSet, final String bindingName, final ResponseFormat format,
+								final HttpServletResponse res) throws IOException, JiBXException {
+		res.setContentType(format.getContentType());
+		if (format == ResponseFormat.GPB) {
+			GPBResponses.write(changeSet, res.getOutputStream());
+		} else {
+			Marshalling.marshal(changeSet, bindingName, ChangeSet.class, res.getOutputStream(),
+					format == ResponseFormat.COMPACT_XML, xmlStylesheet);
+		}
 	}
 
 	@RequestMapping("/studies/{uuid}/changelog/{seq}")
@@ -227,7 +251,11 @@ public class ChangeLogController {
 
 		res.setBufferSize(fileResponseBufferSize);
 		try {
-			final File file = new File(studiesRoot, uuid + "/changelog/" + sequence + "/metadata." + ext);
+			File file = new File(studiesRoot, uuid + "/changelog/" + sequence + "/metadata." + ext);
+			if (!file.exists() && MetadataVariants.isDerived(file.getName()) && file.getParentFile().isDirectory()) {
+				// Only the canonical representation is written with the change
+				file = MetadataVariants.ensure(file.getParentFile(), file.getName());
+			}
 			if (file.exists() && file.canRead()) {
 				final OutputStream out = res.getOutputStream();
 				res.setContentLength((int)file.length());
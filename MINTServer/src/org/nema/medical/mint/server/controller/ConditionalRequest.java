@@ -0,0 +1,121 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Validators (ETag, Last-Modified) and conditional GET handling for responses whose content is determined by
+ * the study version or never changes, so that browser and proxy caches can serve repeat requests.
+ */
+final class ConditionalRequest {
+
+    /**
+     * @return a strong entity tag built from the given parts
+     */
+    static String etag(final Object... parts) {
+        return '"' + StringUtils.join(parts, '-') + '"';
+    }
+
+    /**
+     * Sets the ETag, Last-Modified and Cache-Control headers, and answers with 304 Not Modified if the request's
+     * If-None-Match (or, without it, If-Modified-Since) shows that the client already has this representation.
+     *
+     * @param lastModified milliseconds since the epoch, or -1 if unknown
+     * @param cacheControl Cache-Control header value, may be empty
+     * @return true if 304 was sent, in which case the caller must not write anything else
+     */
+    static boolean checkNotModified(final HttpServletRequest req, final HttpServletResponse res, final String etag,
+                                    final long lastModified, final String cacheControl) {
+        res.setHeader("ETag", etag);
+        if (lastModified >= 0) {
+            res.setDateHeader("Last-Modified", lastModified);
+        }
+        if (StringUtils.isNotBlank(cacheControl)) {
+            res.setHeader("Cache-Control", cacheControl);
+        }
+        if (!"GET".equals(req.getMethod()) && !"HEAD".equals(req.getMethod())) {
+            return false;
+        }
+
+        final boolean notModified;
+        final String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            notModified = etagMatches(ifNoneMatch, etag, false);
+        } else {
+            notModified = lastModified >= 0 && notModifiedSince(req, "If-Modified-Since", lastModified);
+        }
+        if (notModified) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * @return true if a Range header may be honored: there is no If-Range, or it names the current representation
+     */
+    static boolean ifRangeMatches(final HttpServletRequest req, final String etag, final long lastModified) {
+        final String ifRange = req.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return etagMatches(ifRange, etag, true);
+        }
+        return lastModified >= 0 && notModifiedSince(req, "If-Range", lastModified);
+    }
+
+    /**
+     * @param header an If-None-Match or If-Range value: "*" or a comma separated list of entity tags
+     * @param strong use strong comparison, where weak entity tags never match
+     * @return true if the header matches the (strong) entity tag
+     */
+    static boolean etagMatches(final String header, final String etag, final boolean strong) {
+        if (header.trim().equals("*")) {
+            return !strong;
+        }
+        for (String candidate: header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                if (strong) {
+                    continue;
+                }
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean notModifiedSince(final HttpServletRequest req, final String header,
+                                            final long lastModified) {
+        final long since;
+        try {
+            since = req.getDateHeader(header);
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have a resolution of one second
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+
+    private ConditionalRequest() {} // no instantiation
+}
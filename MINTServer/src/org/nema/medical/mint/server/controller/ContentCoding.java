@@ -0,0 +1,175 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * HTTP content codings for binary item responses: negotiation of Accept-Encoding and the gzip and deflate encoders.
+ */
+final class ContentCoding {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private ContentCoding() {
+    }
+
+    /**
+     * Chooses the content coding for a response from the request's Accept-Encoding header, preferring gzip over
+     * deflate when the client accepts both equally.
+     *
+     * @return GZIP, DEFLATE, or null to send the response unencoded
+     */
+    static String negotiate(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        float gzip = -1;
+        float deflate = -1;
+        float any = -1;
+        for (final String element: acceptEncoding.split(",")) {
+            final String[] params = element.split(";");
+            final String coding = params[0].trim().toLowerCase();
+            float quality = 1;
+            for (int p = 1; p < params.length; p++) {
+                final String param = params[p].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(param.substring(2).trim());
+                    } catch (final NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                gzip = Math.max(gzip, quality);
+            } else if (coding.equals(DEFLATE)) {
+                deflate = Math.max(deflate, quality);
+            } else if (coding.equals("*")) {
+                any = Math.max(any, quality);
+            }
+        }
+        // Codings that are not listed take the quality of "*"
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    /**
+     * Creates an encoder for the given content coding; it must be finished, and then released, but closing it would
+     * close the underlying stream.
+     */
+    static Encoder encoder(final OutputStream out, final String coding, final int level, final int bufferSize)
+            throws IOException {
+        return new Encoder(out, GZIP.equals(coding), level, bufferSize);
+    }
+
+    /**
+     * A deflating output stream whose compression level can be changed between binary items, so that items that
+     * are already compressed are passed through as stored blocks in the same response.
+     */
+    static final class Encoder extends DeflaterOutputStream {
+
+        private final boolean gzip;
+        private final CRC32 crc = new CRC32();
+        private long length = 0;
+
+        private Encoder(final OutputStream out, final boolean gzip, final int level, final int bufferSize)
+                throws IOException {
+            // gzip wraps a raw deflate stream in its own header and trailer; deflate is the zlib format
+            super(out, new Deflater(level, gzip), bufferSize);
+            this.gzip = gzip;
+            if (gzip) {
+                out.write(GZIP_HEADER);
+            }
+        }
+
+        void setLevel(final int level) {
+            def.setLevel(level);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            super.write(b, off, len);
+            if (gzip) {
+                crc.update(b, off, len);
+            }
+            length += len;
+        }
+
+        /**
+         * @return the number of uncompressed bytes written
+         */
+        long getLength() {
+            return length;
+        }
+
+        /**
+         * @return the number of encoded bytes written to the underlying stream, including the gzip header and, once
+         * finished, trailer; it must be called before the encoder is released
+         */
+        long getEncodedLength() {
+            final long trailerLength = def.finished() ? GZIP_TRAILER_LENGTH : 0;
+            return def.getBytesWritten() + (gzip ? GZIP_HEADER.length + trailerLength : 0);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (def.finished()) {
+                return;
+            }
+            super.finish();
+            if (gzip) {
+                final byte[] trailer = new byte[GZIP_TRAILER_LENGTH];
+                writeInt(trailer, 0, crc.getValue());
+                writeInt(trailer, 4, length);
+                out.write(trailer);
+            }
+            out.flush();
+        }
+
+        /**
+         * Frees the native memory of the encoder; it can be called any number of times.
+         */
+        void release() {
+            def.end();
+        }
+
+        private static void writeInt(final byte[] buffer, final int offset, final long value) {
+            buffer[offset] = (byte) value;
+            buffer[offset + 1] = (byte) (value >> 8);
+            buffer[offset + 2] = (byte) (value >> 16);
+            buffer[offset + 3] = (byte) (value >> 24);
+        }
+    }
+
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    private static final byte[] GZIP_HEADER = {
+            (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+}
@@ -0,0 +1,154 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.nema.medical.mint.changelog.Change;
+import org.nema.medical.mint.changelog.ChangeSet;
+import org.nema.medical.mint.responses.ResponsesGPB.ChangeData;
+import org.nema.medical.mint.responses.ResponsesGPB.ChangeSetData;
+import org.nema.medical.mint.responses.ResponsesGPB.JobStatusData;
+import org.nema.medical.mint.responses.ResponsesGPB.SearchResultStudyData;
+import org.nema.medical.mint.responses.ResponsesGPB.SearchResultsData;
+import org.nema.medical.mint.server.domain.JobInfo;
+import org.nema.medical.mint.studies.SearchResultStudy;
+import org.nema.medical.mint.studies.SearchResults;
+
+/**
+ * GPB encodings of search results, changelogs and job status, as the messages of mint-responses.proto generated
+ * into {@link org.nema.medical.mint.responses.ResponsesGPB}. Absent values are left out.
+ */
+final class GPBResponses {
+
+    private GPBResponses() {
+    }
+
+    static void write(final SearchResults results, final OutputStream out) throws IOException {
+        final SearchResultsData.Builder builder = SearchResultsData.newBuilder();
+        if (results.getStudyInstanceUID() != null) {
+            builder.setStudyInstanceUid(results.getStudyInstanceUID());
+        }
+        if (results.getAccessionNumber() != null) {
+            builder.setAccessionNumber(results.getAccessionNumber());
+        }
+        if (results.getIssuerOfAccessionNumber() != null) {
+            builder.setIssuerOfAccessionNumber(results.getIssuerOfAccessionNumber());
+        }
+        if (results.getPatientID() != null) {
+            builder.setPatientId(results.getPatientID());
+        }
+        if (results.getIssuerOfPatientID() != null) {
+            builder.setIssuerOfPatientId(results.getIssuerOfPatientID());
+        }
+        if (results.getMinStudyDate() != null) {
+            builder.setMinStudyDate(results.getMinStudyDate());
+        }
+        if (results.getMinStudyDateTime() != null) {
+            builder.setMinStudyDateTime(results.getMinStudyDateTime().getTime());
+        }
+        if (results.getMaxStudyDate() != null) {
+            builder.setMaxStudyDate(results.getMaxStudyDate());
+        }
+        if (results.getMaxStudyDateTime() != null) {
+            builder.setMaxStudyDateTime(results.getMaxStudyDateTime().getTime());
+        }
+        if (results.getTimeZone() != null) {
+            builder.setTimeZone(results.getTimeZone());
+        }
+        builder.setOffset(results.getOffset());
+        builder.setLimit(results.getLimit());
+        for (final Iterator<SearchResultStudy> i = results.resultsIterator(); i.hasNext();) {
+            final SearchResultStudy study = i.next();
+            final SearchResultStudyData.Builder studyBuilder = SearchResultStudyData.newBuilder();
+            if (study.getStudyInstanceUid() != null) {
+                studyBuilder.setStudyUuid(study.getStudyInstanceUid());
+            }
+            if (study.getLastModified() != null) {
+                studyBuilder.setLastModified(study.getLastModified().getTime());
+            }
+            studyBuilder.setVersion(study.getVersion());
+            builder.addStudies(studyBuilder);
+        }
+        builder.build().writeTo(out);
+    }
+
+    static void write(final ChangeSet changeSet, final OutputStream out) throws IOException {
+        final ChangeSetData.Builder builder = ChangeSetData.newBuilder();
+        if (changeSet.getStudyInstanceUid() != null) {
+            builder.setStudyUuid(changeSet.getStudyInstanceUid());
+        }
+        for (final Iterator<Change> i = changeSet.changeIterator(); i.hasNext();) {
+            final Change change = i.next();
+            final ChangeData.Builder changeBuilder = ChangeData.newBuilder();
+            if (change.getStudyInstanceUid() != null) {
+                changeBuilder.setStudyUuid(change.getStudyInstanceUid());
+            }
+            changeBuilder.setChangeNumber(change.getChangeNumber());
+            if (change.getType() != null) {
+                changeBuilder.setType(change.getType());
+            }
+            if (change.getDateTime() != null) {
+                changeBuilder.setDateTime(change.getDateTime().getTime());
+            }
+            if (change.getRemoteHost() != null) {
+                changeBuilder.setRemoteHost(change.getRemoteHost());
+            }
+            if (change.getRemoteUser() != null) {
+                changeBuilder.setRemoteUser(change.getRemoteUser());
+            }
+            if (change.getOperation() != null) {
+                changeBuilder.setOperation(change.getOperation().name());
+            }
+            builder.addChanges(changeBuilder);
+        }
+        builder.build().writeTo(out);
+    }
+
+    static void write(final JobInfo jobInfo, final OutputStream out) throws IOException {
+        final JobStatusData.Builder builder = JobStatusData.newBuilder();
+        if (jobInfo.getId() != null) {
+            builder.setJobId(jobInfo.getId());
+        }
+        if (jobInfo.getStudyID() != null) {
+            builder.setStudyUuid(jobInfo.getStudyID());
+        }
+        if (jobInfo.getStatus() != null) {
+            builder.setStatus(jobInfo.getStatus().name());
+        }
+        if (jobInfo.getCreateTime() != null) {
+            builder.setCreateTime(jobInfo.getCreateTime().getTime());
+        }
+        if (jobInfo.getUpdateTime() != null) {
+            builder.setUpdateTime(jobInfo.getUpdateTime().getTime());
+        }
+        if (jobInfo.getProgress() != null) {
+            builder.setProgress(jobInfo.getProgress());
+        }
+        if (jobInfo.getCurrentStage() != null) {
+            builder.setCurrentStage(jobInfo.getCurrentStage());
+        }
+        if (jobInfo.getStageTimings() != null) {
+            builder.setStageTimings(jobInfo.getStageTimings());
+        }
+        if (jobInfo.getStatusDescription() != null) {
+            builder.setStatusDescription(jobInfo.getStatusDescription());
+        }
+        builder.build().writeTo(out);
+    }
+}
@@ -22,15 +22,20 @@ import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.apache.commons.fileupload.util.Streams;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
-import org.jibx.runtime.BindingDirectory;
-import org.jibx.runtime.IBindingFactory;
-import org.jibx.runtime.IMarshallingContext;
 import org.jibx.runtime.JiBXException;
 import org.nema.medical.mint.datadictionary.MetadataType;
 import org.nema.medical.mint.jobs.HttpMessagePart;
+import org.nema.medical.mint.jobs.JobHeaders;
+import org.nema.medical.mint.server.cache.BinaryItemCache;
+import org.nema.medical.mint.server.cache.MetadataCache;
 import org.nema.medical.mint.server.domain.*;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.metrics.RequestTiming;
 import org.nema.medical.mint.server.processor.StudyCreateProcessor;
 import org.nema.medical.mint.server.processor.StudyUpdateProcessor;
+import org.nema.medical.mint.server.util.BufferPool;
+import org.nema.medical.mint.server.util.Marshalling;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -46,8 +51,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 public class JobsController {
@@ -56,7 +62,7 @@ public class JobsController {
 	private static final List<String> supportedMetadataExtensions = Arrays
 			.asList(".gpb", ".gpb.gz", ".xml", ".xml.gz");
 
-	private ExecutorService executor;
+	private ThreadPoolExecutor executor;
 
 	@Autowired
 	protected File jobTemp;
@@ -70,6 +76,21 @@ public class JobsController {
     @Autowired
     protected HashMap<String, MetadataType> availableTypes;
 
+    @Autowired
+    protected Boolean packedBinaryStorage;
+
+    @Autowired
+    protected BinaryItemCache binaryItemCache;
+
+    @Autowired
+    protected MetadataCache metadataCache;
+
+    @Autowired
+    protected Integer metadataSnapshotInterval;
+
+    @Autowired
+    protected Boolean admitNewStudiesToCache;
+
 	@Autowired
 	protected StudyDAO studyDAO = null;
 	@Autowired
@@ -79,11 +100,28 @@ public class JobsController {
 
 	@PostConstruct
 	public void setupExecutor() {
-		executor = Executors.newCachedThreadPool();
+		//Same configuration as Executors.newCachedThreadPool(), but typed so that its state can be monitored
+		executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>());
+		//Tasks are handed straight to a thread, never queued, so the thread counts are what there is to monitor
+		final MetricsRegistry metrics = MetricsRegistry.getInstance();
+		metrics.registerGauge("jobs.executor.activeThreads", new Gauge() {
+			public long getValue() {
+				return executor.getActiveCount();
+			}
+		});
+		metrics.registerGauge("jobs.executor.poolSize", new Gauge() {
+			public long getValue() {
+				return executor.getPoolSize();
+			}
+		});
 	}
 
 	@PreDestroy
 	public void stopExecutor() {
+		final MetricsRegistry metrics = MetricsRegistry.getInstance();
+		metrics.unregisterGauge("jobs.executor.activeThreads");
+		metrics.unregisterGauge("jobs.executor.poolSize");
 		executor.shutdown();
 	}
 
@@ -115,11 +153,14 @@ public class JobsController {
 			return;
 		}
 
+		final long uploadStart = RequestTiming.begin();
 		try {
 			handleUpload(req, jobFolder, files, params);
 		} catch (FileUploadException e) {
 			res.sendError(HttpServletResponse.SC_BAD_REQUEST, "unable to parse multipart form data");
 			return;
+		} finally {
+			RequestTiming.end(RequestTiming.STREAMING, uploadStart);
 		}
 
 		Iterator<File> iterator = files.iterator();
@@ -134,13 +175,18 @@ public class JobsController {
 		jobInfo.setStatus(JobStatus.IN_PROGRESS);
 		jobInfo.setStatusDescription("0% complete");
 		String jobURI = req.getContextPath() + "/jobs/status/" + jobInfo.getId();
+		final long dbStart = RequestTiming.begin();
 		jobInfoDAO.saveOrUpdateJobInfo(jobInfo);
+		RequestTiming.end(RequestTiming.DB, dbStart);
 
         final MetadataType dataDictionary = availableTypes.get("DICOM");
 
 		StudyCreateProcessor processor = new StudyCreateProcessor(jobFolder,
-				new File(studiesRoot, studyUUID), dataDictionary, req.getRemoteUser(),
+				new File(studiesRoot, studyUUID), dataDictionary, packedBinaryStorage, req.getRemoteUser(),
 				req.getRemoteHost(), jobInfoDAO, studyDAO, updateDAO);
+		if (admitNewStudiesToCache) {
+			processor.setAdmissionCache(binaryItemCache);
+		}
 		executor.execute(processor); // process immediately in the background
 
 		res.setStatus(HttpServletResponse.SC_SEE_OTHER);
@@ -174,11 +220,14 @@ public class JobsController {
 			return;
 		}
 
+		final long uploadStart = RequestTiming.begin();
 		try {
 			handleUpload(req, jobFolder, files, params);
 		} catch (FileUploadException e) {
 			res.sendError(HttpServletResponse.SC_BAD_REQUEST, "unable to parse multipart form data");
 			return;
+		} finally {
+			RequestTiming.end(RequestTiming.STREAMING, uploadStart);
 		}
 
 		if (files.size() < 1) {
@@ -212,12 +261,19 @@ public class JobsController {
 		jobInfo.setStatus(JobStatus.IN_PROGRESS);
 		jobInfo.setStatusDescription("0% complete");
 		String jobURI = req.getContextPath() + "/jobs/status/" + jobInfo.getId();
+		final long dbStart = RequestTiming.begin();
 		jobInfoDAO.saveOrUpdateJobInfo(jobInfo);
+		RequestTiming.end(RequestTiming.DB, dbStart);
 
 		File studyFolder = new File(studiesRoot, studyUUID);
 
 		final StudyUpdateProcessor processor = new StudyUpdateProcessor(jobFolder, studyFolder, availableTypes,
-                oldVersion, req.getRemoteUser(), req.getRemoteHost(), jobInfoDAO, studyDAO, updateDAO);
+                packedBinaryStorage, oldVersion, req.getRemoteUser(), req.getRemoteHost(), jobInfoDAO, studyDAO, updateDAO);
+		if (admitNewStudiesToCache) {
+			processor.setAdmissionCache(binaryItemCache);
+		}
+		processor.setMetadataCache(metadataCache);
+		processor.setSnapshotInterval(metadataSnapshotInterval);
 		executor.execute(processor); // process immediately in the background
 
 		res.setStatus(HttpServletResponse.SC_SEE_OTHER);
@@ -230,27 +286,47 @@ public class JobsController {
 			final HttpServletResponse res,
 			@PathVariable("uuid") final String uuid) throws IOException, JiBXException {
 
+		final ResponseFormat format;
+		try {
+			format = ResponseFormat.negotiate(req);
+		} catch (final IllegalArgumentException e) {
+			res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+
+		final long dbStart = RequestTiming.begin();
 		final JobInfo jobInfo = jobInfoDAO.findJobInfo(uuid);
+		RequestTiming.end(RequestTiming.DB, dbStart);
 
 		org.nema.medical.mint.jobs.JobStatus jobStatus = new org.nema.medical.mint.jobs.JobStatus(
 				jobInfo.getId(), jobInfo.getStudyID(), jobInfo.getStatus().toString(),
 				jobInfo.getCreateTime(), jobInfo.getUpdateTime());
 
-		IBindingFactory bfact = BindingDirectory.getFactory("jobStatus",org.nema.medical.mint.jobs.JobStatus.class);
-		IMarshallingContext mctx = bfact.createMarshallingContext();
-		mctx.setIndent(2);
-		mctx.startDocument("UTF-8", null, res.getOutputStream());
-		mctx.getXmlWriter().writePI("xml-stylesheet", xmlStylesheet);
-		mctx.marshalDocument(jobStatus);
-		mctx.endDocument();
+		if (jobInfo.getProgress() != null) {
+			res.setHeader(JobHeaders.PROGRESS, jobInfo.getProgress().toString());
+		}
+		if (jobInfo.getCurrentStage() != null) {
+			res.setHeader(JobHeaders.STAGE, jobInfo.getCurrentStage());
+		}
+		if (jobInfo.getStageTimings() != null) {
+			res.setHeader(JobHeaders.STAGE_TIMINGS, jobInfo.getStageTimings());
+		}
+
+		final long generationStart = RequestTiming.begin();
+		res.setContentType(format.getContentType());
+		if (format == ResponseFormat.GPB) {
+			GPBResponses.write(jobInfo, res.getOutputStream());
+		} else {
+			Marshalling.marshal(jobStatus, "jobStatus", org.nema.medical.mint.jobs.JobStatus.class,
+					res.getOutputStream(), format == ResponseFormat.COMPACT_XML, xmlStylesheet);
+		}
+		RequestTiming.end(RequestTiming.GENERATION, generationStart);
 
 	}
 
 	public void handleUpload(HttpServletRequest request, File jobFolder, List<File> files,
 			Map<String, String> params) throws IOException, FileUploadException {
 
-		byte buf[] = new byte[32 * 1024];
-
 		int fileCount = 0;
 		LOG.info("creating local files");
 
@@ -319,6 +395,7 @@ public class JobsController {
                 }
 				FileOutputStream out = null;
 				out = new FileOutputStream(file);
+				final byte[] buf = BufferPool.getInstance().acquire(32 * 1024);
 				try {
 					while (true) {
 						int len = in.read(buf);
@@ -327,6 +404,7 @@ public class JobsController {
 						out.write(buf, 0, len);
 					}
 				} finally {
+					BufferPool.getInstance().release(buf);
 					if (out != null) {
 						out.close();
 						files.add(file);
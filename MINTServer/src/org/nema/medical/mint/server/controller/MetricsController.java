@@ -0,0 +1,57 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+@Controller
+public class MetricsController {
+
+    /**
+     * Plain text by default; JSON for /admin/metrics.json or when the client asks for application/json.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/admin/metrics")
+    public void metrics(final HttpServletRequest req, final HttpServletResponse res) throws IOException {
+        final String extension = StringUtils.substringAfterLast(req.getRequestURI(), "/metrics");
+        final String accept = req.getHeader("Accept");
+        final boolean json = ".json".equals(extension)
+                || (StringUtils.isEmpty(extension) && accept != null && accept.contains("application/json"));
+        if (!json && StringUtils.isNotEmpty(extension) && !".txt".equals(extension)) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown metrics format.");
+            return;
+        }
+
+        res.setContentType(json ? "application/json" : "text/plain");
+        res.setCharacterEncoding("UTF-8");
+        res.setHeader("Cache-Control", "no-cache");
+        final PrintWriter out = res.getWriter();
+        if (json) {
+            MetricsRegistry.getInstance().writeJSON(out);
+        } else {
+            MetricsRegistry.getInstance().writeText(out);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a multipart/mixed body whose parts carry their own headers and Content-Length, for responses that bundle
+ * documents of many studies. Not thread-safe; one instance serves one response.
+ */
+final class MultipartOutput {
+
+    private final OutputStream out;
+    private final String boundary;
+
+    MultipartOutput(final OutputStream out, final String boundary) {
+        this.out = out;
+        this.boundary = boundary;
+    }
+
+    String getContentType() {
+        return "multipart/mixed; boundary=" + boundary;
+    }
+
+    /**
+     * Starts a part; its length bytes of content are then written to the output stream.
+     *
+     * @param headers additional header lines, such as "Content-ID: <...>"
+     */
+    void startPart(final String contentType, final long length, final String... headers) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("--").append(boundary).append("\r\n");
+        builder.append("Content-Type: ").append(contentType).append("\r\n");
+        for (final String header: headers) {
+            builder.append(header).append("\r\n");
+        }
+        builder.append("Content-Length: ").append(length).append("\r\n\r\n");
+        out.write(builder.toString().getBytes("US-ASCII"));
+    }
+
+    void endPart() throws IOException {
+        out.write(CRLF);
+    }
+
+    /**
+     * Writes a complete part with the given content.
+     */
+    void writePart(final String contentType, final byte[] content, final String... headers) throws IOException {
+        startPart(contentType, content.length, headers);
+        out.write(content);
+        endPart();
+    }
+
+    /**
+     * Writes a complete part with the remaining content of the buffer, copied through the given array.
+     */
+    void writePart(final String contentType, final ByteBuffer content, final byte[] copyBuffer,
+                   final String... headers) throws IOException {
+        startPart(contentType, content.remaining(), headers);
+        while (content.hasRemaining()) {
+            final int length = Math.min(copyBuffer.length, content.remaining());
+            content.get(copyBuffer, 0, length);
+            out.write(copyBuffer, 0, length);
+        }
+        endPart();
+    }
+
+    /**
+     * Writes the closing boundary and flushes the output stream.
+     */
+    void finish() throws IOException {
+        out.write(("--" + boundary + "--\r\n").getBytes("US-ASCII"));
+        out.flush();
+    }
+
+    private static final byte[] CRLF = {'\r', '\n'};
+}
@@ -0,0 +1,231 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.nema.medical.mint.server.cache.BinaryItemCache;
+import org.nema.medical.mint.server.metrics.Histogram;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.util.BinaryItemStore;
+import org.nema.medical.mint.server.util.BinaryItemStore.BinaryItem;
+import org.nema.medical.mint.server.util.BufferPool;
+
+/**
+ * Looks up and reads the next few binary items of a request on an I/O pool while the current one is written to
+ * the client, so that file opens and first reads overlap with transmission instead of adding up. Up to depth items
+ * are in flight, and at most maxItemBytes of each are held in memory; the rest of a larger item is read when it is
+ * written. Items that are in the binary item cache are taken from it instead; items that are not are not added to
+ * it, since a scan through a long list would only evict the items that are requested repeatedly.
+ * Not thread-safe; one instance serves one request.
+ */
+final class ReadAhead {
+
+    /**
+     * A binary item together with the first bytes of its content, or all of it if it is cached. Release it once it
+     * has been written.
+     */
+    static final class PrefetchedItem {
+        private final int bid;
+        private final BinaryItem item;
+        private final byte[] head;
+        private final int headLength;
+        private final BinaryItemCache.CachedItem cached;
+
+        PrefetchedItem(final int bid, final BinaryItem item, final byte[] head, final int headLength,
+                       final BinaryItemCache.CachedItem cached) {
+            this.bid = bid;
+            this.item = item;
+            this.head = head;
+            this.headLength = headLength;
+            this.cached = cached;
+        }
+
+        public int getBid() {
+            return bid;
+        }
+
+        /**
+         * @return the item, or null if it does not exist (or is excluded and excluded items were not asked for)
+         */
+        public BinaryItem getItem() {
+            return item;
+        }
+
+        public byte[] getHead() {
+            return head;
+        }
+
+        /**
+         * @return how many bytes at the start of the item are in the head array
+         */
+        public int getHeadLength() {
+            return headLength;
+        }
+
+        /**
+         * @return the whole content of the item from the binary item cache, or null if it is not cached
+         */
+        public ByteBuffer getCached() {
+            return cached != null ? cached.getContent() : null;
+        }
+
+        /**
+         * Returns the head to the buffer pool and unpins the cached content; neither may be used any more.
+         */
+        public void release() {
+            BufferPool.getInstance().release(head);
+            if (cached != null) {
+                cached.release();
+            }
+        }
+    }
+
+    private final ExecutorService executor;
+    private final BinaryItemStore store;
+    private final BinaryItemCache cache;
+    private final String cacheKeyPrefix;
+    private final Iterator<Integer> bids;
+    private final boolean includeExcluded;
+    private final int depth;
+    private final int maxItemBytes;
+    private final Queue<Future<PrefetchedItem>> pending = new ArrayDeque<Future<PrefetchedItem>>();
+
+    /**
+     * @param executor the I/O pool, or null to read each item only when it is asked for
+     * @param cache the binary item cache to take items from, or null to read all items from the store
+     * @param cacheKeyPrefix the binary item cache key prefix of the study type
+     * @param bids the ids of the items to read, in order
+     * @param depth how many items to read ahead
+     * @param maxItemBytes how much of each item to read ahead
+     */
+    ReadAhead(final ExecutorService executor, final BinaryItemStore store, final BinaryItemCache cache,
+              final String cacheKeyPrefix, final Iterator<Integer> bids, final boolean includeExcluded,
+              final int depth, final int maxItemBytes) {
+        this.executor = depth > 0 ? executor : null;
+        this.store = store;
+        this.cache = cache;
+        this.cacheKeyPrefix = cacheKeyPrefix;
+        this.bids = bids;
+        this.includeExcluded = includeExcluded;
+        this.depth = depth;
+        this.maxItemBytes = maxItemBytes;
+        fill();
+    }
+
+    public boolean hasNext() {
+        return !pending.isEmpty() || bids.hasNext();
+    }
+
+    /**
+     * @return the next item, waiting for it to be read if necessary
+     * @throws IOException if the item could not be looked up or read
+     */
+    public PrefetchedItem next() throws IOException {
+        if (executor == null) {
+            if (!bids.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int bid = bids.next();
+            final BinaryItem item = store.getItem(bid, includeExcluded);
+            final BinaryItemCache.CachedItem cached = item == null || cache == null ? null
+                    : cache.getIfPresent(cacheKeyPrefix + bid);
+            return new PrefetchedItem(bid, item, null, 0, cached);
+        }
+        final Future<PrefetchedItem> future = pending.poll();
+        if (future == null) {
+            throw new NoSuchElementException();
+        }
+        fill();
+        final long waitStart = System.nanoTime();
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading binary items ahead");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Unable to read binary item ahead: " + cause);
+        } finally {
+            WAIT.updateSince(waitStart);
+        }
+    }
+
+    /**
+     * Releases the items that were read ahead but not taken. Reads in progress are not interrupted, since that would
+     * close channels shared with the store; they finish in the background and their results are left to the garbage
+     * collector, buffers included.
+     */
+    public void close() {
+        for (final Future<PrefetchedItem> future: pending) {
+            if (!future.cancel(false)) {
+                try {
+                    future.get().release();
+                } catch (final Exception e) {
+                    // The read failed, so there is nothing to release
+                }
+            }
+        }
+        pending.clear();
+    }
+
+    private void fill() {
+        if (executor == null) {
+            return;
+        }
+        while (pending.size() < depth && bids.hasNext()) {
+            pending.add(executor.submit(new Reader(bids.next())));
+        }
+    }
+
+    private final class Reader implements Callable<PrefetchedItem> {
+        private final int bid;
+
+        Reader(final int bid) {
+            this.bid = bid;
+        }
+
+        public PrefetchedItem call() throws IOException {
+            final BinaryItem item = store.getItem(bid, includeExcluded);
+            if (item == null) {
+                return new PrefetchedItem(bid, null, null, 0, null);
+            }
+            final BinaryItemCache.CachedItem cached = cache == null ? null : cache.getIfPresent(cacheKeyPrefix + bid);
+            if (cached != null || maxItemBytes <= 0) {
+                return new PrefetchedItem(bid, item, null, 0, cached);
+            }
+            // The head goes back to the pool once the item has been streamed
+            final int length = (int) Math.min(item.getLength(), maxItemBytes);
+            final byte[] head = BufferPool.getInstance().acquire(length);
+            final int headLength = store.read(item, 0, head, 0, length);
+            return new PrefetchedItem(bid, item, head, headLength, null);
+        }
+    }
+
+    private static final Histogram WAIT = MetricsRegistry.getInstance().histogram("binaryitems.prefetch.wait");
+}
@@ -0,0 +1,69 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Formats of the server's generated documents (search results, changelogs, job status): readable XML with a
+ * stylesheet, as browsers get by default, compact XML for programs, or GPB as described by mint-responses.proto.
+ */
+enum ResponseFormat {
+    XML("text/xml"),
+    COMPACT_XML("text/xml"),
+    GPB("application/x-protobuf");
+
+    private final String contentType;
+
+    private ResponseFormat(final String contentType) {
+        this.contentType = contentType;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Chooses the format from the format parameter (xml, compact or gpb) or, without one, from the Accept header.
+     *
+     * @throws IllegalArgumentException if the format parameter has an unknown value
+     */
+    static ResponseFormat negotiate(final HttpServletRequest req) {
+        return negotiate(req.getParameter("format"), req.getHeader("Accept"));
+    }
+
+    static ResponseFormat negotiate(final String format, final String accept) {
+        if (format != null) {
+            if ("xml".equalsIgnoreCase(format)) {
+                return XML;
+            } else if ("compact".equalsIgnoreCase(format)) {
+                return COMPACT_XML;
+            } else if ("gpb".equalsIgnoreCase(format)) {
+                return GPB;
+            }
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        if (accept != null) {
+            for (final String element: accept.split(",")) {
+                final String mediaType = element.split(";")[0].trim().toLowerCase();
+                if (mediaType.equals("application/x-protobuf") || mediaType.equals("application/vnd.google.protobuf")) {
+                    return GPB;
+                }
+            }
+        }
+        return XML;
+    }
+}
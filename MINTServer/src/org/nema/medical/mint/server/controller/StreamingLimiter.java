@@ -0,0 +1,157 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.nema.medical.mint.server.metrics.Counter;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+
+/**
+ * Limits how many responses are streamed through container threads at once and cuts off clients that cannot
+ * keep up, so that a few slow clients cannot tie up the whole container thread pool. Responses handed to the
+ * container with sendfile do not hold a thread and need no slot.
+ */
+final class StreamingLimiter {
+
+    private static final String SLOT_ATTRIBUTE = StreamingLimiter.class.getName() + ".slot";
+
+    private final Semaphore slots;
+    private final int maxStreams;
+    private final long queueTimeoutMS;
+    private final long writeTimeoutNanos;
+    private final long minBytesPerSecond;
+
+    /**
+     * @param maxStreams the number of responses that may be streamed at once, 0 for no limit
+     * @param queueTimeoutMS how long a request waits for a free slot
+     * @param writeTimeoutMS the longest a single write may take, and how long writes may block in total before the
+     * minimum rate is enforced; 0 to never cut clients off
+     * @param minBytesPerSecond the lowest rate a client may receive at while writes to it block, 0 for no minimum
+     */
+    StreamingLimiter(final int maxStreams, final long queueTimeoutMS, final long writeTimeoutMS,
+                     final long minBytesPerSecond) {
+        this.slots = maxStreams > 0 ? new Semaphore(maxStreams, true) : null;
+        this.maxStreams = maxStreams;
+        this.queueTimeoutMS = queueTimeoutMS;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMS);
+        this.minBytesPerSecond = minBytesPerSecond;
+    }
+
+    /**
+     * Takes a streaming slot for the request, waiting up to the queue timeout for one to become free. Does nothing
+     * if the request already holds a slot.
+     *
+     * @return false if no slot became free, in which case the caller should answer 503
+     */
+    boolean acquire(final HttpServletRequest req) {
+        if (slots == null || req.getAttribute(SLOT_ATTRIBUTE) != null) {
+            return true;
+        }
+        try {
+            if (!slots.tryAcquire(queueTimeoutMS, TimeUnit.MILLISECONDS)) {
+                REJECTED.inc();
+                return false;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        req.setAttribute(SLOT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Frees the request's slot, if it holds one.
+     */
+    void release(final HttpServletRequest req) {
+        if (req.getAttribute(SLOT_ATTRIBUTE) != null) {
+            req.removeAttribute(SLOT_ATTRIBUTE);
+            slots.release();
+        }
+    }
+
+    /**
+     * @return the number of responses currently being streamed, if limited
+     */
+    int getActiveStreams() {
+        return slots == null ? 0 : maxStreams - slots.availablePermits();
+    }
+
+    /**
+     * The limits are checked after each write or flush returns: a write that takes too long fails once it completes,
+     * and a write that never completes is left to the container's socket write timeout, which the servlet API gives
+     * no way to set per response. The rate is measured over the time spent blocked in writes and flushes only, so
+     * time the server spends reading items or waiting on the database does not count against the client.
+     *
+     * @return the output stream wrapped so that writing to a client that is too slow fails with an IOException,
+     * which ends the response
+     */
+    OutputStream guard(final OutputStream out) {
+        if (writeTimeoutNanos <= 0) {
+            return out;
+        }
+        return new FilterOutputStream(out) {
+            private long blockedNanos = 0;
+            private long total = 0;
+
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                final long writeStart = System.nanoTime();
+                out.write(b, off, len);
+                total += len;
+                check(System.nanoTime() - writeStart);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                final long flushStart = System.nanoTime();
+                out.flush();
+                check(System.nanoTime() - flushStart);
+            }
+
+            private void check(final long writeNanos) throws IOException {
+                blockedNanos += writeNanos;
+                if (writeNanos > writeTimeoutNanos) {
+                    SLOW_CLIENTS.inc();
+                    throw new IOException("Client did not accept data for "
+                            + TimeUnit.NANOSECONDS.toMillis(writeNanos) + " ms, giving up");
+                }
+                if (minBytesPerSecond > 0 && blockedNanos > writeTimeoutNanos
+                        && total * 1e9 / blockedNanos < minBytesPerSecond) {
+                    SLOW_CLIENTS.inc();
+                    throw new IOException("Client received " + total + " bytes in "
+                            + TimeUnit.NANOSECONDS.toMillis(blockedNanos) + " ms of blocked writes, below the minimum"
+                            + " rate, giving up");
+                }
+            }
+        };
+    }
+
+    private static final Counter REJECTED = MetricsRegistry.getInstance().counter("binaryitems.streams.rejected");
+    private static final Counter SLOW_CLIENTS = MetricsRegistry.getInstance().counter("binaryitems.streams.slowClients");
+}
@@ -16,12 +16,11 @@
 package org.nema.medical.mint.server.controller;
 
 import org.apache.commons.lang.StringUtils;
-import org.jibx.runtime.BindingDirectory;
-import org.jibx.runtime.IBindingFactory;
-import org.jibx.runtime.IMarshallingContext;
 import org.jibx.runtime.JiBXException;
 import org.nema.medical.mint.server.domain.MINTStudy;
 import org.nema.medical.mint.server.domain.StudyDAO;
+import org.nema.medical.mint.server.metrics.RequestTiming;
+import org.nema.medical.mint.server.util.Marshalling;
 import org.nema.medical.mint.studies.SearchResultStudy;
 import org.nema.medical.mint.studies.SearchResults;
 import org.nema.medical.mint.utils.DateTimeParseException;
@@ -32,6 +31,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
@@ -53,7 +53,7 @@ public class StudiesController {
 	protected StudyDAO studyDAO = null;
 
     @RequestMapping("/studies")
-    public void studies(final HttpServletResponse res,
+    public void studies(final HttpServletRequest req, final HttpServletResponse res,
     		@RequestParam(value = "studyInstanceUID", required = false) final String studyInstanceUID,
     		@RequestParam(value = "accessionNumber", required = false) final String accessionNumber,
     		@RequestParam(value = "accessionNumberIssuer", required = false) final String accessionNumberIssuer,
@@ -77,6 +77,14 @@ public class StudiesController {
 
         // TODO return error if request parameter not supported is provided
 
+        final ResponseFormat format;
+        try {
+            format = ResponseFormat.negotiate(req);
+        } catch (final IllegalArgumentException e) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
     	try {
         	final Date dateTimeFrom;
         	final Date dateTimeTo;
@@ -103,9 +111,11 @@ public class StudiesController {
             } else {
                 dateTimeTo = null;
             }
+            final long dbStart = RequestTiming.begin();
 	        final List<MINTStudy> studies = studyDAO.findStudies(studyInstanceUID, accessionNumber,
                     accessionNumberIssuer, patientID, patientIDIssuer, dateTimeFrom, dateFrom, dateTimeTo, dateTo,
                     limit, offset);
+            RequestTiming.end(RequestTiming.DB, dbStart);
 
         	final SearchResults searchResults = new SearchResults(studyInstanceUID, accessionNumber,
                     accessionNumberIssuer, patientID, patientIDIssuer, minStudyDate,
@@ -124,13 +134,15 @@ public class StudiesController {
                         foundStudy.getID(), lastUpdated, foundStudy.getStudyVersion());
         		searchResults.addStudy(studySearchResult);
         	}
-    		final IBindingFactory bfact = BindingDirectory.getFactory("studySearchResults", SearchResults.class);
-    		final IMarshallingContext mctx = bfact.createMarshallingContext();
-    		mctx.setIndent(2);
-    		mctx.startDocument("UTF-8", null, res.getOutputStream());
-    		mctx.getXmlWriter().writePI("xml-stylesheet", xmlStylesheet);
-    		mctx.marshalDocument(searchResults);
-    		mctx.endDocument();
+            final long generationStart = RequestTiming.begin();
+            res.setContentType(format.getContentType());
+            if (format == ResponseFormat.GPB) {
+                GPBResponses.write(searchResults, res.getOutputStream());
+            } else {
+                Marshalling.marshal(searchResults, "studySearchResults", SearchResults.class, res.getOutputStream(),
+                        format == ResponseFormat.COMPACT_XML, xmlStylesheet);
+            }
+            RequestTiming.end(RequestTiming.GENERATION, generationStart);
         } catch (final DateTimeParseException e) {
         	res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
         }
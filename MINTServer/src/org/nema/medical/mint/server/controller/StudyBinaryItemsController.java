@@ -16,28 +16,49 @@
 package org.nema.medical.mint.server.controller;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.server.cache.BinaryItemCache;
 import org.nema.medical.mint.server.domain.MINTStudy;
 import org.nema.medical.mint.server.domain.StudyDAO;
-import org.nema.medical.mint.server.util.StorageUtil;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.Meter;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.metrics.RequestTiming;
+import org.nema.medical.mint.server.util.BinaryItemStore;
+import org.nema.medical.mint.server.util.BinaryItemStore.BinaryItem;
+import org.nema.medical.mint.server.util.BufferPool;
+import org.nema.medical.mint.server.util.EncapsulatedItemIndex;
+import org.nema.medical.mint.server.util.SeriesMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 
 @Controller
 public class StudyBinaryItemsController {
@@ -54,6 +75,101 @@ public class StudyBinaryItemsController {
     @Autowired
     protected StudyDAO studyDAO;
 
+    @Autowired
+    protected Boolean useSendfile;
+
+    @Autowired
+    protected Integer binaryItemRequestLimit;
+
+    @Autowired
+    protected String binaryItemCacheControl;
+
+    @Autowired
+    protected Integer binaryItemMaxStreams;
+
+    @Autowired
+    protected Integer binaryItemStreamQueueTimeoutMS;
+
+    @Autowired
+    protected Integer binaryItemWriteTimeoutMS;
+
+    @Autowired
+    protected Integer binaryItemMinBytesPerSecond;
+
+    @Autowired
+    protected Integer binaryItemPrefetchDepth;
+
+    @Autowired
+    protected Integer binaryItemPrefetchMaxItemKB;
+
+    @Autowired
+    protected Integer binaryItemPrefetchThreads;
+
+    @Autowired
+    protected Integer binaryItemBulkMaxStudies;
+
+    @Autowired
+    protected BinaryItemCache binaryItemCache;
+
+    @Autowired
+    protected Boolean binaryItemCompression;
+
+    @Autowired
+    protected Integer binaryItemCompressionLevel;
+
+    @Autowired
+    protected Integer binaryItemCompressionMinBytes;
+
+    @Autowired
+    protected Boolean cacheCompressedBinaryItems;
+
+    private StreamingLimiter streamingLimiter;
+    private ThreadPoolExecutor prefetchExecutor;
+
+    // Keyed by study type
+    private final Map<String, EncapsulatedItemIndex> encapsulatedItemIndexes = Collections.synchronizedMap(
+            new EncapsulatedItemIndexes());
+
+    @PostConstruct
+    public void setupStreaming() {
+        streamingLimiter = new StreamingLimiter(binaryItemMaxStreams, binaryItemStreamQueueTimeoutMS,
+                binaryItemWriteTimeoutMS, binaryItemMinBytesPerSecond);
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.registerGauge("binaryitems.streams.active", new Gauge() {
+            public long getValue() {
+                return streamingLimiter.getActiveStreams();
+            }
+        });
+
+        if (binaryItemPrefetchDepth > 0 && binaryItemPrefetchThreads > 0) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            prefetchExecutor = new ThreadPoolExecutor(binaryItemPrefetchThreads, binaryItemPrefetchThreads,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "binaryitem-prefetch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            prefetchExecutor.allowCoreThreadTimeOut(true);
+            metrics.registerGauge("binaryitems.prefetch.queueDepth", new Gauge() {
+                public long getValue() {
+                    return prefetchExecutor.getQueue().size();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stopStreaming() {
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.unregisterGauge("binaryitems.streams.active");
+        if (prefetchExecutor != null) {
+            metrics.unregisterGauge("binaryitems.prefetch.queueDepth");
+            prefetchExecutor.shutdownNow();
+        }
+    }
+
 	@RequestMapping("/studies/{uuid}/{type}/binaryitems/{seq}")
     public void studiesBinaryItems(final HttpServletResponse res, HttpServletRequest req,
                                    @PathVariable("uuid") final String uuid,
@@ -66,230 +182,741 @@ public class StudyBinaryItemsController {
             return;
         }
 
-        final File studyRoot = new File(studiesRoot, uuid);
+        streamItems(res, req, uuid, type, seq, true);
+    }
+
+    /**
+     * All binary items of a series, found through the binary item index of the per-series metadata.
+     */
+    @RequestMapping("/studies/{uuid}/{type}/series/{seriesInstanceUID}/binaryitems")
+    public void seriesBinaryItems(final HttpServletResponse res, final HttpServletRequest req,
+                                  @PathVariable("uuid") final String uuid,
+                                  @PathVariable("type") final String type,
+                                  @PathVariable("seriesInstanceUID") final String seriesInstanceUID
+    ) throws IOException {
+        streamIndexedItems(res, req, uuid, type, seriesInstanceUID, null);
+    }
+
+    /**
+     * All binary items of an instance, including those of the series' normalized instance attributes.
+     */
+    @RequestMapping("/studies/{uuid}/{type}/series/{seriesInstanceUID}/instances/{sopInstanceUID}/binaryitems")
+    public void instanceBinaryItems(final HttpServletResponse res, final HttpServletRequest req,
+                                    @PathVariable("uuid") final String uuid,
+                                    @PathVariable("type") final String type,
+                                    @PathVariable("seriesInstanceUID") final String seriesInstanceUID,
+                                    @PathVariable("sopInstanceUID") final String sopInstanceUID
+    ) throws IOException {
+        streamIndexedItems(res, req, uuid, type, seriesInstanceUID, sopInstanceUID);
+    }
 
-        final Iterator<Integer> itemList;
+    /**
+     * Binary items of many studies in one long-lived response, for research and AI pipelines that would otherwise
+     * send a request per study. The request body is a text manifest, see {@link BulkManifest}.
+     * <p>
+     * The response is multipart/mixed with one part per binary item, identified by a Content-ID of &lt;bid@uuid&gt;
+     * and X-MINT-Type. Study types are sent in manifest order; within a study type, items are sent in ascending id
+     * order. In the packed layout that is the order they were appended to their containers, so each container is
+     * read front to back; in the per-file layout every item is a file of its own. Each part has an X-MINT-Status
+     * and an X-MINT-Cursor: posting the same manifest with the cursor of the last part received as cursor= resumes
+     * the transfer after that part. A study type that a binary items request could not be served for gets one text part
+     * with that request's error status instead, and so does each explicitly requested item that does not exist.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/studies/binaryitems")
+    public void bulkBinaryItems(final HttpServletRequest req, final HttpServletResponse res) throws IOException {
+        // The manifest is read before any parameter, which could otherwise consume a form-encoded body
+        final List<BulkManifest.Entry> entries;
+        final BulkManifest.Cursor cursor;
+        final long validationStart = RequestTiming.begin();
         try {
-        	itemList = parseItemList(seq, type, studyRoot);
-        } catch (final NumberFormatException e) {
-        	res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid binary item requested: NaN");
+            entries = BulkManifest.parse(req.getReader(), binaryItemBulkMaxStudies);
+            cursor = BulkManifest.Cursor.parse(req.getParameter("cursor"));
+        } catch (final IllegalArgumentException e) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } finally {
+            RequestTiming.end(RequestTiming.VALIDATION, validationStart);
+        }
+        if (entries.isEmpty()) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Empty manifest");
             return;
         }
 
-        if (!itemList.hasNext()) {
-        	res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
-                    "Unable to retrieve binary items. See server log for details.");
-            LOG.error("Unable to locate binary items: " + seq + " or there are no binary items.");
+        final Set<String> uuids = new HashSet<String>();
+        for (final BulkManifest.Entry entry: entries.subList(Math.min(cursor.getEntry(), entries.size()),
+                entries.size())) {
+            uuids.add(entry.getUuid());
+        }
+        final Map<String, Utils.StudyStatus> statuses = Utils.validateStudyStatuses(studiesRoot, uuids, studyDAO);
+
+        final OutputStream out = openStream(req, res);
+        if (out == null) {
             return;
         }
-        
-        LOG.debug("output buffer size was " + res.getBufferSize());
-        res.setBufferSize(binaryItemResponseBufferSize);
-        LOG.debug("output buffer size is now " + res.getBufferSize());
-        final OutputStream out = res.getOutputStream();
-        
-        int i = itemList.next();
-
-        File file = new File(studyRoot + "/" + type + "/binaryitems/" + i + "."
-                + StorageUtil.BINARY_FILE_EXTENSION);
-        if (!file.exists() || !file.canRead()) {
-        	final File newFile =
-                    new File(studyRoot + "/" + type + "/binaryitems/" + i + "."
-                            + StorageUtil.EXCLUDED_BINARY_FILE_EXTENSION);
-            if (newFile.exists() && newFile.canRead()) {
-                file = newFile;
+        final byte[] buffer = BufferPool.getInstance().acquire(binaryItemStreamBufferSize);
+        try {
+            final MultipartOutput multipart = new MultipartOutput(out, BULK_BOUNDARY);
+            res.setContentType(multipart.getContentType());
+            for (int i = cursor.getEntry(); i < entries.size(); ++i) {
+                final BulkManifest.Entry entry = entries.get(i);
+                streamBulkEntry(multipart, out, i, entry, i == cursor.getEntry() ? cursor.getBid() : 0,
+                        statuses.get(entry.getUuid()), buffer);
+                BULK_STUDIES.mark();
+            }
+            multipart.finish();
+        } finally {
+            BufferPool.getInstance().release(buffer);
+            streamingLimiter.release(req);
+        }
+    }
+
+    private void streamBulkEntry(final MultipartOutput multipart, final OutputStream out, final int index,
+                                 final BulkManifest.Entry entry, final int firstBid,
+                                 final Utils.StudyStatus studyStatus, final byte[] buffer) throws IOException {
+        final String uuid = entry.getUuid();
+        final String type = entry.getType();
+        final String entryID = "Content-ID: <" + type + "@" + uuid + ">";
+        final String typeHeader = "X-MINT-Type: " + type;
+        final String nextEntry = "X-MINT-Cursor: " + new BulkManifest.Cursor(index + 1, 0);
+        if (studyStatus == Utils.StudyStatus.INVALID_ID || !Utils.isPathElement(type)) {
+            writeBulkError(multipart, HttpServletResponse.SC_BAD_REQUEST, "Invalid study requested",
+                    entryID, typeHeader, nextEntry);
+            return;
+        }
+        if (studyStatus == Utils.StudyStatus.DELETED) {
+            writeBulkError(multipart, HttpServletResponse.SC_GONE, "Invalid study requested: deleted",
+                    entryID, typeHeader, nextEntry);
+            return;
+        }
+        final File typeDir = new File(new File(studiesRoot, uuid), type);
+        if (studyStatus != Utils.StudyStatus.OK || !typeDir.isDirectory()) {
+            writeBulkError(multipart, HttpServletResponse.SC_NOT_FOUND, "Invalid study requested: Not found",
+                    entryID, typeHeader, nextEntry);
+            return;
+        }
+
+        final BinaryItemStore store = BinaryItemStore.open(new File(typeDir, "binaryitems"));
+        try {
+            final boolean all = entry.getSeq().equals("all");
+            final int highestId = store.getHighestId();
+            final BinaryItemSequence itemList;
+            if (all) {
+                itemList = BinaryItemSequence.all(highestId);
             } else {
-                res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
-                        "Unable to retrieve requested binary items. See server error log.");
-                LOG.error("BinaryItemsFile " + file + " does not exist");
+                try {
+                    itemList = BinaryItemSequence.parse(entry.getSeq());
+                } catch (final IllegalArgumentException e) {
+                    writeBulkError(multipart, HttpServletResponse.SC_BAD_REQUEST,
+                            "Invalid binary item requested: " + entry.getSeq(), entryID, typeHeader, nextEntry);
+                    return;
+                }
+                if (itemList.getHighestId() > highestId) {
+                    writeBulkError(multipart, HttpServletResponse.SC_NOT_FOUND, "Invalid binary item requested: "
+                            + itemList.getHighestId() + " does not exist", entryID, typeHeader, nextEntry);
+                    return;
+                }
+            }
+            if (binaryItemRequestLimit > 0 && itemList.size() > binaryItemRequestLimit) {
+                writeBulkError(multipart, HttpServletResponse.SC_BAD_REQUEST, "Too many binary items requested: "
+                        + itemList.size() + ", the maximum is " + binaryItemRequestLimit,
+                        entryID, typeHeader, nextEntry);
+                return;
+            }
+            itemList.skipTo(firstBid);
+
+            // Bulk transfers would flush the hot items out of the cache, so they are read from the store only
+            final ReadAhead readAhead = new ReadAhead(prefetchExecutor, store, null, null, itemList, !all,
+                    binaryItemPrefetchDepth, binaryItemPrefetchMaxItemKB * 1024);
+            try {
+                while (readAhead.hasNext()) {
+                    final ReadAhead.PrefetchedItem prefetched = readAhead.next();
+                    final int bid = prefetched.getBid();
+                    final String itemID = "Content-ID: <" + bid + "@" + uuid + ">";
+                    final String next = "X-MINT-Cursor: " + new BulkManifest.Cursor(index, bid + 1);
+                    final BinaryItem item = prefetched.getItem();
+                    if (item == null) {
+                        if (!all) {
+                            writeBulkError(multipart, HttpServletResponse.SC_NOT_FOUND,
+                                    "Invalid binary item requested: " + bid + " does not exist",
+                                    itemID, typeHeader, next);
+                        }
+                        continue;
+                    }
+                    multipart.startPart("application/octet-stream", item.getLength(), itemID, typeHeader,
+                            "X-MINT-Status: " + HttpServletResponse.SC_OK, next);
+                    try {
+                        streamBinaryItem(store, prefetched, out, buffer);
+                    } finally {
+                        prefetched.release();
+                    }
+                    multipart.endPart();
+                }
+            } finally {
+                readAhead.close();
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    private static void writeBulkError(final MultipartOutput multipart, final int status, final String reason,
+                                       final String... headers) throws IOException {
+        final String[] partHeaders = Arrays.copyOf(headers, headers.length + 1);
+        partHeaders[headers.length] = "X-MINT-Status: " + status;
+        multipart.writePart("text/plain", reason.getBytes("UTF-8"), partHeaders);
+    }
+
+    private void streamIndexedItems(final HttpServletResponse res, final HttpServletRequest req, final String uuid,
+                                    final String type, final String seriesInstanceUID, final String sopInstanceUID)
+            throws IOException {
+        final Utils.StudyStatus studyStatus = Utils.validateStudyStatus(studiesRoot, uuid, res, studyDAO);
+        if (studyStatus != Utils.StudyStatus.OK) {
+            return;
+        }
+
+        final File typeDir = new File(new File(studiesRoot, uuid), type);
+        if (!typeDir.isDirectory()) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid study requested: Not found");
+            return;
+        }
+        final String seq;
+        final long validationStart = RequestTiming.begin();
+        try {
+            SeriesMetadata.ensureWritten(typeDir);
+            final File seriesDir = SeriesMetadata.getSeriesFolder(typeDir, seriesInstanceUID);
+            if (seriesDir == null || !seriesDir.isDirectory()) {
+                res.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid series requested: Not found");
                 return;
             }
+            seq = SeriesMetadata.findBinaryItems(seriesDir, sopInstanceUID);
+        } finally {
+            RequestTiming.end(RequestTiming.VALIDATION, validationStart);
+        }
+        if (seq == null) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid instance requested: Not found");
+            return;
+        }
+        if (seq.length() == 0) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND, "No binary items found");
+            return;
         }
 
+        // The items of a series or instance change as the study is updated, so they are never cached as immutable
+        streamItems(res, req, uuid, type, seq, false);
+    }
+
+    /**
+     * @param explicit seq was named by the client rather than looked up, so a single bid identifies content that
+     * never changes
+     */
+    private void streamItems(final HttpServletResponse res, final HttpServletRequest req, final String uuid,
+                             final String type, final String seq, final boolean explicit) throws IOException {
+        final File studyRoot = new File(studiesRoot, uuid);
+
+        final File binaryRoot = new File(studyRoot, type + "/binaryitems");
+        final BinaryItemStore store = BinaryItemStore.open(binaryRoot);
+        try {
+            streamItems(res, req, uuid, type, seq, explicit, binaryRoot, store);
+        } finally {
+            streamingLimiter.release(req);
+            store.close();
+        }
+    }
+
+    private void streamItems(final HttpServletResponse res, final HttpServletRequest req, final String uuid,
+                             final String type, final String seq, final boolean explicit, final File binaryRoot,
+                             final BinaryItemStore store) throws IOException {
+        // Unlike explicitly requested items, excluded items are not part of "all"
+        final boolean all = seq.equals("all");
+        final BinaryItemSequence itemList;
+        final long validationStart = RequestTiming.begin();
+        try {
+            if (all) {
+                itemList = BinaryItemSequence.all(store.getHighestId());
+            } else {
+                try {
+                    itemList = BinaryItemSequence.parse(seq);
+                } catch (final IllegalArgumentException e) {
+                    res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid binary item requested: " + seq);
+                    return;
+                }
+                // A single item is looked up directly below
+                if (itemList.size() > 1 && itemList.getHighestId() > store.getHighestId()) {
+                    res.sendError(HttpServletResponse.SC_NOT_FOUND,
+                            "Invalid binary item requested: " + itemList.getHighestId() + " does not exist");
+                    return;
+                }
+            }
+            if (binaryItemRequestLimit > 0 && itemList.size() > binaryItemRequestLimit) {
+                res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Too many binary items requested: "
+                        + itemList.size() + ", the maximum is " + binaryItemRequestLimit);
+                return;
+            }
+        } finally {
+            RequestTiming.end(RequestTiming.VALIDATION, validationStart);
+        }
+
+        int i = -1;
+        BinaryItem item = null;
+        while (itemList.hasNext()) {
+            i = itemList.next();
+            item = store.getItem(i, !all);
+            if (item != null || !all) {
+                break;
+            }
+        }
+        if (item == null && !all && !itemList.hasNext()) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid binary item requested: " + i
+                    + " does not exist");
+            return;
+        }
+        if (item == null) {
+            res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Unable to retrieve requested binary items. See server error log.");
+            LOG.error("Unable to locate binary items: " + seq + " or there are no binary items.");
+            return;
+        }
 
-        // write the appropriate header
         final boolean multipart = itemList.hasNext();
+        final String cacheKeyPrefix = BinaryItemCache.keyPrefix(uuid, type);
+        final String coding = binaryItemCompression
+                ? ContentCoding.negotiate(req.getHeader("Accept-Encoding")) : null;
+        if (binaryItemCompression) {
+            // Caches must not hand an encoded response to a client that did not ask for it
+            res.setHeader("Vary", "Accept-Encoding");
+        }
+        if (!multipart) {
+            // Ranges are always of the stored bytes, so a Range request is never encoded
+            final boolean encode = coding != null && req.getHeader("Range") == null
+                    && item.getLength() >= binaryItemCompressionMinBytes
+                    && !getEncapsulatedItems(cacheKeyPrefix, binaryRoot, store, i).isEncapsulated(i);
+            // A stored binary item never changes, so its id and size identify its content
+            final String etag = encode ? ConditionalRequest.etag(uuid, i, item.getLength(), coding)
+                    : ConditionalRequest.etag(uuid, i, item.getLength());
+            final long lastModified = item.getFile().lastModified();
+            // Only a request naming one bid always answers with that item; what "all" or a range resolves to
+            // changes as items are added or excluded, so those responses get no validators or long-lived caching
+            final boolean singleItem = explicit && !all && StringUtils.isNumeric(seq);
+            if (singleItem
+                    && ConditionalRequest.checkNotModified(req, res, etag, lastModified, binaryItemCacheControl)) {
+                return;
+            }
+            if (encode) {
+                streamEncodedItem(req, res, binaryRoot, store, cacheKeyPrefix + i, i, item, coding);
+                return;
+            }
+            res.setHeader("Accept-Ranges", "bytes");
+            final List<ByteRange> ranges = "GET".equals(req.getMethod())
+                    && ConditionalRequest.ifRangeMatches(req, etag, lastModified)
+                    ? ByteRange.parse(req.getHeader("Range"), item.getLength()) : null;
+            if (ranges != null) {
+                streamRanges(req, res, store, item, ranges);
+                return;
+            }
+        }
+        // Hits are served from memory; a single item that is not cached is better sent from disk with sendfile
+        final BinaryItemCache.CachedItem cached = binaryItemCache.getIfPresent(cacheKeyPrefix + i);
+        if (!multipart && cached == null && useSendfile) {
+            res.setContentType("application/octet-stream");
+            if (Utils.sendFile(req, res, item.getFile(), item.getOffset(), item.getLength())) {
+                BYTES_STREAMED.mark(item.getLength());
+                ITEMS_STREAMED.mark();
+                return;
+            }
+        }
+
+        final OutputStream responseStream = openStream(req, res);
+        if (responseStream == null) {
+            if (cached != null) {
+                cached.release();
+            }
+            return;
+        }
+        final OutputStream out;
+        final ContentCoding.Encoder encoder;
+        final EncapsulatedItemIndex encapsulatedItems;
+        if (multipart && coding != null) {
+            res.setHeader("Content-Encoding", coding);
+            encapsulatedItems = getEncapsulatedItems(cacheKeyPrefix, binaryRoot, store, itemList.getHighestId());
+            encoder = ContentCoding.encoder(responseStream, coding, binaryItemCompressionLevel,
+                    binaryItemStreamBufferSize);
+            out = encoder;
+            RESPONSES_ENCODED.mark();
+        } else {
+            encapsulatedItems = null;
+            encoder = null;
+            out = responseStream;
+        }
+        final byte[] buffer = BufferPool.getInstance().acquire(binaryItemStreamBufferSize);
+        try {
+            streamItemList(res, uuid, all, multipart, store, cacheKeyPrefix, itemList, i, item, cached, out, encoder,
+                    encapsulatedItems, buffer);
+        } finally {
+            BufferPool.getInstance().release(buffer);
+            if (encoder != null) {
+                encoder.release();
+            }
+        }
+    }
+
+    private void streamItemList(final HttpServletResponse res, final String uuid, final boolean all,
+                                final boolean multipart, final BinaryItemStore store, final String cacheKeyPrefix,
+                                final BinaryItemSequence itemList, int i, BinaryItem item,
+                                BinaryItemCache.CachedItem cached,
+                                final OutputStream out, final ContentCoding.Encoder encoder,
+                                final EncapsulatedItemIndex encapsulatedItems, final byte[] buffer)
+            throws IOException {
+        // write the appropriate header
         if (multipart) {
         	res.setContentType("multipart/x-mixed-replace; boundary=\"" + MP_BOUNDARY + "\"");
             out.write(("--" + MP_BOUNDARY).getBytes());
             
-            final long itemsize = file.length();
+            final long itemsize = item.getLength();
             String index = Integer.toString(i);
             out.write("\nContent-Type: application/octet-stream\n".getBytes());
             out.write(("Content-ID: <" + index + "@" + uuid + ">\n").getBytes());
             out.write(("Content-Length: " + itemsize + "\n\n").getBytes());
         } else {
         	res.setContentType("application/octet-stream");
-        	res.setContentLength((int) file.length());
+        	// setContentLength takes an int, which items of 2 GB and more overflow
+        	res.setHeader("Content-Length", Long.toString(item.getLength()));
         }
         
         out.flush();
-        streamBinaryItem(file, out, binaryItemStreamBufferSize);
+        // Only single items are loaded into the cache; the items of a list are served from it when they are there,
+        // but loading them all would allocate for each miss and flush the probation segment
+        if (cached == null && !multipart) {
+            cached = binaryItemCache.load(cacheKeyPrefix + i, store, item);
+        }
+        setEncoderLevel(encoder, encapsulatedItems, i);
+        final ReadAhead.PrefetchedItem first = new ReadAhead.PrefetchedItem(i, item, null, 0, cached);
+        try {
+            streamBinaryItem(store, first, out, buffer);
+        } finally {
+            first.release();
+        }
         
         if(multipart)
         {
         	out.write(("\n--" + MP_BOUNDARY).getBytes());
         }
 
-        for (;itemList.hasNext();) {
-        	i = itemList.next();
-        	
-        	file = new File(studyRoot + "/" + type + "/binaryitems/" + i + "." + StorageUtil.BINARY_FILE_EXTENSION);
-            if (!file.exists() || !file.canRead()) {
-            	final File newFile =
-                        new File(studyRoot + "/" + type + "/binaryitems/" + i + "."
-                                + StorageUtil.EXCLUDED_BINARY_FILE_EXTENSION);
-                if (newFile.exists() && newFile.canRead()) {
-                    file = newFile;
-                } else {
-                    res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
-                            "Unable to retrieve requested binary items. See server error log.");
-                    LOG.error("BinaryItemsFile " + file + " does not exist");
-                    return;
+        final ReadAhead readAhead = new ReadAhead(prefetchExecutor, store, binaryItemCache, cacheKeyPrefix, itemList,
+                !all, binaryItemPrefetchDepth, binaryItemPrefetchMaxItemKB * 1024);
+        try {
+            while (readAhead.hasNext()) {
+                final ReadAhead.PrefetchedItem prefetched = readAhead.next();
+                i = prefetched.getBid();
+                item = prefetched.getItem();
+                if (item == null) {
+                    if (all) {
+                        continue;
+                    }
+                    //Headers are long gone; all we can do is cut the response short
+                    LOG.error("BinaryItemsFile " + i + " of study " + uuid + " does not exist");
+                    throw new IOException("Binary item " + i + " does not exist");
                 }
 
-            }
-            
-            final long itemsize = file.length();
-            String index = Integer.toString(i);
-            out.write("\nContent-Type: application/octet-stream\n".getBytes());
-            out.write(("Content-ID: <" + index + "@" + uuid + ">\n").getBytes());
-            out.write(("Content-Length: " + itemsize + "\n\n").getBytes());
+                final long itemsize = item.getLength();
+                String index = Integer.toString(i);
+                out.write("\nContent-Type: application/octet-stream\n".getBytes());
+                out.write(("Content-ID: <" + index + "@" + uuid + ">\n").getBytes());
+                out.write(("Content-Length: " + itemsize + "\n\n").getBytes());
 
-            streamBinaryItem(file, out, binaryItemStreamBufferSize);
-            
-            out.write(("\n--" + MP_BOUNDARY).getBytes());
+                setEncoderLevel(encoder, encapsulatedItems, i);
+                try {
+                    streamBinaryItem(store, prefetched, out, buffer);
+                } finally {
+                    prefetched.release();
+                }
+
+                out.write(("\n--" + MP_BOUNDARY).getBytes());
+            }
+        } finally {
+            readAhead.close();
         }
         
         if (multipart) {
             out.write("--".getBytes());
         }
         
+        if (encoder != null) {
+            encoder.finish();
+            BYTES_STREAMED.mark(encoder.getEncodedLength());
+        }
         out.flush();
     }
 
-    private void streamBinaryItem(final File file, final OutputStream outputStream, final int bufferSize) throws IOException {
-        final InputStream in = new FileInputStream(file);
-        final byte[] bytes = new byte[bufferSize];
+    /**
+     * Passes binary items holding already compressed pixel data through the encoder as stored blocks, and
+     * compresses the others.
+     */
+    private void setEncoderLevel(final ContentCoding.Encoder encoder, final EncapsulatedItemIndex encapsulatedItems,
+                                 final int bid) {
+        if (encoder != null) {
+            encoder.setLevel(encapsulatedItems.isEncapsulated(bid)
+                    ? Deflater.NO_COMPRESSION : binaryItemCompressionLevel);
+        }
+    }
+
+    /**
+     * Sends a single binary item with the given content coding; with caching of compressed items, the gzip form is
+     * written to disk the first time and sent from there.
+     */
+    private void streamEncodedItem(final HttpServletRequest req, final HttpServletResponse res, final File binaryRoot,
+                                   final BinaryItemStore store, final String cacheKey, final int bid,
+                                   final BinaryItem item, final String coding) throws IOException {
+        res.setContentType("application/octet-stream");
+        res.setHeader("Content-Encoding", coding);
+        RESPONSES_ENCODED.mark();
+        if (cacheCompressedBinaryItems && ContentCoding.GZIP.equals(coding)) {
+            final File file = getCompressedItem(binaryRoot, store, bid, item);
+            if (useSendfile && Utils.sendFile(req, res, file)) {
+                BYTES_STREAMED.mark(file.length());
+                ITEMS_STREAMED.mark();
+                return;
+            }
+            final OutputStream out = openStream(req, res);
+            if (out == null) {
+                return;
+            }
+            res.setHeader("Content-Length", Long.toString(file.length()));
+            Utils.streamFile(file, out, binaryItemStreamBufferSize);
+            out.flush();
+            BYTES_STREAMED.mark(file.length());
+            ITEMS_STREAMED.mark();
+            return;
+        }
+
+        final OutputStream out = openStream(req, res);
+        if (out == null) {
+            return;
+        }
+        final ContentCoding.Encoder encoder = ContentCoding.encoder(out, coding, binaryItemCompressionLevel,
+                binaryItemStreamBufferSize);
+        final byte[] buffer = BufferPool.getInstance().acquire(binaryItemStreamBufferSize);
+        final ReadAhead.PrefetchedItem prefetched = new ReadAhead.PrefetchedItem(bid, item, null, 0,
+                binaryItemCache.getIfPresent(cacheKey));
         try {
-            while (true) {
-                final int amountRead = in.read(bytes);
-                if (amountRead == -1) {
-                    break;
+            streamBinaryItem(store, prefetched, encoder, buffer);
+            encoder.finish();
+            BYTES_STREAMED.mark(encoder.getEncodedLength());
+        } finally {
+            prefetched.release();
+            BufferPool.getInstance().release(buffer);
+            encoder.release();
+        }
+    }
+
+    /**
+     * @return the gzip form of a binary item, kept in the compressed folder of the binary items; it is written to a
+     * temporary file that is renamed into place, so a partly written file is never sent
+     */
+    private File getCompressedItem(final File binaryRoot, final BinaryItemStore store, final int bid,
+                                   final BinaryItem item) throws IOException {
+        final File compressedRoot = new File(binaryRoot, COMPRESSED_FOLDER);
+        final File file = new File(compressedRoot, bid + ".gz");
+        if (file.exists()) {
+            return file;
+        }
+        compressedRoot.mkdirs();
+        final File temp = File.createTempFile(bid + "-", ".tmp", compressedRoot);
+        try {
+            final long generationStart = RequestTiming.begin();
+            final FileOutputStream fileOut = new FileOutputStream(temp);
+            try {
+                final ContentCoding.Encoder encoder = ContentCoding.encoder(fileOut, ContentCoding.GZIP,
+                        binaryItemCompressionLevel, binaryItemStreamBufferSize);
+                final byte[] buffer = BufferPool.getInstance().acquire(binaryItemStreamBufferSize);
+                try {
+                    store.copyTo(item, 0, item.getLength(), encoder, buffer);
+                    encoder.finish();
+                } finally {
+                    BufferPool.getInstance().release(buffer);
+                    encoder.release();
                 }
-                outputStream.write(bytes, 0, amountRead);
+                fileOut.getFD().sync();
+            } finally {
+                fileOut.close();
+            }
+            RequestTiming.end(RequestTiming.GENERATION, generationStart);
+            // Another request may have stored the same item in the meantime
+            if (!temp.renameTo(file) && !file.exists()) {
+                throw new IOException("Unable to store compressed binary item " + file);
             }
-            outputStream.flush();
         } finally {
-            in.close();
+            temp.delete();
         }
+        return file;
     }
 
-	/**
-	 * This method will scan through the study in the provided root directory
-	 * and will create a list of bid's encountered in order. This order is
-	 * expected to be the order in which the binary IDs exist in the study
-	 * metadata document.
-	 * 
-	 * @param seq
-	 * @param type
-	 * @param studyRoot
-	 * @return
-	 * @throws NumberFormatException
-	 * @throws IOException
-	 */
-    private Iterator<Integer> parseItemList(String seq, String type, File studyRoot) throws NumberFormatException, IOException {
-        final List<Integer> itemList = new ArrayList<Integer>();
-
-        if (seq.equals("all")) {
-        	final File binaryRoot = new File(studyRoot, type + "/binaryitems");
-        	binaryRoot.list();
-        	
-        	return new Iterator<Integer>() {
-        		private Iterator<String> binaryNames = Arrays.asList(binaryRoot.list()).iterator();
-        		private String next = null;
-        		
-				@Override
-				public boolean hasNext() {
-					getNext();
-					
-					return next != null;
-				}
-
-				@Override
-				public Integer next() throws NumberFormatException {
-					getNext();
-					
-					if(next == null)
-						throw new NoSuchElementException();
-					
-					int result = Integer.valueOf(next.substring(0, next.indexOf('.')));
-					
-					next = null;
-					
-					return result;
-				}
-				
-				private void getNext()
-				{
-					if(next == null && binaryNames.hasNext())
-					{
-						do
-						{
-							next = binaryNames.next();
-						}while(!next.endsWith(StorageUtil.BINARY_FILE_EXTENSION) && binaryNames.hasNext());
-						
-						if(!next.endsWith(StorageUtil.BINARY_FILE_EXTENSION))
-						{
-							next = null;
-						}
-					}
-				}
-
-				@Override
-				public void remove() {
-					binaryNames.remove();
-				}
-			};
-        } else {
-			/*
-			 * TODO speed this up by removing the need to build an entire list
-			 * ahead of time. This is a slow operation if there are 100000
-			 * items. This can be done by implementing a custom iterator similar
-			 * to how to all method works.
-			 */
-            String[] elements = seq.split(",");
-
-            for (String element : elements) {
-                String[] range = element.split("-");
-
-                if (range.length < 1 || range.length > 2) {
-                    //failed to parse element, error message not set yet
-                    return null;
-                }
+    /**
+     * @return the index of the binary items of the study type that hold compressed pixel data, covering at least
+     * the given bid; it is built from the metadata when it is not known yet or misses items added since
+     */
+    private EncapsulatedItemIndex getEncapsulatedItems(final String key, final File binaryRoot,
+                                                       final BinaryItemStore store, final int bid)
+            throws IOException {
+        EncapsulatedItemIndex index = encapsulatedItemIndexes.get(key);
+        if (index == null || !index.covers(bid)) {
+            final long generationStart = RequestTiming.begin();
+            try {
+                // Metadata is written before new items are stored, so it describes at least the items counted here
+                final int highestId = store.getHighestId();
+                index = EncapsulatedItemIndex.build(StudyIO.loadStudy(binaryRoot.getParentFile()), highestId);
+            } finally {
+                RequestTiming.end(RequestTiming.GENERATION, generationStart);
+            }
+            encapsulatedItemIndexes.put(key, index);
+        }
+        return index;
+    }
 
-                int start = Integer.valueOf(range[0]);
-                int end = start;
-                if (range.length == 2) {
-                    end = Integer.valueOf(range[1]);
-                }
+    /**
+     * Answers a Range request for a single binary item with 206 Partial Content, using multipart/byteranges if
+     * more than one range was requested, or with 416 if none of the ranges can be satisfied.
+     */
+    private void streamRanges(final HttpServletRequest req, final HttpServletResponse res,
+                              final BinaryItemStore store, final BinaryItem item, final List<ByteRange> ranges)
+            throws IOException {
+        final long itemsize = item.getLength();
+        if (ranges.isEmpty()) {
+            res.setHeader("Content-Range", "bytes */" + itemsize);
+            res.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
 
-                if (start < 0 || end < 0) {
-                    //failed to parse element, error message already set
-                    return null;
+        res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            final ByteRange range = ranges.get(0);
+            res.setContentType("application/octet-stream");
+            res.setHeader("Content-Range", range.toContentRange(itemsize));
+            if (useSendfile && Utils.sendFile(req, res, item.getFile(), item.getOffset() + range.getFirst(),
+                    range.getLength())) {
+                BYTES_STREAMED.mark(range.getLength());
+                ITEMS_STREAMED.mark();
+                return;
+            }
+            final OutputStream out = openStream(req, res);
+            if (out == null) {
+                return;
+            }
+            res.setHeader("Content-Length", Long.toString(range.getLength()));
+            final byte[] buffer = BufferPool.getInstance().acquire(binaryItemStreamBufferSize);
+            try {
+                BYTES_STREAMED.mark(store.copyTo(item, range.getFirst(), range.getLength(), out, buffer));
+            } finally {
+                BufferPool.getInstance().release(buffer);
+            }
+            out.flush();
+        } else {
+            final OutputStream out = openStream(req, res);
+            if (out == null) {
+                return;
+            }
+            res.setContentType("multipart/byteranges; boundary=" + BYTERANGES_BOUNDARY);
+            final byte[] buffer = BufferPool.getInstance().acquire(binaryItemStreamBufferSize);
+            try {
+                for (final ByteRange range: ranges) {
+                    out.write(("\r\n--" + BYTERANGES_BOUNDARY + "\r\nContent-Type: application/octet-stream\r\n"
+                            + "Content-Range: " + range.toContentRange(itemsize) + "\r\n\r\n").getBytes());
+                    BYTES_STREAMED.mark(store.copyTo(item, range.getFirst(), range.getLength(), out, buffer));
                 }
+            } finally {
+                BufferPool.getInstance().release(buffer);
+            }
+            out.write(("\r\n--" + BYTERANGES_BOUNDARY + "--\r\n").getBytes());
+            out.flush();
+        }
+        ITEMS_STREAMED.mark();
+    }
 
-                //for each item in the range, add to itemList
-                for (; start <= end; ++start) {
-                    itemList.add(start);
+    /**
+     * Takes a streaming slot for the request and opens the response for streaming, guarded against slow clients.
+     *
+     * @return the output stream, or null if no slot became free and 503 was sent
+     */
+    private OutputStream openStream(final HttpServletRequest req, final HttpServletResponse res) throws IOException {
+        if (!streamingLimiter.acquire(req)) {
+            res.setHeader("Retry-After", "5");
+            res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Too many binary item downloads in progress, try again later");
+            return null;
+        }
+        LOG.debug("output buffer size was " + res.getBufferSize());
+        res.setBufferSize(binaryItemResponseBufferSize);
+        LOG.debug("output buffer size is now " + res.getBufferSize());
+        return streamingLimiter.guard(res.getOutputStream());
+    }
+
+    /**
+     * Writes the item from the cache if it is cached; otherwise writes the part of it that was read ahead, then
+     * streams the rest of it from the store. Bytes written to an encoder are not counted here, as they are not
+     * what is sent; the encoded length is counted once the encoder is finished.
+     */
+    private void streamBinaryItem(final BinaryItemStore store, final ReadAhead.PrefetchedItem prefetched,
+                                  final OutputStream outputStream, final byte[] buffer) throws IOException {
+        final BinaryItem item = prefetched.getItem();
+        final int headLength = prefetched.getHeadLength();
+        final Meter bytesStreamed = outputStream instanceof ContentCoding.Encoder ? null : BYTES_STREAMED;
+        try {
+            if (prefetched.getCached() != null) {
+                final long streamStart = RequestTiming.begin();
+                final ByteBuffer cached = prefetched.getCached();
+                while (cached.hasRemaining()) {
+                    final int length = Math.min(buffer.length, cached.remaining());
+                    cached.get(buffer, 0, length);
+                    outputStream.write(buffer, 0, length);
                 }
+                RequestTiming.end(RequestTiming.STREAMING, streamStart);
+                markStreamed(bytesStreamed, item.getLength());
+            } else if (headLength > 0) {
+                final long streamStart = RequestTiming.begin();
+                outputStream.write(prefetched.getHead(), 0, headLength);
+                RequestTiming.end(RequestTiming.STREAMING, streamStart);
+                markStreamed(bytesStreamed, headLength);
+            }
+            if (prefetched.getCached() == null && headLength < item.getLength()) {
+                markStreamed(bytesStreamed, store.copyTo(item, headLength, item.getLength() - headLength,
+                        outputStream, buffer));
             }
+            outputStream.flush();
+        } finally {
+            ITEMS_STREAMED.mark();
+        }
+    }
+
+    /**
+     * The most recently used encapsulated item indexes, least recently used first.
+     */
+    private static final class EncapsulatedItemIndexes extends LinkedHashMap<String, EncapsulatedItemIndex> {
+        private static final long serialVersionUID = 1L;
+
+        EncapsulatedItemIndexes() {
+            super(16, 0.75f, true);
         }
 
-        return itemList.iterator();
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, EncapsulatedItemIndex> eldest) {
+            return size() > MAX_ENCAPSULATED_ITEM_INDEXES;
+        }
+    }
+
+    private static void markStreamed(final Meter bytesStreamed, final long length) {
+        if (bytesStreamed != null) {
+            bytesStreamed.mark(length);
+        }
     }
 
     private static final Logger LOG = Logger.getLogger(StudyBinaryItemsController.class);
+    private static final Meter BYTES_STREAMED = MetricsRegistry.getInstance().meter("binaryitems.bytes");
+    private static final Meter ITEMS_STREAMED = MetricsRegistry.getInstance().meter("binaryitems.items");
+    private static final Meter BULK_STUDIES = MetricsRegistry.getInstance().meter("binaryitems.bulk.studyTypes");
+    private static final Meter RESPONSES_ENCODED = MetricsRegistry.getInstance().meter("binaryitems.encodedResponses");
+    private static final String COMPRESSED_FOLDER = "compressed";
+    private static final int MAX_ENCAPSULATED_ITEM_INDEXES = 256;
     private static final String MP_BOUNDARY = "BinaryItemBoundary-7afb50349c2148c3a5d6a324891a481c";
+    private static final String BULK_BOUNDARY = "BulkBinaryItemBoundary-9c4b7e2d1a6f4083b5e8d0c3f1a2b4c6";
+    private static final String BYTERANGES_BOUNDARY = "ByteRangesBoundary-2c3e8f0b5d7a4a61b4f1e0c9d8a7b6f5";
 
 }
@@ -15,8 +15,16 @@
  */
 package org.nema.medical.mint.server.controller;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -25,8 +33,20 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.nema.medical.mint.metadata.StudyMetadata;
 import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.server.cache.MetadataCache;
+import org.nema.medical.mint.server.domain.Change;
+import org.nema.medical.mint.server.domain.ChangeDAO;
 import org.nema.medical.mint.server.domain.MINTStudy;
 import org.nema.medical.mint.server.domain.StudyDAO;
+import org.nema.medical.mint.server.metrics.Meter;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.metrics.RequestTiming;
+import org.nema.medical.mint.server.util.BufferPool;
+import org.nema.medical.mint.server.util.MetadataDelta;
+import org.nema.medical.mint.server.util.MetadataHistory;
+import org.nema.medical.mint.server.util.MetadataProjection;
+import org.nema.medical.mint.server.util.MetadataVariants;
+import org.nema.medical.mint.server.util.SeriesMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -46,6 +66,21 @@ public class StudyMetadataController {
 
 	@Autowired
 	protected Integer fileStreamBufferSize;
+
+	@Autowired
+	protected Boolean useSendfile;
+
+	@Autowired
+	protected ChangeDAO changeDAO;
+
+	@Autowired
+	protected String metadataCacheControl;
+
+	@Autowired
+	protected MetadataCache metadataCache;
+
+	@Autowired
+	protected Integer metadataSnapshotInterval;
 	
 	@RequestMapping("/studies/{uuid}/{type}/metadata")
 	public void studiesMetadata(final @PathVariable("uuid") String uuid, 
@@ -66,6 +101,81 @@ public class StudyMetadataController {
             return;
         }
 
+        // sinceVersion= asks for the changes made after a version, as one update document, and version= for the
+        // study as it was at an earlier version
+        final Integer sinceVersion;
+        final Integer version;
+        try {
+            sinceVersion = getVersionParameter(req, "sinceVersion");
+            version = getVersionParameter(req, "version");
+        } catch (final NumberFormatException e) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid version requested: " + e.getMessage());
+            return;
+        }
+        if (sinceVersion != null && version != null) {
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Only one of sinceVersion and version may be given");
+            return;
+        }
+
+        sendMetadata(uuid, type, typeDir, "", sinceVersion, version, req, res);
+	}
+
+	/**
+	 * The study-level attributes and one series of the study, from the metadata split off when the study version
+	 * was written.
+	 */
+	@RequestMapping("/studies/{uuid}/{type}/series/{seriesInstanceUID}/metadata")
+	public void seriesMetadata(final @PathVariable("uuid") String uuid,
+							   final @PathVariable("type") String type,
+							   final @PathVariable("seriesInstanceUID") String seriesInstanceUID,
+							   final HttpServletRequest req,
+							   final HttpServletResponse res)
+			throws IOException {
+        final Utils.StudyStatus studyStatus = Utils.validateStudyStatus(studiesRoot, uuid, res, studyDAO);
+        if (studyStatus != Utils.StudyStatus.OK) {
+            return;
+        }
+
+        final File studyDir = new File(studiesRoot, uuid);
+        final File typeDir = new File(studyDir, type);
+        if (!typeDir.exists() || !typeDir.canRead()) {
+            LOG.error("Unable to locate directory for study: " + studyDir);
+            res.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid study requested: Not found");
+            return;
+        }
+
+        try {
+            final long generationStart = RequestTiming.begin();
+            SeriesMetadata.ensureWritten(typeDir);
+            RequestTiming.end(RequestTiming.GENERATION, generationStart);
+        } catch (final IOException e) {
+            LOG.error("Unable to split the metadata of " + typeDir + " by series", e);
+            res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Unable to provide series metadata. See server logs.");
+            return;
+        }
+        final File seriesDir = SeriesMetadata.getSeriesFolder(typeDir, seriesInstanceUID);
+        if (seriesDir == null || !seriesDir.isDirectory()) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid series requested: Not found");
+            return;
+        }
+
+        sendMetadata(uuid, type, seriesDir, SeriesMetadata.SERIES_FOLDER + "/" + seriesInstanceUID + "/", null,
+                null, req, res);
+	}
+
+	/**
+	 * Sends the representation of the metadata in dir that the request URI asks for, generating it from another
+	 * representation if it does not exist yet.
+	 *
+	 * @param variantPrefix distinguishes the metadata in dir from other metadata of the study type in ETags and the
+	 * cache
+	 * @param sinceVersion if not null, the changes made to the study type after this version are sent instead
+	 * @param version if not null, this earlier version of the study type is sent instead
+	 */
+	private void sendMetadata(final String uuid, final String type, final File dir, final String variantPrefix,
+							  final Integer sinceVersion, final Integer version, final HttpServletRequest req,
+							  final HttpServletResponse res) throws IOException {
         try {
             String filename;
 
@@ -90,15 +200,80 @@ public class StudyMetadataController {
                 res.setContentType("application/gzip");
             }
 
-            final File file = new File(typeDir, filename);
-            if (!file.exists()) {
-                StudyMetadata study = StudyIO.loadStudy(typeDir);
-                StudyIO.writeFile(study, file);
+            // tags= and levels= ask for a projection of the metadata instead of all of it
+            final MetadataProjection projection;
+            try {
+                projection = MetadataProjection.parse(req.getParameter("tags"), req.getParameter("levels"));
+            } catch (final IllegalArgumentException e) {
+                res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
             }
+            final String variant = variantPrefix
+                    + (sinceVersion == null ? "" : "delta/" + sinceVersion + "/")
+                    + (version == null ? "" : "version/" + version + "/")
+                    + (projection == null ? "" : "projection/" + projection.getKey() + "/")
+                    + filename;
 
+            // Content only changes with the study version, which is bumped by every change
+            final long dbStart = RequestTiming.begin();
+            final Change lastChange = changeDAO.findLastChange(uuid);
+            RequestTiming.end(RequestTiming.DB, dbStart);
+            if (lastChange != null && ConditionalRequest.checkNotModified(req, res,
+                    ConditionalRequest.etag(uuid, type, lastChange.getIndex(), variant),
+                    lastChange.getDateTime().getTime(), metadataCacheControl)) {
+                return;
+            }
+
+            // Hot metadata is sent from memory; the key changes with every change to the study
+            final String cacheKey = lastChange != null
+                    ? MetadataCache.key(uuid, type, lastChange.getIndex(), variant) : null;
+            ByteBuffer cached = cacheKey != null ? metadataCache.getIfPresent(cacheKey) : null;
+            if (cached == null && (sinceVersion != null || version != null || projection != null)) {
+                final ByteArrayOutputStream generated;
+                try {
+                    generated = generate(uuid, dir, sinceVersion, version, projection, filename);
+                } catch (final IllegalArgumentException e) {
+                    res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                    return;
+                } catch (final IllegalStateException e) {
+                    res.sendError(HttpServletResponse.SC_CONFLICT,
+                            e.getMessage() + "; the full metadata must be retrieved instead");
+                    return;
+                }
+                if (cacheKey != null) {
+                    cached = metadataCache.put(cacheKey, generated.toByteArray(), generated.size());
+                }
+                if (cached == null) {
+                    cached = ByteBuffer.wrap(generated.toByteArray());
+                }
+            }
+            final File file = new File(dir, filename);
+            if (cached == null) {
+                if (!file.exists()) {
+                    final long generationStart = RequestTiming.begin();
+                    MetadataVariants.ensure(dir, filename);
+                    RequestTiming.end(RequestTiming.GENERATION, generationStart);
+                }
+                if (cacheKey != null) {
+                    final long openStart = RequestTiming.begin();
+                    cached = metadataCache.load(cacheKey, file);
+                    RequestTiming.end(RequestTiming.FILE_OPEN, openStart);
+                }
+            }
+            if (cached != null) {
+                res.setContentLength(cached.remaining());
+                res.setBufferSize(fileResponseBufferSize);
+                BYTES_STREAMED.mark(Utils.streamBuffer(cached, res.getOutputStream(), fileStreamBufferSize));
+                return;
+            }
+
+            if (useSendfile && Utils.sendFile(req, res, file)) {
+                BYTES_STREAMED.mark(file.length());
+                return;
+            }
             res.setContentLength(Long.valueOf(file.length()).intValue());
             res.setBufferSize(fileResponseBufferSize);
-            Utils.streamFile(file, res.getOutputStream(), fileStreamBufferSize);
+            BYTES_STREAMED.mark(Utils.streamFile(file, res.getOutputStream(), fileStreamBufferSize));
         } catch (final IOException e) {
             if (!res.isCommitted()) {
                 res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
@@ -107,5 +282,82 @@ public class StudyMetadataController {
         }
 	}
 	
+	/**
+	 * Generates metadata that is not stored: the changes since a version, merged from the changelog, or an earlier
+	 * version rebuilt from it, and/or a projection of the metadata in dir. It is written in the representation of
+	 * filename.
+	 */
+	private ByteArrayOutputStream generate(final String uuid, final File dir, final Integer sinceVersion,
+										   final Integer version, final MetadataProjection projection,
+										   final String filename) throws IOException {
+        StudyMetadata study = null;
+        if (sinceVersion != null || version != null) {
+            final long dbStart = RequestTiming.begin();
+            final List<Change> changes = changeDAO.findChanges(uuid);
+            RequestTiming.end(RequestTiming.DB, dbStart);
+            final long generationStart = RequestTiming.begin();
+            final File changelogRoot = new File(dir.getParentFile(), "changelog");
+            final List<Integer> versionIndexes = MetadataDelta.findVersionIndexes(changes, dir.getName());
+            if (sinceVersion != null) {
+                study = MetadataDelta.load(changelogRoot, versionIndexes, sinceVersion);
+                DELTAS.mark();
+            } else {
+                study = MetadataHistory.load(dir, changelogRoot, versionIndexes, version, metadataSnapshotInterval);
+                HISTORICAL_VERSIONS.mark();
+            }
+            RequestTiming.end(RequestTiming.GENERATION, generationStart);
+        }
+
+        final long generationStart = RequestTiming.begin();
+        // The projection is made from GPB, and kept in GPB unless XML is asked for
+        ByteArrayOutputStream gpb = null;
+        if (projection != null) {
+            final InputStream in;
+            if (study != null) {
+                final ByteArrayOutputStream delta = new ByteArrayOutputStream();
+                StudyIO.writeToGPB(study, delta);
+                in = new ByteArrayInputStream(delta.toByteArray());
+            } else {
+                final File file = MetadataVariants.ensure(dir, MetadataVariants.CANONICAL);
+                in = BufferPool.getInstance().bufferedInputStream(new FileInputStream(file), fileStreamBufferSize);
+            }
+            gpb = new ByteArrayOutputStream();
+            try {
+                projection.project(in, gpb);
+            } finally {
+                in.close();
+            }
+            study = null;
+            PROJECTIONS.mark();
+        }
+
+        final ByteArrayOutputStream generated = new ByteArrayOutputStream();
+        final OutputStream out = filename.endsWith(".gz") ? new GZIPOutputStream(generated) : generated;
+        if (filename.startsWith("metadata.gpb")) {
+            if (gpb != null) {
+                gpb.writeTo(out);
+            } else {
+                StudyIO.writeToGPB(study, out);
+            }
+        } else {
+            if (study == null) {
+                study = StudyIO.parseFromGPB(new ByteArrayInputStream(gpb.toByteArray()));
+            }
+            StudyIO.writeToXML(study, out);
+        }
+        out.close();
+        RequestTiming.end(RequestTiming.GENERATION, generationStart);
+        return generated;
+	}
+
+	private static Integer getVersionParameter(final HttpServletRequest req, final String name) {
+        final String value = req.getParameter(name);
+        return value != null ? Integer.valueOf(value) : null;
+	}
+
 	private static final Logger LOG = Logger.getLogger(StudyMetadataController.class);
+	private static final Meter BYTES_STREAMED = MetricsRegistry.getInstance().meter("metadata.bytes");
+	private static final Meter DELTAS = MetricsRegistry.getInstance().meter("metadata.deltas");
+	private static final Meter HISTORICAL_VERSIONS = MetricsRegistry.getInstance().meter("metadata.versions");
+	private static final Meter PROJECTIONS = MetricsRegistry.getInstance().meter("metadata.projections");
 }
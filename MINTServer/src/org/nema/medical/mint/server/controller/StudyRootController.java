@@ -17,15 +17,18 @@ package org.nema.medical.mint.server.controller;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
-import org.jibx.runtime.BindingDirectory;
-import org.jibx.runtime.IBindingFactory;
-import org.jibx.runtime.IMarshallingContext;
 import org.jibx.runtime.JiBXException;
 import org.nema.medical.mint.changelog.ChangeOperation;
 import org.nema.medical.mint.server.domain.Change;
+import org.nema.medical.mint.server.cache.BinaryItemCache;
+import org.nema.medical.mint.server.cache.MetadataCache;
 import org.nema.medical.mint.server.domain.ChangeDAO;
 import org.nema.medical.mint.server.domain.MINTStudy;
 import org.nema.medical.mint.server.domain.StudyDAO;
+import org.nema.medical.mint.server.metrics.RequestTiming;
+import org.nema.medical.mint.server.util.Marshalling;
+import org.nema.medical.mint.server.util.MetadataVariants;
+import org.nema.medical.mint.server.util.SeriesMetadata;
 import org.nema.medical.mint.studies.StudyRoot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -63,6 +66,12 @@ public class StudyRootController {
     @Autowired
     protected ChangeDAO changeDAO;
 
+    @Autowired
+    protected BinaryItemCache binaryItemCache;
+
+    @Autowired
+    protected MetadataCache metadataCache;
+
 	@RequestMapping(method = RequestMethod.GET, value = "/studies/{uuid}")
 	public void studyRoot(@PathVariable("uuid") final String uuid,
 				final HttpServletRequest req,
@@ -73,7 +82,19 @@ public class StudyRootController {
             return;
         }
 
+		// Study roots have no GPB form, so a client asking for one gets compact XML instead
+		final ResponseFormat format;
+		try {
+			format = ResponseFormat.negotiate(req) == ResponseFormat.XML ? ResponseFormat.XML
+					: ResponseFormat.COMPACT_XML;
+		} catch (final IllegalArgumentException e) {
+			res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+
+        final long dbStart = RequestTiming.begin();
         final MINTStudy study = studyDAO.findStudy(uuid);
+        RequestTiming.end(RequestTiming.DB, dbStart);
         final File studyDir = new File(studiesRoot, uuid);
         final File[] studyTypeFiles = studyDir.listFiles(
         		new FilenameFilter() {
@@ -104,14 +125,23 @@ public class StudyRootController {
 		}
 		
 		StudyRoot studyRoot = new StudyRoot(study.getID(), lastUpdated, study.getStudyVersion(), studyTypeFileList);
+		for (File studyTypeFile : studyTypeFiles) {
+			try {
+				// Studies stored before their metadata was split by series are split now
+				SeriesMetadata.ensureWritten(studyTypeFile);
+			} catch (final IOException e) {
+				LOG.error("Unable to split the metadata of " + studyTypeFile + " by series", e);
+			}
+			for (String seriesInstanceUID : SeriesMetadata.list(studyTypeFile)) {
+				studyRoot.addSeries(studyTypeFile.getName(), seriesInstanceUID);
+			}
+		}
 
-		IBindingFactory bfact = BindingDirectory.getFactory("studyRoot",StudyRoot.class);
-		IMarshallingContext mctx = bfact.createMarshallingContext();
-		mctx.setIndent(2);
-		mctx.startDocument("UTF-8", null, res.getOutputStream());
-		mctx.getXmlWriter().writePI("xml-stylesheet", xmlStylesheet);
-		mctx.marshalDocument(studyRoot);
-		mctx.endDocument();
+		final long generationStart = RequestTiming.begin();
+		res.setContentType(format.getContentType());
+		Marshalling.marshal(studyRoot, "studyRoot", StudyRoot.class, res.getOutputStream(),
+				format == ResponseFormat.COMPACT_XML, xmlStylesheet);
+		RequestTiming.end(RequestTiming.GENERATION, generationStart);
 		
 	}
 
@@ -124,6 +154,8 @@ public class StudyRootController {
         }
 
         deleteStudy(uuid, studiesRoot, req.getRemoteUser(), req.getRemoteHost(), changeDAO, studyDAO);
+        binaryItemCache.invalidateStudy(uuid);
+        metadataCache.invalidateStudy(uuid);
         res.setStatus(204);
     }
 
@@ -132,6 +164,7 @@ public class StudyRootController {
             throws IOException {
          final File studyDir = new File(studiesRoot, uuid);
          FileUtils.deleteDirectory(studyDir);
+         MetadataVariants.forget(studyDir);
 
          final Change lastChange = changeDAO.findLastChange(uuid);
          if (lastChange == null) {
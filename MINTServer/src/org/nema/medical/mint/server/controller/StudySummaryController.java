@@ -17,15 +17,22 @@ package org.nema.medical.mint.server.controller;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
-import org.nema.medical.mint.metadata.StudyMetadata;
-import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.server.cache.MetadataCache;
+import org.nema.medical.mint.server.domain.Change;
+import org.nema.medical.mint.server.domain.ChangeDAO;
 import org.nema.medical.mint.server.domain.MINTStudy;
 import org.nema.medical.mint.server.domain.StudyDAO;
+import org.nema.medical.mint.server.metrics.Meter;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.metrics.RequestTiming;
+import org.nema.medical.mint.server.util.MetadataVariants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -43,12 +50,25 @@ public class StudySummaryController {
 	@Autowired
 	protected Integer fileStreamBufferSize;
 
+	@Autowired
+	protected Boolean useSendfile;
+
+	@Autowired
+	protected ChangeDAO changeDAO;
+
+	@Autowired
+	protected String metadataCacheControl;
+
+	@Autowired
+	protected MetadataCache metadataCache;
+
     @Autowired
     protected StudyDAO studyDAO;
 	
 	@RequestMapping("/studies/{uuid}/{type}/summary")
 	public void studiesSummary(@PathVariable("uuid") final String uuid,
 			@PathVariable("type") final String type, 
+			final HttpServletRequest req,
 			final HttpServletResponse res) throws IOException {
         final Utils.StudyStatus studyStatus = Utils.validateStudyStatus(studiesRoot, uuid, res, studyDAO);
         if (studyStatus != Utils.StudyStatus.OK) {
@@ -64,16 +84,46 @@ public class StudySummaryController {
         }
 
         try {			
+            final long dbStart = RequestTiming.begin();
+            final Change lastChange = changeDAO.findLastChange(uuid);
+            RequestTiming.end(RequestTiming.DB, dbStart);
+            if (lastChange != null && ConditionalRequest.checkNotModified(req, res,
+                    ConditionalRequest.etag(uuid, type, lastChange.getIndex(), "summary"),
+                    lastChange.getDateTime().getTime(), metadataCacheControl)) {
+                return;
+            }
+
+            final String cacheKey = lastChange != null
+                    ? MetadataCache.key(uuid, type, lastChange.getIndex(), "summary.xml") : null;
+            ByteBuffer cached = cacheKey != null ? metadataCache.getIfPresent(cacheKey) : null;
 			final File file = new File(typeDir, "/summary.xml");
-            if (!file.exists()) {
-                StudyMetadata study = StudyIO.loadStudy(typeDir);
-                StudyIO.writeSummaryToXML(study,file);
+            if (cached == null) {
+                if (!file.exists()) {
+                    final long generationStart = RequestTiming.begin();
+                    MetadataVariants.ensure(typeDir, "summary.xml");
+                    RequestTiming.end(RequestTiming.GENERATION, generationStart);
+                }
+                if (cacheKey != null) {
+                    final long openStart = RequestTiming.begin();
+                    cached = metadataCache.load(cacheKey, file);
+                    RequestTiming.end(RequestTiming.FILE_OPEN, openStart);
+                }
             }
 
 			res.setContentType("text/xml");
+            if (cached != null) {
+                res.setContentLength(cached.remaining());
+                res.setBufferSize(fileResponseBufferSize);
+                BYTES_STREAMED.mark(Utils.streamBuffer(cached, res.getOutputStream(), fileStreamBufferSize));
+                return;
+            }
+			if (useSendfile && Utils.sendFile(req, res, file)) {
+				BYTES_STREAMED.mark(file.length());
+				return;
+			}
 			res.setContentLength(Long.valueOf(file.length()).intValue());
 			res.setBufferSize(fileResponseBufferSize);
-			Utils.streamFile(file, res.getOutputStream(), fileStreamBufferSize);
+			BYTES_STREAMED.mark(Utils.streamFile(file, res.getOutputStream(), fileStreamBufferSize));
 		} catch (final IOException e) {
 			if (!res.isCommitted()) {
 				res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
@@ -84,4 +134,5 @@ public class StudySummaryController {
 	}
 	
 	private static final Logger LOG = Logger.getLogger(StudySummaryController.class);
+	private static final Meter BYTES_STREAMED = MetricsRegistry.getInstance().meter("summary.bytes");
 }
@@ -18,22 +18,97 @@ package org.nema.medical.mint.server.controller;
 import org.apache.commons.lang.StringUtils;
 import org.nema.medical.mint.server.domain.MINTStudy;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.log4j.Logger;
 import org.nema.medical.mint.server.domain.StudyDAO;
+import org.nema.medical.mint.server.metrics.RequestTiming;
+import org.nema.medical.mint.server.util.BufferPool;
 
 public class Utils {
 
     private static final Logger LOG = Logger.getLogger(Utils.class);
 
-    public static void streamFile(final File source, final OutputStream out, final int bufferSize) throws IOException {
-        final byte[] bytes = new byte[bufferSize];
-        
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Hands the file to the container to be sent as the whole response body once the request handler returns, if
+     * the container supports it. Tomcat's NIO and APR connectors then transfer the file from the file system to the
+     * socket (sendfile) without copying it through the JVM. The content length is set here; content type and other
+     * headers must be set by the caller, which must not write any body when this returns true.
+     *
+     * @return true if the container will send the file, false if the caller has to stream it
+     */
+    public static boolean sendFile(final HttpServletRequest req, final HttpServletResponse res, final File file) {
+        return sendFile(req, res, file, 0, file.length());
+    }
+
+    /**
+     * Like {@link #sendFile(HttpServletRequest, HttpServletResponse, File)}, for length bytes of the file starting
+     * at position first.
+     */
+    public static boolean sendFile(final HttpServletRequest req, final HttpServletResponse res, final File file,
+                                   final long first, final long length) {
+        if (!Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            return false;
+        }
+        res.setHeader("Content-Length", Long.toString(length));
+        req.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.getAbsolutePath());
+        req.setAttribute(SENDFILE_START_ATTRIBUTE, Long.valueOf(first));
+        req.setAttribute(SENDFILE_END_ATTRIBUTE, Long.valueOf(first + length));
+        return true;
+    }
+
+    /**
+     * Writes the remaining content of the buffer to out, through a pooled copy buffer since a direct buffer cannot
+     * be written to a stream directly.
+     *
+     * @return the number of bytes written
+     */
+    public static long streamBuffer(final ByteBuffer source, final OutputStream out, final int bufferSize)
+            throws IOException {
+        final long streamStart = RequestTiming.begin();
+        final byte[] bytes = BufferPool.getInstance().acquire(bufferSize);
+        long total = 0;
+        try {
+            while (source.hasRemaining()) {
+                final int length = Math.min(bytes.length, source.remaining());
+                source.get(bytes, 0, length);
+                out.write(bytes, 0, length);
+                total += length;
+            }
+            out.flush();
+        } finally {
+            BufferPool.getInstance().release(bytes);
+            RequestTiming.end(RequestTiming.STREAMING, streamStart);
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of bytes copied from source to out
+     */
+    public static long streamFile(final File source, final OutputStream out, final int bufferSize) throws IOException {
+        long total = 0;
+
+        final long openStart = RequestTiming.begin();
         final FileInputStream in = new FileInputStream(source);
+        RequestTiming.end(RequestTiming.FILE_OPEN, openStart);
+        final long streamStart = RequestTiming.begin();
+        final byte[] bytes = BufferPool.getInstance().acquire(bufferSize);
         try {
             while (true) {
                 final int amountRead = in.read(bytes);
@@ -41,12 +116,16 @@ public class Utils {
                     break;
                 }
                 out.write(bytes, 0, amountRead);
+                total += amountRead;
             }
+            out.flush();
         } finally {
+            BufferPool.getInstance().release(bytes);
             in.close();
+            RequestTiming.end(RequestTiming.STREAMING, streamStart);
         }
 
-        out.flush();
+        return total;
     }
 
     enum StudyStatus {
@@ -64,9 +143,13 @@ public class Utils {
             return Utils.StudyStatus.INVALID_ID;
         }
 
+        final long validationStart = RequestTiming.begin();
         final File studyDir = new File(studiesRoot, studyUUID);
-        if (studyDir.exists()) {
-            if (studyDir.canRead()) {
+        final boolean exists = studyDir.exists();
+        final boolean readable = exists && studyDir.canRead();
+        RequestTiming.end(RequestTiming.VALIDATION, validationStart);
+        if (exists) {
+            if (readable) {
                 return Utils.StudyStatus.OK;
             }
 
@@ -75,7 +158,9 @@ public class Utils {
             return Utils.StudyStatus.ABSENT;
         }
 
+        final long dbStart = RequestTiming.begin();
         final MINTStudy study = studyDAO.findStudy(studyUUID);
+        RequestTiming.end(RequestTiming.DB, dbStart);
 
         if (study != null) {
             if (study.getStudyVersion() == -1) {
@@ -92,5 +177,58 @@ public class Utils {
         return Utils.StudyStatus.ABSENT;
     }
 
+    /**
+     * Checks many studies the way {@link #validateStudyStatus} checks one, without sending errors. The studies that
+     * are not on disk are looked up with a single query.
+     *
+     * @return the status of each study
+     */
+    public static Map<String, StudyStatus> validateStudyStatuses(final File studiesRoot,
+                                                                 final Collection<String> studyUUIDs,
+                                                                 final StudyDAO studyDAO) {
+        final Map<String, StudyStatus> statuses = new HashMap<String, StudyStatus>();
+        final List<String> absent = new ArrayList<String>();
+
+        final long validationStart = RequestTiming.begin();
+        for (final String studyUUID: studyUUIDs) {
+            if (!isPathElement(studyUUID)) {
+                statuses.put(studyUUID, Utils.StudyStatus.INVALID_ID);
+                continue;
+            }
+            final File studyDir = new File(studiesRoot, studyUUID);
+            if (!studyDir.exists()) {
+                absent.add(studyUUID);
+            } else if (studyDir.canRead()) {
+                statuses.put(studyUUID, Utils.StudyStatus.OK);
+            } else {
+                LOG.error("Unable to read directory for study: " + studyDir);
+                statuses.put(studyUUID, Utils.StudyStatus.ABSENT);
+            }
+        }
+        RequestTiming.end(RequestTiming.VALIDATION, validationStart);
+
+        if (!absent.isEmpty()) {
+            final long dbStart = RequestTiming.begin();
+            final List<MINTStudy> studies = studyDAO.findStudies(absent);
+            RequestTiming.end(RequestTiming.DB, dbStart);
+            for (final String studyUUID: absent) {
+                statuses.put(studyUUID, Utils.StudyStatus.ABSENT);
+            }
+            for (final MINTStudy study: studies) {
+                statuses.put(study.getID(), study.getStudyVersion() == -1
+                        ? Utils.StudyStatus.DELETED : Utils.StudyStatus.OK);
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * @return true if name can only denote an entry directly within a directory
+     */
+    static boolean isPathElement(final String name) {
+        return StringUtils.isNotBlank(name) && !name.equals(".") && !name.equals("..")
+                && StringUtils.containsNone(name, "/\\");
+    }
+
     private Utils() {} // no instantiation
 }
@@ -15,8 +15,11 @@
  */
 package org.nema.medical.mint.server.domain;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.criterion.DetachedCriteria;
@@ -105,6 +108,27 @@ public class ChangeDAO extends HibernateDaoSupport {
         return null;
     }
 
+	/**
+	 * @return study ID to the index of its last change, for the given studies that have changes, in one query
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Integer> findLastChangeIndexes(final Collection<String> studyIDs) {
+		final Map<String, Integer> indexes = new HashMap<String, Integer>();
+		if (studyIDs.isEmpty()) {
+			return indexes;
+		}
+		final DetachedCriteria detachedCriteria = DetachedCriteria.forClass(Change.class)
+				.add(Restrictions.in("studyID", studyIDs))
+				.setProjection(Projections.projectionList()
+						.add(Projections.groupProperty("studyID"))
+						.add(Projections.max("changeIndex")));
+		final List<Object[]> rows = getHibernateTemplate().findByCriteria(detachedCriteria);
+		for (final Object[] row: rows) {
+			indexes.put((String) row[0], (Integer) row[1]);
+		}
+		return indexes;
+	}
+
 	public Change saveChange(final Change change) {
 		if (change != null) {
 			getHibernateTemplate().save(change);
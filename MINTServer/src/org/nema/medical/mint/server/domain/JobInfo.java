@@ -54,6 +54,17 @@ public class JobInfo {
 	@Column
 	private Timestamp updateTime = now();
 
+	/** Percentage of the job's stages that have been completed */
+	@Column
+	private Integer progress;
+
+	@Column
+	private String currentStage;
+
+	/** Elapsed milliseconds of the stages started so far, e.g. "load=120, validate=35, changelog=8" */
+	@Column(length = 1024)
+	private String stageTimings;
+
 	public String getId() {
 		return id;
 	}
@@ -101,6 +112,30 @@ public class JobInfo {
 	public void setUpdateTime(Timestamp updateTime) {
 		this.updateTime = updateTime;
 	}
+
+	public Integer getProgress() {
+		return progress;
+	}
+
+	public void setProgress(Integer progress) {
+		this.progress = progress;
+	}
+
+	public String getCurrentStage() {
+		return currentStage;
+	}
+
+	public void setCurrentStage(String currentStage) {
+		this.currentStage = currentStage;
+	}
+
+	public String getStageTimings() {
+		return stageTimings;
+	}
+
+	public void setStageTimings(String stageTimings) {
+		this.stageTimings = stageTimings;
+	}
 	
 
 	public boolean getComplete() {
@@ -16,6 +16,8 @@
 package org.nema.medical.mint.server.domain;
 
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
@@ -99,6 +101,21 @@ public class StudyDAO extends HibernateDaoSupport {
 		return null;
 	}
 
+	/**
+	 * Looks up many studies by ID in one query.
+	 *
+	 * @return the studies found, deleted ones included, in no particular order
+	 */
+	@SuppressWarnings("unchecked")
+	public List<MINTStudy> findStudies(final Collection<String> uuids) {
+		if (uuids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final DetachedCriteria detachedCriteria = DetachedCriteria.forClass(MINTStudy.class).add(
+				Restrictions.in("id", uuids));
+		return getHibernateTemplate().findByCriteria(detachedCriteria);
+	}
+
 	@SuppressWarnings("unchecked")
 	public List<MINTStudy> getMostRecentStudies(final int max, final int seconds) {
 		final Calendar calendar = Calendar.getInstance(GMT);
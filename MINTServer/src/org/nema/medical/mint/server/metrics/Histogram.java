@@ -0,0 +1,112 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency distribution with fixed, roughly logarithmic bucket bounds. Recording is lock-free and does not allocate;
+ * percentiles are estimated as the upper bound of the bucket in which they fall.
+ */
+public final class Histogram {
+    /** Bucket upper bounds in microseconds; the last bucket catches everything above */
+    private static final long[] BUCKET_BOUNDS_US = {
+            100, 250, 500,
+            1000, 2500, 5000,
+            10000, 25000, 50000,
+            100000, 250000, 500000,
+            1000000, 2500000, 5000000,
+            10000000, 30000000, 60000000
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_US.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumUS = new AtomicLong();
+    private final AtomicLong maxUS = new AtomicLong();
+
+    public void update(final long duration, final TimeUnit unit) {
+        final long us = unit.toMicros(duration);
+        int idx = 0;
+        while (idx < BUCKET_BOUNDS_US.length && us > BUCKET_BOUNDS_US[idx]) {
+            ++idx;
+        }
+        buckets.incrementAndGet(idx);
+        count.incrementAndGet();
+        sumUS.addAndGet(us);
+        for (;;) {
+            final long curMax = maxUS.get();
+            if (us <= curMax || maxUS.compareAndSet(curMax, us)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Convenience for the common pattern of taking System.nanoTime() before an operation.
+     */
+    public void updateSince(final long startNanos) {
+        update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        final long n = count.get();
+        return n == 0 ? 0.0 : sumUS.get() / 1000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxUS.get() / 1000.0;
+    }
+
+    /**
+     * @param quantile between 0.0 and 1.0
+     * @return estimated latency in milliseconds at the given quantile
+     */
+    public double getQuantileMillis(final double quantile) {
+        final long n = count.get();
+        if (n == 0) {
+            return 0.0;
+        }
+        final long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_US.length; ++i) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                //Never report more than the observed maximum
+                return Math.min(BUCKET_BOUNDS_US[i], maxUS.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    Map<String, Number> snapshot() {
+        final Map<String, Number> values = new LinkedHashMap<String, Number>();
+        values.put("count", getCount());
+        values.put("meanMs", getMeanMillis());
+        values.put("p50Ms", getQuantileMillis(0.50));
+        values.put("p95Ms", getQuantileMillis(0.95));
+        values.put("p99Ms", getQuantileMillis(0.99));
+        values.put("maxMs", getMaxMillis());
+        return values;
+    }
+}
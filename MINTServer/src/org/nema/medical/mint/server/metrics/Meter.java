@@ -0,0 +1,79 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts events (or bytes) and reports both the mean rate since creation and the rate over the last minute.
+ * The last-minute rate is kept in a ring of per-second slots, so marking never allocates.
+ */
+public final class Meter {
+    private static final int WINDOW_SECONDS = 60;
+
+    private final AtomicLong count = new AtomicLong();
+    private final long startMillis = System.currentTimeMillis();
+    private final AtomicLongArray slotCounts = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray slotSeconds = new AtomicLongArray(WINDOW_SECONDS);
+
+    public void mark() {
+        mark(1);
+    }
+
+    public void mark(final long n) {
+        count.addAndGet(n);
+        final long second = System.currentTimeMillis() / 1000;
+        final int slot = (int) (second % WINDOW_SECONDS);
+        final long slotSecond = slotSeconds.get(slot);
+        if (slotSecond != second && slotSeconds.compareAndSet(slot, slotSecond, second)) {
+            //This slot last held data from a previous window; start it over
+            slotCounts.set(slot, n);
+        } else {
+            slotCounts.addAndGet(slot, n);
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanRate() {
+        final long elapsedMillis = System.currentTimeMillis() - startMillis;
+        return elapsedMillis <= 0 ? 0.0 : count.get() * 1000.0 / elapsedMillis;
+    }
+
+    public double getOneMinuteRate() {
+        final long nowSecond = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; ++i) {
+            if (nowSecond - slotSeconds.get(i) < WINDOW_SECONDS) {
+                total += slotCounts.get(i);
+            }
+        }
+        return total / (double) WINDOW_SECONDS;
+    }
+
+    Map<String, Number> snapshot() {
+        final Map<String, Number> values = new LinkedHashMap<String, Number>();
+        values.put("count", getCount());
+        values.put("meanRate", getMeanRate());
+        values.put("oneMinuteRate", getOneMinuteRate());
+        return values;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Records the latency of every controller request into a histogram per endpoint. Endpoints are keyed by HTTP
+ * method and the matched request mapping pattern rather than the actual URI, so that all requests for e.g.
+ * binary items of any study share one histogram.
+ */
+public class MetricsInterceptor extends HandlerInterceptorAdapter {
+    private static final String START_ATTRIBUTE = MetricsInterceptor.class.getName() + ".start";
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+                             final Object handler) {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response,
+                                final Object handler, final Exception ex) {
+        final Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            pattern = handler.getClass().getSimpleName();
+        }
+        final MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.histogram("http." + request.getMethod() + ' ' + pattern).updateSince((Long) start);
+        if (ex != null) {
+            registry.counter("http.errors").inc();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+
+/**
+ * Exposes the registry to JMX as read-only attributes named "metric.field", e.g. "binaryitems.bytes.count".
+ * The attribute set follows the registry, so metrics created after startup show up on the next refresh.
+ */
+final class MetricsMBean implements DynamicMBean {
+    private final MetricsRegistry registry;
+
+    MetricsMBean(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+        final int fieldIdx = attribute.lastIndexOf('.');
+        if (fieldIdx > 0) {
+            final Map<String, Number> fields = registry.snapshot().get(attribute.substring(0, fieldIdx));
+            if (fields != null) {
+                final Number value = fields.get(attribute.substring(fieldIdx + 1));
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(final String[] attributes) {
+        final AttributeList list = new AttributeList();
+        for (final String attribute: attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (final AttributeNotFoundException e) {
+                //Per the DynamicMBean contract, attributes which cannot be read are left out
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(final String actionName, final Object[] params, final String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        final List<MBeanAttributeInfo> attributeInfos = new ArrayList<MBeanAttributeInfo>();
+        for (final Map.Entry<String, Map<String, Number>> metric: registry.snapshot().entrySet()) {
+            for (final Map.Entry<String, Number> field: metric.getValue().entrySet()) {
+                attributeInfos.add(new MBeanAttributeInfo(metric.getKey() + '.' + field.getKey(),
+                        field.getValue().getClass().getName(), metric.getKey() + ' ' + field.getKey(),
+                        true, false, false));
+            }
+        }
+        return new MBeanInfo(MetricsRegistry.class.getName(), "MINT server metrics",
+                attributeInfos.toArray(new MBeanAttributeInfo[attributeInfos.size()]),
+                null, new MBeanOperationInfo[0], null);
+    }
+}
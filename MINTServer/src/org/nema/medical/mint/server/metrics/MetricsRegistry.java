@@ -0,0 +1,209 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Process-wide registry of server metrics. Components look up their metrics by name and update them in place;
+ * the registry is read through the /admin/metrics endpoint and through JMX under {@link #OBJECT_NAME}.
+ *
+ * Names are dot-separated, starting with the component, e.g. "binaryitems.bytes" or "jobs.executor.poolSize".
+ */
+public final class MetricsRegistry {
+    private static final Logger LOG = Logger.getLogger(MetricsRegistry.class);
+
+    public static final String OBJECT_NAME = "org.nema.medical.mint:type=Metrics";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    static {
+        INSTANCE.registerMBean();
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+    private final ConcurrentMap<String, Meter> meters = new ConcurrentHashMap<String, Meter>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+    private MetricsRegistry() {
+    }
+
+    public Counter counter(final String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            final Counter newCounter = new Counter();
+            counter = counters.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    public Histogram histogram(final String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            final Histogram newHistogram = new Histogram();
+            histogram = histograms.putIfAbsent(name, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    public Meter meter(final String name) {
+        Meter meter = meters.get(name);
+        if (meter == null) {
+            final Meter newMeter = new Meter();
+            meter = meters.putIfAbsent(name, newMeter);
+            if (meter == null) {
+                meter = newMeter;
+            }
+        }
+        return meter;
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge previously registered under the same name.
+     */
+    public void registerGauge(final String name, final Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void unregisterGauge(final String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * @return metric name to (field name to value), sorted by metric name
+     */
+    public SortedMap<String, Map<String, Number>> snapshot() {
+        final SortedMap<String, Map<String, Number>> snapshot = new TreeMap<String, Map<String, Number>>();
+        for (final Map.Entry<String, Counter> entry: counters.entrySet()) {
+            snapshot.put(entry.getKey(),
+                    Collections.<String, Number>singletonMap("count", entry.getValue().getCount()));
+        }
+        for (final Map.Entry<String, Gauge> entry: gauges.entrySet()) {
+            long value;
+            try {
+                value = entry.getValue().getValue();
+            } catch (final RuntimeException e) {
+                //A gauge over a component that is shutting down; not worth failing the whole snapshot
+                value = -1;
+            }
+            snapshot.put(entry.getKey(), Collections.<String, Number>singletonMap("value", value));
+        }
+        for (final Map.Entry<String, Meter> entry: meters.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        for (final Map.Entry<String, Histogram> entry: histograms.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes one line per metric: the name followed by space-separated field=value pairs.
+     */
+    public void writeText(final PrintWriter out) {
+        for (final Map.Entry<String, Map<String, Number>> metric: snapshot().entrySet()) {
+            out.print(metric.getKey());
+            for (final Map.Entry<String, Number> field: metric.getValue().entrySet()) {
+                out.print(' ');
+                out.print(field.getKey());
+                out.print('=');
+                out.print(formatNumber(field.getValue()));
+            }
+            out.print('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes a single JSON object keyed by metric name, each value being an object of fields.
+     */
+    public void writeJSON(final PrintWriter out) {
+        out.print('{');
+        boolean firstMetric = true;
+        for (final Map.Entry<String, Map<String, Number>> metric: snapshot().entrySet()) {
+            if (!firstMetric) {
+                out.print(',');
+            }
+            firstMetric = false;
+            out.print("\n  \"");
+            out.print(escapeJSON(metric.getKey()));
+            out.print("\": {");
+            boolean firstField = true;
+            for (final Map.Entry<String, Number> field: metric.getValue().entrySet()) {
+                if (!firstField) {
+                    out.print(", ");
+                }
+                firstField = false;
+                out.print('"');
+                out.print(escapeJSON(field.getKey()));
+                out.print("\": ");
+                out.print(formatNumber(field.getValue()));
+            }
+            out.print('}');
+        }
+        out.print("\n}\n");
+        out.flush();
+    }
+
+    static String formatNumber(final Number value) {
+        if (value instanceof Double || value instanceof Float) {
+            //Fixed locale, as the output has to stay machine-readable
+            return String.format(Locale.US, "%.3f", value.doubleValue());
+        }
+        return value.toString();
+    }
+
+    private static String escapeJSON(final String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private void registerMBean() {
+        try {
+            final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(OBJECT_NAME);
+            //A redeployed web application leaves the previous class loader's registration behind
+            if (mbeanServer.isRegistered(objectName)) {
+                mbeanServer.unregisterMBean(objectName);
+            }
+            mbeanServer.registerMBean(new MetricsMBean(this), objectName);
+        } catch (final Exception e) {
+            LOG.warn("Unable to register metrics with JMX: " + e.getMessage());
+        }
+    }
+}
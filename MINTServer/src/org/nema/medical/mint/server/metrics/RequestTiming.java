@@ -0,0 +1,102 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Accumulates how long the current request spends in each phase of its handling. An instance is bound to the
+ * request thread by {@link ServerTimingFilter}; code on the request path brackets its work with {@link #begin()}
+ * and {@link #end(String, long)}, which do nothing when no request is being timed (e.g. in background jobs).
+ *
+ * Repeated phases, like opening one file per binary item, are summed.
+ */
+public final class RequestTiming {
+    public static final String VALIDATION = "validation";
+    public static final String DB = "db";
+    public static final String FILE_OPEN = "fileopen";
+    public static final String GENERATION = "generation";
+    public static final String STREAMING = "streaming";
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<RequestTiming>();
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, long[]> phaseNanos = new LinkedHashMap<String, long[]>();
+
+    private RequestTiming() {
+    }
+
+    static RequestTiming start() {
+        final RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the timing of the request handled by the calling thread, or null if there is none
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    public static void end(final String phase, final long beginNanos) {
+        final RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(phase, System.nanoTime() - beginNanos);
+        }
+    }
+
+    public void add(final String phase, final long nanos) {
+        long[] total = phaseNanos.get(phase);
+        if (total == null) {
+            total = new long[1];
+            phaseNanos.put(phase, total);
+        }
+        total[0] += nanos;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the phases recorded so far plus the elapsed time as "total", in Server-Timing header syntax,
+     * e.g. "validation;dur=0.412, db;dur=1.204, total;dur=2.001"
+     */
+    public String toHeaderValue() {
+        final StringBuilder value = new StringBuilder();
+        for (final Map.Entry<String, long[]> phase: phaseNanos.entrySet()) {
+            appendMetric(value, phase.getKey(), phase.getValue()[0]);
+            value.append(", ");
+        }
+        appendMetric(value, "total", getElapsedNanos());
+        return value.toString();
+    }
+
+    private static void appendMetric(final StringBuilder value, final String name, final long nanos) {
+        value.append(name).append(";dur=").append(String.format(Locale.US, "%.3f", nanos / 1000000.0));
+    }
+}
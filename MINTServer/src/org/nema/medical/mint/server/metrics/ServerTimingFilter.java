@@ -0,0 +1,174 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.log4j.Logger;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Times each request by phase (see {@link RequestTiming}) and reports the result in a Server-Timing response
+ * header and, for requests exceeding a threshold, in the log.
+ *
+ * Headers cannot be added once the response is committed, so the header is added right before the first byte of
+ * the body is written: it covers everything up to that point (validation, database, file open, generation, ...),
+ * with "total" being the time to first byte. Phases after that, typically streaming, only show up in the
+ * slow-request log.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+    private static final Logger LOG = Logger.getLogger(ServerTimingFilter.class);
+
+    public static final String HEADER = "Server-Timing";
+
+    private boolean serverTimingHeader = true;
+    private int slowRequestThresholdMS = 0;
+
+    public void setServerTimingHeader(final boolean serverTimingHeader) {
+        this.serverTimingHeader = serverTimingHeader;
+    }
+
+    /**
+     * @param slowRequestThresholdMS requests taking at least this long are logged; 0 disables the log
+     */
+    public void setSlowRequestThresholdMS(final int slowRequestThresholdMS) {
+        this.slowRequestThresholdMS = slowRequestThresholdMS;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        if (!serverTimingHeader && slowRequestThresholdMS <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        final RequestTiming timing = RequestTiming.start();
+        try {
+            if (serverTimingHeader) {
+                final ServerTimingResponse timingResponse = new ServerTimingResponse(response, timing);
+                filterChain.doFilter(request, timingResponse);
+                // Responses without a body written by the handler, e.g. files left to the container to send
+                timingResponse.addTimingHeader();
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        } finally {
+            RequestTiming.clear();
+            if (slowRequestThresholdMS > 0) {
+                final long elapsedMS = TimeUnit.NANOSECONDS.toMillis(timing.getElapsedNanos());
+                if (elapsedMS >= slowRequestThresholdMS) {
+                    final String query = request.getQueryString();
+                    LOG.warn("Slow request: " + request.getMethod() + ' ' + request.getRequestURI()
+                            + (query == null ? "" : '?' + query) + " took " + elapsedMS + " ms ("
+                            + timing.toHeaderValue() + ')');
+                }
+            }
+        }
+    }
+
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper {
+        private final RequestTiming timing;
+        private boolean headerAdded = false;
+        private ServletOutputStream outputStream = null;
+
+        public ServerTimingResponse(final HttpServletResponse response, final RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        private void addTimingHeader() {
+            if (!headerAdded) {
+                headerAdded = true;
+                if (!isCommitted()) {
+                    setHeader(HEADER, timing.toHeaderValue());
+                }
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                final ServletOutputStream out = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(final int b) throws IOException {
+                        addTimingHeader();
+                        out.write(b);
+                    }
+
+                    @Override
+                    public void write(final byte[] b, final int off, final int len) throws IOException {
+                        addTimingHeader();
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        addTimingHeader();
+                        out.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        addTimingHeader();
+                        out.close();
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addTimingHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addTimingHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(final int sc) throws IOException {
+            addTimingHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(final int sc, final String msg) throws IOException {
+            addTimingHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(final String location) throws IOException {
+            addTimingHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+/**
+ * Times consecutive stages of a job. Starting a stage ends the previous one and records its duration in the
+ * histogram "prefix.stage"; {@link #finish()} ends the last stage and records the overall duration in "prefix.total".
+ *
+ * Not thread-safe; meant to be used by the single thread running a job.
+ */
+public final class StageTimer {
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+    private final String prefix;
+    private final long jobStartNanos = System.nanoTime();
+    private String currentStage;
+    private long stageStartNanos;
+
+    public StageTimer(final String prefix) {
+        this.prefix = prefix;
+    }
+
+    public void stage(final String stageName) {
+        endStage();
+        currentStage = stageName;
+        stageStartNanos = System.nanoTime();
+    }
+
+    public void finish() {
+        endStage();
+        registry.histogram(prefix + ".total").updateSince(jobStartNanos);
+    }
+
+    private void endStage() {
+        if (currentStage != null) {
+            registry.histogram(prefix + '.' + currentStage).updateSince(stageStartNanos);
+            currentStage = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.processor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.nema.medical.mint.server.domain.JobInfo;
+import org.nema.medical.mint.server.domain.JobInfoDAO;
+import org.nema.medical.mint.server.metrics.StageTimer;
+
+/**
+ * Publishes the progress of a job through its stages to its JobInfo, so that job status requests can tell which
+ * stage a job is in and how long each stage took. Stage durations are also recorded as metrics via a
+ * {@link StageTimer}.
+ *
+ * Not thread-safe; meant to be used by the single thread running a job.
+ */
+class JobProgress {
+    private final JobInfo jobInfo;
+    private final JobInfoDAO jobInfoDAO;
+    private final StageTimer timer;
+    private final List<String> stages;
+    private final StringBuilder stageTimings = new StringBuilder();
+    private int completedStages = 0;
+    private String currentStage;
+    private long stageStartNanos;
+
+    /**
+     * @param stages all stages of the job, in the order they are run; used to compute the progress
+     */
+    public JobProgress(final JobInfo jobInfo, final JobInfoDAO jobInfoDAO, final String metricsPrefix,
+                       final String... stages) {
+        this.jobInfo = jobInfo;
+        this.jobInfoDAO = jobInfoDAO;
+        this.timer = new StageTimer(metricsPrefix);
+        this.stages = Arrays.asList(stages);
+    }
+
+    public void stage(final String stageName) {
+        endStage();
+        timer.stage(stageName);
+        currentStage = stageName;
+        stageStartNanos = System.nanoTime();
+
+        final int stageIndex = stages.indexOf(stageName);
+        if (stageIndex > completedStages) {
+            completedStages = stageIndex;
+        }
+        final int progress = completedStages * 100 / stages.size();
+        jobInfo.setProgress(progress);
+        jobInfo.setCurrentStage(stageName);
+        jobInfo.setStatusDescription(progress + "% complete (" + stageName + ")");
+        publish();
+    }
+
+    /**
+     * Ends the last stage. The caller is expected to set the final status and save the job info itself.
+     */
+    public void finish() {
+        endStage();
+        timer.finish();
+        jobInfo.setProgress(100);
+        jobInfo.setCurrentStage(null);
+    }
+
+    /**
+     * Records the elapsed time of the current stage so that a failed job shows how far it got; the stage is left
+     * as current.
+     */
+    public void fail() {
+        if (currentStage != null) {
+            appendStageTiming();
+            currentStage = null;
+        }
+    }
+
+    private void endStage() {
+        if (currentStage != null) {
+            appendStageTiming();
+            ++completedStages;
+            currentStage = null;
+        }
+    }
+
+    private void appendStageTiming() {
+        if (stageTimings.length() > 0) {
+            stageTimings.append(", ");
+        }
+        stageTimings.append(currentStage).append('=')
+                .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stageStartNanos));
+        jobInfo.setStageTimings(stageTimings.toString());
+    }
+
+    private void publish() {
+        try {
+            jobInfoDAO.saveOrUpdateJobInfo(jobInfo);
+        } catch (final RuntimeException e) {
+            // Progress is informational only; the job itself must not fail because of it
+            LOG.warn("Unable to update progress of job " + jobInfo.getId(), e);
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(JobProgress.class);
+}
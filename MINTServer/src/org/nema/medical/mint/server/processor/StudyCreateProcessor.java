@@ -21,13 +21,20 @@ import org.nema.medical.mint.changelog.ChangeOperation;
 import org.nema.medical.mint.datadictionary.MetadataType;
 import org.nema.medical.mint.metadata.StudyIO;
 import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.server.cache.BinaryItemCache;
 import org.nema.medical.mint.server.domain.*;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.util.MetadataVariants;
+import org.nema.medical.mint.server.util.PackedBinaryStore;
+import org.nema.medical.mint.server.util.SeriesMetadata;
 import org.nema.medical.mint.server.util.StorageUtil;
 import org.nema.medical.mint.utils.StudyTraversals;
 import org.nema.medical.mint.utils.StudyUtils;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.TimerTask;
+import java.util.TreeSet;
 import java.util.UUID;
 
 public class StudyCreateProcessor extends TimerTask {
@@ -43,6 +50,8 @@ public class StudyCreateProcessor extends TimerTask {
 	private final StudyDAO studyDAO;
 	private final ChangeDAO updateDAO;
     private final MetadataType dataDictionary;
+    private final boolean packedBinaryStorage;
+    private BinaryItemCache admissionCache = null;
 
 	/**
 	 * extracts files from the jobFolder, places them in the studyFolder updates
@@ -54,17 +63,22 @@ public class StudyCreateProcessor extends TimerTask {
 	 * @param studyFolder
 	 *            the target folder where the study will be created (will
 	 *            contain a {type} subdir)
+	 * @param packedBinaryStorage
+	 *            store the binary items packed into containers instead of one
+	 *            file each
 	 * @param jobInfoDAO
 	 *            needed to update the database
 	 * @param studyDAO
 	 *            needed to update the database
 	 */
-	public StudyCreateProcessor(File jobFolder, File studyFolder, MetadataType dataDictionary,String remoteUser,
+	public StudyCreateProcessor(File jobFolder, File studyFolder, MetadataType dataDictionary,
+                                boolean packedBinaryStorage, String remoteUser,
                                 String remoteHost, JobInfoDAO jobInfoDAO, StudyDAO studyDAO,
                                 ChangeDAO updateDAO) {
 		this.jobFolder = jobFolder;
 		this.studyFolder = studyFolder;
         this.dataDictionary = dataDictionary;
+        this.packedBinaryStorage = packedBinaryStorage;
 		this.remoteUser = remoteUser;
 		this.remoteHost = remoteHost;
 		this.jobInfoDAO = jobInfoDAO;
@@ -72,6 +86,13 @@ public class StudyCreateProcessor extends TimerTask {
 		this.updateDAO = updateDAO;
 	}
 	
+    /**
+     * @param admissionCache cache to admit the binary items of the new study to once it is stored, or null
+     */
+    public void setAdmissionCache(final BinaryItemCache admissionCache) {
+        this.admissionCache = admissionCache;
+    }
+
     @Override
     public void run() {
 		String jobID = jobFolder.getName();
@@ -80,7 +101,12 @@ public class StudyCreateProcessor extends TimerTask {
 		JobInfo jobInfo = new JobInfo();
 		jobInfo.setId(jobID);
 		jobInfo.setStudyID(studyUUID);
+		jobInfo.setStatus(JobStatus.IN_PROGRESS);
 		
+		final JobProgress progress = new JobProgress(jobInfo, jobInfoDAO, "jobs.create",
+				"load", "validate", "changelog", "write", "move", "database");
+		final File binaryRoot = new File(studyFolder, "DICOM/binaryitems");
+		Collection<Integer> newBids = null;
 		try {	
 			File typeFolder = new File(studyFolder, "DICOM");
 			typeFolder.mkdirs();
@@ -88,6 +114,7 @@ public class StudyCreateProcessor extends TimerTask {
 			changelogRoot.mkdirs();
 
 			//load study into memory
+			progress.stage("load");
 			StudyMetadata study = StudyIO.loadStudy(jobFolder);
 			LOG.info("job " + jobID + " loaded");
 
@@ -102,6 +129,7 @@ public class StudyCreateProcessor extends TimerTask {
                 throw new RuntimeException("Invalid study type " + typeName + " - must be \"DICOM\"");
             }
 
+            progress.stage("validate");
             try {
 			    StorageUtil.validateStudy(study, dataDictionary, jobFolder);
             } catch (final StudyTraversals.TraversalException e) {
@@ -111,9 +139,10 @@ public class StudyCreateProcessor extends TimerTask {
 			LOG.info("job " + jobID + " validated");
 			
             //Write metadata to change log
+            progress.stage("changelog");
             File changelogFolder = StorageUtil.getNextChangelogDir(changelogRoot);
 
-            StudyUtils.writeStudy(study, changelogFolder);
+            MetadataVariants.writeCanonical(study, changelogFolder);
             LOG.info("study changelog for " + jobID + " written");
 
 			// Set to base level version
@@ -121,21 +150,33 @@ public class StudyCreateProcessor extends TimerTask {
 	        study.setType("DICOM");
 			
 			//write study into type folder
-			StudyUtils.writeStudy(study, typeFolder);
+			progress.stage("write");
+			MetadataVariants.write(study, typeFolder);
+			SeriesMetadata.write(study, typeFolder);
 			LOG.info("study metadata for " + jobID + " written");
 	        
 	        //Copy binary data into binaryitems folder
-	        File binaryRoot = new File(typeFolder, "binaryitems");
 			binaryRoot.mkdirs();
+			if (admissionCache != null) {
+				newBids = new TreeSet<Integer>(StorageUtil.getBinaryItemIds(jobFolder));
+			}
 
+			progress.stage("move");
 			LOG.info("moving binary items for " + jobID + " ");
-			StorageUtil.moveBinaryItems(jobFolder, binaryRoot);
+			if (packedBinaryStorage) {
+				PackedBinaryStore.append(jobFolder, binaryRoot);
+			} else {
+				final int highestId = StorageUtil.getHighestNumberedBinaryItem(jobFolder);
+				StorageUtil.moveBinaryItems(jobFolder, binaryRoot);
+				StorageUtil.writeHighestBinaryItemId(binaryRoot, highestId);
+			}
 			LOG.info("moving binary items for " + jobID + " complete");
 			
 			//delete job folder
 			FileUtils.deleteDirectory(jobFolder);
 
 			//update database
+			progress.stage("database");
 			MINTStudy studyData = new MINTStudy();
 			studyData.setID(studyUUID);
 			studyData.setStudyInstanceUID(study.getStudyInstanceUID());
@@ -157,11 +198,14 @@ public class StudyCreateProcessor extends TimerTask {
             updateInfo.setOperation(ChangeOperation.CREATE);
 			updateDAO.saveChange(updateInfo);
 
+			progress.finish();
 			jobInfo.setStatus(JobStatus.SUCCESS);
 			jobInfo.setStatusDescription("complete");
-			LOG.info("job " + jobID + " complete");
+			LOG.info("job " + jobID + " complete, stage timings (ms): " + jobInfo.getStageTimings());
 
 		} catch (Exception e) {
+			MetricsRegistry.getInstance().counter("jobs.create.failed").inc();
+			progress.fail();
 			jobInfo.setStatus(JobStatus.FAILED);
 			jobInfo.setStatusDescription(e.getMessage());
 			LOG.error("unable to process job " + jobID, e);
@@ -169,5 +213,8 @@ public class StudyCreateProcessor extends TimerTask {
 
 		jobInfoDAO.saveOrUpdateJobInfo(jobInfo);
 
+		if (newBids != null && jobInfo.getStatus() == JobStatus.SUCCESS) {
+			admissionCache.admit(studyUUID, "DICOM", binaryRoot, newBids);
+		}
 	}
 }
@@ -21,7 +21,14 @@ import org.nema.medical.mint.changelog.ChangeOperation;
 import org.nema.medical.mint.datadictionary.MetadataType;
 import org.nema.medical.mint.metadata.StudyIO;
 import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.server.cache.BinaryItemCache;
+import org.nema.medical.mint.server.cache.MetadataCache;
 import org.nema.medical.mint.server.domain.*;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.util.MetadataHistory;
+import org.nema.medical.mint.server.util.MetadataVariants;
+import org.nema.medical.mint.server.util.PackedBinaryStore;
+import org.nema.medical.mint.server.util.SeriesMetadata;
 import org.nema.medical.mint.server.util.StorageUtil;
 import org.nema.medical.mint.utils.StudyTraversals;
 import org.nema.medical.mint.utils.StudyUtils;
@@ -54,22 +61,30 @@ public class StudyUpdateProcessor extends TimerTask {
 	private final StudyDAO studyDAO;
 	private final ChangeDAO updateDAO;
     private final Map<String, MetadataType> availableTypes;
+    private final boolean packedBinaryStorage;
+    private BinaryItemCache admissionCache = null;
+    private MetadataCache metadataCache = null;
+    private int snapshotInterval = 0;
 
 	/**
 	 * extracts files from the jobFolder, merges them in the studyFolder
 	 * updates the database
 	 * @param jobFolder the folder containing the uploaded files - must contain metadata.xml or metadata.gpb
 	 * @param studyFolder the target folder where the study to update exists
+	 * @param packedBinaryStorage store the binary items of types that have none yet packed into containers;
+	 * types that already have binary items keep their layout
 	 * @param jobInfoDAO needed to update the database
 	 * @param studyDAO needed to update the database
 	 */
 	public StudyUpdateProcessor(final File jobFolder, final File studyFolder,
-                                final Map<String, MetadataType> availableTypes, final int oldVersion,
+                                final Map<String, MetadataType> availableTypes,
+                                final boolean packedBinaryStorage, final int oldVersion,
                                 final String remoteUser, final String remoteHost,
                                 final JobInfoDAO jobInfoDAO, final StudyDAO studyDAO, final ChangeDAO updateDAO) {
 		this.jobFolder = jobFolder;
 		this.studyFolder = studyFolder;
 		this.availableTypes = availableTypes;
+		this.packedBinaryStorage = packedBinaryStorage;
         this.oldVersion = oldVersion;
 		this.remoteUser = remoteUser;
 		this.remoteHost = remoteHost;
@@ -78,6 +93,28 @@ public class StudyUpdateProcessor extends TimerTask {
 		this.updateDAO = updateDAO;
 	}
 
+	/**
+	 * @param admissionCache cache to admit the binary items added by the update to once it is stored, or null
+	 */
+	public void setAdmissionCache(final BinaryItemCache admissionCache) {
+		this.admissionCache = admissionCache;
+	}
+
+	/**
+	 * @param metadataCache cache to drop the representations of the previous study versions from, or null
+	 */
+	public void setMetadataCache(final MetadataCache metadataCache) {
+		this.metadataCache = metadataCache;
+	}
+
+	/**
+	 * @param snapshotInterval keep a snapshot of every version that is a multiple of this, for rebuilding earlier
+	 * versions; 0 for none
+	 */
+	public void setSnapshotInterval(final int snapshotInterval) {
+		this.snapshotInterval = snapshotInterval;
+	}
+
 	@Override
 	public void run() {
 		LOG.debug("Execution started.");
@@ -88,6 +125,7 @@ public class StudyUpdateProcessor extends TimerTask {
 		JobInfo jobInfo = new JobInfo();
 		jobInfo.setId(jobID);
 		jobInfo.setStudyID(studyUUID);
+		jobInfo.setStatus(JobStatus.IN_PROGRESS);
 		
 		Lock lock = new ReentrantLock(), oldLock;
 		
@@ -98,8 +136,13 @@ public class StudyUpdateProcessor extends TimerTask {
 			lock = oldLock;
 		}
 		
+		String typeName = null;
+		File binaryFolder = null;
+		Collection<Integer> newBids = null;
 		if(lock.tryLock())
 		{
+			final JobProgress progress = new JobProgress(jobInfo, jobInfoDAO, "jobs.update",
+					"load", "validate", "shift", "changelog", "merge", "normalize", "write", "move", "database");
 			try
 			{
 	            LOG.debug("Got lock, and starting process");
@@ -116,8 +159,9 @@ public class StudyUpdateProcessor extends TimerTask {
 				/*
 				 * Need to load new study information
 				 */
+				progress.stage("load");
 				final StudyMetadata newStudy = StudyIO.loadStudy(jobFolder);
-                final String typeName = newStudy.getType();
+                typeName = newStudy.getType();
                 final MetadataType dataDictionary = availableTypes.get(typeName);
                 if (dataDictionary == null) {
                     throw new RuntimeException("Invalid study type " + typeName);
@@ -128,6 +172,7 @@ public class StudyUpdateProcessor extends TimerTask {
                             "Study update data specifies a version [" + newStudy.getVersion() + "]; versions are controlled by server, not client");
                 }
 
+                progress.stage("validate");
                 try {
                     StorageUtil.validateStudy(newStudy, dataDictionary, jobFolder);
                 } catch (final StudyTraversals.TraversalException e) {
@@ -137,6 +182,8 @@ public class StudyUpdateProcessor extends TimerTask {
                 final File typeFolder = new File(studyFolder, typeName);
                 final File existingBinaryFolder = new File(typeFolder, "binaryitems");
                 existingBinaryFolder.mkdirs();
+                final boolean packed = PackedBinaryStore.isPacked(existingBinaryFolder)
+                        || (packedBinaryStorage && StorageUtil.readHighestBinaryItemId(existingBinaryFolder) < 0);
 
                 StudyMetadata existingStudy;
                 try {
@@ -169,16 +216,21 @@ public class StudyUpdateProcessor extends TimerTask {
 				 * with existing data files when merging. This also means updating
 				 * the new study document.
 				 */
-				final int maxExistingItemNumber = StorageUtil.getHighestNumberedBinaryItem(existingBinaryFolder);
+				progress.stage("shift");
+				final int maxExistingItemNumber = packed
+						? PackedBinaryStore.readHighestId(existingBinaryFolder)
+						: StorageUtil.readHighestBinaryItemId(existingBinaryFolder);
 				StorageUtil.shiftItemIds(newStudy, jobFolder, maxExistingItemNumber + 1);
 
 				/*
 				 * Write metadata update message to change log folder.
 				 */
+		        progress.stage("changelog");
 		        File changelogFolder = StorageUtil.getNextChangelogDir(changelogRoot);
 		        
-		        StudyUtils.writeStudy(newStudy, changelogFolder);
+		        MetadataVariants.writeCanonical(newStudy, changelogFolder);
 				
+		        progress.stage("merge");
 		        Collection<Integer> excludedBids = new HashSet<Integer>();
 		        if(existingStudy != null)
 		        {
@@ -222,20 +274,41 @@ public class StudyUpdateProcessor extends TimerTask {
 		        }
 		        
 		        //Rename all excluded binary files to have .exclude
-				StorageUtil.renameExcludedFiles(existingBinaryFolder, excludedBids);
+				if (packed) {
+					PackedBinaryStore.markExcluded(existingBinaryFolder, excludedBids);
+				} else {
+					StorageUtil.renameExcludedFiles(existingBinaryFolder, excludedBids);
+				}
 
+                progress.stage("normalize");
                 StudyUtils.normalizeStudy(existingStudy);
 
 				/*
 				 * Need to copy into the Study folder the new study document and
 				 * binary data files.
 				 */
-				StudyUtils.writeStudy(existingStudy, typeFolder);
+				progress.stage("write");
+				MetadataVariants.write(existingStudy, typeFolder);
+				SeriesMetadata.write(existingStudy, typeFolder);
+				MetadataHistory.keepSnapshot(existingStudy, typeFolder, snapshotInterval);
 				
-				StorageUtil.moveBinaryItems(jobFolder, existingBinaryFolder);
+				progress.stage("move");
+				if (admissionCache != null) {
+					binaryFolder = existingBinaryFolder;
+					newBids = new TreeSet<Integer>(StorageUtil.getBinaryItemIds(jobFolder));
+				}
+				if (packed) {
+					PackedBinaryStore.append(jobFolder, existingBinaryFolder);
+				} else {
+					final int highestNewId = StorageUtil.getHighestNumberedBinaryItem(jobFolder);
+					StorageUtil.moveBinaryItems(jobFolder, existingBinaryFolder);
+					StorageUtil.writeHighestBinaryItemId(existingBinaryFolder,
+							Math.max(maxExistingItemNumber, highestNewId));
+				}
 				
                 FileUtils.deleteDirectory(jobFolder);
 
+                progress.stage("database");
                 //Update study DAO only if this is DICOM data; don't update study DAO for other types (DICOM is primary)
                 if (typeName.equals("DICOM")) {
                     MINTStudy studyData = new MINTStudy();
@@ -259,10 +332,17 @@ public class StudyUpdateProcessor extends TimerTask {
 				updateInfo.setIndex(Integer.parseInt(changelogFolder.getName()));
                 updateInfo.setOperation(ChangeOperation.UPDATE);
 				updateDAO.saveChange(updateInfo);
+				if (metadataCache != null) {
+					metadataCache.invalidateStudy(studyUUID);
+				}
+				progress.finish();
 	
 				jobInfo.setStatus(JobStatus.SUCCESS);
 				jobInfo.setStatusDescription("complete");
+				LOG.info("job " + jobID + " complete, stage timings (ms): " + jobInfo.getStageTimings());
 			}catch(Exception e){
+				MetricsRegistry.getInstance().counter("jobs.update.failed").inc();
+				progress.fail();
 				jobInfo.setStatus(JobStatus.FAILED);
 				jobInfo.setStatusDescription(e.getMessage());
 				LOG.error("unable to process job " + jobID, e);
@@ -277,6 +357,10 @@ public class StudyUpdateProcessor extends TimerTask {
 		}
 		
 		jobInfoDAO.saveOrUpdateJobInfo(jobInfo);
+
+		if (newBids != null && jobInfo.getStatus() == JobStatus.SUCCESS) {
+			admissionCache.admit(studyUUID, typeName, binaryFolder, newBids);
+		}
 	}
 
 }
@@ -16,7 +16,6 @@
 
 package org.nema.medical.mint.server.receiver;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -36,11 +35,19 @@ import org.dcm4che2.data.UID;
 import org.dcm4che2.io.DicomOutputStream;
 import org.dcm4che2.net.*;
 import org.dcm4che2.net.service.StorageService;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.Meter;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+import org.nema.medical.mint.server.util.BufferPool;
 
 public final class DICOMReceive {
 
     private static final Logger LOG = Logger.getLogger(DICOMReceive.class);
 
+    private static final Meter ASSOCIATIONS_ACCEPTED = MetricsRegistry.getInstance().meter("dicom.receive.associations");
+    private static final Meter INSTANCES_RECEIVED = MetricsRegistry.getInstance().meter("dicom.receive.instances");
+    private static final Meter BYTES_RECEIVED = MetricsRegistry.getInstance().meter("dicom.receive.bytes");
+
     public static final String DICOM_FILE_EXTENSION = ".dcm";
     public static final String PARTIAL_FILE_EXTENSION = ".part";
 
@@ -203,16 +210,19 @@ public final class DICOMReceive {
             final BasicDicomObject fileMetaDcmObj = new BasicDicomObject();
             fileMetaDcmObj.initFileMetaInformation(classUID, instanceUID, transferSyntaxUID);
             //600000 bytes appears to be a fairly optimal cache size to maximize throughput
-            //for single-frame CT data
+            //for single-frame CT data; the pool rounds it up to its 1 MB size class
             final DicomOutputStream outStream = new DicomOutputStream(
-                    new BufferedOutputStream(new FileOutputStream(dicomFile), 600000));
+                    BufferPool.getInstance().bufferedOutputStream(new FileOutputStream(dicomFile), 600000));
             try {
                 outStream.writeFileMetaInformation(fileMetaDcmObj);
                 dataStream.copyTo(outStream);
             } finally {
                 outStream.close();
             }
-            dicomFile.renameTo(new File(associationDir, dicomFileBaseName));
+            final File storedFile = new File(associationDir, dicomFileBaseName);
+            dicomFile.renameTo(storedFile);
+            INSTANCES_RECEIVED.mark();
+            BYTES_RECEIVED.mark(storedFile.length());
         }
 
         @Override
@@ -220,6 +230,7 @@ public final class DICOMReceive {
             final UUID assocUUID = UUID.randomUUID();
             final Association association = associationAcceptEvent.getAssociation();
             associationDataMap.put(association, assocUUID);
+            ASSOCIATIONS_ACCEPTED.mark();
             LOG.info("Association created: " + association.toString());
         }
 
@@ -287,12 +298,18 @@ public final class DICOMReceive {
     }
 
     public final void start() throws IOException {
+        MetricsRegistry.getInstance().registerGauge("dicom.receive.openAssociations", new Gauge() {
+            public long getValue() {
+                return associationDataMap.size();
+            }
+        });
         device.startListening(executor);
     	LOG.debug("DICOM Receive started.");
     }
 
     public final void stop() {
         device.stopListening();
+        MetricsRegistry.getInstance().unregisterGauge("dicom.receive.openAssociations");
     	LOG.debug("DICOM Receive stopped.");
 
     	executor.shutdown();
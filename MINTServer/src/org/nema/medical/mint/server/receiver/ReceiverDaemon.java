@@ -74,6 +74,8 @@ public class ReceiverDaemon {
 
     ScheduledExecutorService dcm2MintExecutor;
 
+    ProcessImportDir importProcessor;
+
     @PostConstruct
     public void postConstruct() {
         setUpCStoreSCP();
@@ -109,6 +111,7 @@ public class ReceiverDaemon {
         final ProcessImportDir importProcessor = new ProcessImportDir(
                 storageRootDir, serverURI, useXMLNotGPB, deletePhysicalFiles,
                 forceCreate, binaryInlineThreshold);
+        this.importProcessor = importProcessor;
         final Runnable checkResponsesTask = new Runnable() {
             public void run() {
                 try {
@@ -167,5 +170,9 @@ public class ReceiverDaemon {
             }
             dcm2MintExecutor = null;
         }
+        if (importProcessor != null) {
+            importProcessor.close();
+            importProcessor = null;
+        }
     }
 }
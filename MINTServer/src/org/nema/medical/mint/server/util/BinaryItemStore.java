@@ -0,0 +1,202 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.nema.medical.mint.server.metrics.RequestTiming;
+
+/**
+ * Read access to the binary items of one study type, whichever way they are laid out on disk: one file per item
+ * (bid.dat, or bid.exclude once excluded) or packed into containers by {@link PackedBinaryStore}.
+ * A store is meant to serve one request and must be closed afterwards; it may be read from several threads at once,
+ * e.g. to read ahead.
+ */
+public abstract class BinaryItemStore implements Closeable {
+
+    /**
+     * @param binaryRoot the binaryitems folder of a study type
+     * @return a store reading the packed layout if the folder has an index, otherwise the per-file layout
+     * @throws IOException if the packed index cannot be opened
+     */
+    public static BinaryItemStore open(final File binaryRoot) throws IOException {
+        if (PackedBinaryStore.isPacked(binaryRoot)) {
+            return new PackedBinaryStore(binaryRoot);
+        }
+        return new FileStore(binaryRoot);
+    }
+
+    /**
+     * @return the highest binary item id, counting excluded items, or -1 if there are no binary items
+     */
+    public abstract int getHighestId() throws IOException;
+
+    /**
+     * @return where the binary item is stored, or null if it does not exist or is excluded and excluded items
+     * were not asked for
+     */
+    public abstract BinaryItem getItem(int bid, boolean includeExcluded) throws IOException;
+
+    /**
+     * Copies up to length bytes of the binary item, starting at position first within the item, to the output
+     * stream, using positional reads through the given buffer.
+     *
+     * @return the number of bytes copied
+     */
+    public long copyTo(final BinaryItem item, final long first, final long length, final OutputStream out,
+                       final byte[] buffer) throws IOException {
+        final long count = Math.min(length, item.getLength() - first);
+        final FileChannel channel = openChannel(item.getFile());
+        final long streamStart = RequestTiming.begin();
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long total = 0;
+        try {
+            while (total < count) {
+                byteBuffer.clear();
+                byteBuffer.limit((int) Math.min(buffer.length, count - total));
+                final int amountRead = channel.read(byteBuffer, item.getOffset() + first + total);
+                if (amountRead == -1) {
+                    break;
+                }
+                out.write(buffer, 0, amountRead);
+                total += amountRead;
+            }
+        } finally {
+            releaseChannel(channel);
+            RequestTiming.end(RequestTiming.STREAMING, streamStart);
+        }
+        return total;
+    }
+
+    /**
+     * Reads up to length bytes of the binary item, starting at position first within the item, into the array.
+     *
+     * @return the number of bytes read, less than length only if the item ends first
+     */
+    public int read(final BinaryItem item, final long first, final byte[] bytes, final int offset, final int length)
+            throws IOException {
+        final int count = (int) Math.min(length, item.getLength() - first);
+        return read(item, first, ByteBuffer.wrap(bytes, offset, count));
+    }
+
+    /**
+     * Reads the binary item, starting at position first within the item, into the buffer until it is full or the
+     * item ends.
+     *
+     * @return the number of bytes read
+     */
+    public int read(final BinaryItem item, final long first, final ByteBuffer target) throws IOException {
+        final int start = target.position();
+        final FileChannel channel = openChannel(item.getFile());
+        try {
+            while (target.hasRemaining()) {
+                if (channel.read(target, item.getOffset() + first + target.position() - start) == -1) {
+                    break;
+                }
+            }
+        } finally {
+            releaseChannel(channel);
+        }
+        return target.position() - start;
+    }
+
+    protected FileChannel openChannel(final File file) throws IOException {
+        final long openStart = RequestTiming.begin();
+        try {
+            return new FileInputStream(file).getChannel();
+        } finally {
+            RequestTiming.end(RequestTiming.FILE_OPEN, openStart);
+        }
+    }
+
+    protected void releaseChannel(final FileChannel channel) throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * The location of a binary item: length bytes of file, starting at offset.
+     */
+    public static final class BinaryItem {
+        private final File file;
+        private final long offset;
+        private final long length;
+        private final boolean excluded;
+
+        public BinaryItem(final File file, final long offset, final long length, final boolean excluded) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+            this.excluded = excluded;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public boolean isExcluded() {
+            return excluded;
+        }
+    }
+
+    /**
+     * The original layout, one file per binary item.
+     */
+    private static final class FileStore extends BinaryItemStore {
+        private final File binaryRoot;
+
+        FileStore(final File binaryRoot) {
+            this.binaryRoot = binaryRoot;
+        }
+
+        @Override
+        public int getHighestId() throws IOException {
+            return StorageUtil.readHighestBinaryItemId(binaryRoot);
+        }
+
+        @Override
+        public BinaryItem getItem(final int bid, final boolean includeExcluded) {
+            final File file = new File(binaryRoot, bid + "." + StorageUtil.BINARY_FILE_EXTENSION);
+            if (file.exists() && file.canRead()) {
+                return new BinaryItem(file, 0, file.length(), false);
+            }
+            if (includeExcluded) {
+                final File excludedFile = new File(binaryRoot, bid + "." + StorageUtil.EXCLUDED_BINARY_FILE_EXTENSION);
+                if (excludedFile.exists() && excludedFile.canRead()) {
+                    return new BinaryItem(excludedFile, 0, excludedFile.length(), true);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.nema.medical.mint.server.metrics.Counter;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+
+/**
+ * A shared pool of reusable byte arrays for I/O copy buffers, so that the copy loops of the server do not allocate a
+ * new large array for every request, stored instance or file read.
+ *
+ * Buffers come in size classes, powers of two from MIN_SIZE to MAX_SIZE; a request is rounded up to its class, and
+ * requests larger than MAX_SIZE are allocated outside of the pool. Each thread keeps its most recently released
+ * buffer of up to THREAD_CACHE_MAX_SIZE to itself, so a thread copying over and over does not touch the shared
+ * pool; other released buffers go back to the shared pool of their class as long as it holds less than its
+ * capacity in total, and are left to the garbage collector otherwise.
+ *
+ * The content of an acquired buffer is undefined, and a buffer must not be used any more once released.
+ */
+public final class BufferPool {
+
+    public static final int MIN_SIZE = 4 * 1024;
+    public static final int MAX_SIZE = 1024 * 1024;
+    public static final int THREAD_CACHE_MAX_SIZE = 64 * 1024;
+
+    private static final BufferPool INSTANCE = new BufferPool(32L * 1024 * 1024);
+    static {
+        MetricsRegistry.getInstance().registerGauge("bufferpool.bytes", new Gauge() {
+            public long getValue() {
+                return INSTANCE.getPooledBytes();
+            }
+        });
+    }
+
+    public static BufferPool getInstance() {
+        return INSTANCE;
+    }
+
+    private final List<Queue<byte[]>> classes = new ArrayList<Queue<byte[]>>();
+    private final ThreadLocal<byte[]> threadCache = new ThreadLocal<byte[]>();
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private volatile long capacity;
+
+    /**
+     * @param capacity the most bytes the shared pool holds on to; 0 disables it, leaving the thread caches
+     */
+    public BufferPool(final long capacity) {
+        this.capacity = capacity;
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size <<= 1) {
+            classes.add(new ConcurrentLinkedQueue<byte[]>());
+        }
+    }
+
+    public void setCapacity(final long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return a buffer of at least the given size
+     */
+    public byte[] acquire(final int minimumSize) {
+        if (minimumSize > MAX_SIZE) {
+            OVERSIZE.inc();
+            return new byte[minimumSize];
+        }
+        int sizeClass = 0;
+        int size = MIN_SIZE;
+        while (size < minimumSize) {
+            size <<= 1;
+            ++sizeClass;
+        }
+
+        final byte[] cached = threadCache.get();
+        if (cached != null && cached.length == size) {
+            threadCache.remove();
+            HITS.inc();
+            return cached;
+        }
+        final byte[] pooled = classes.get(sizeClass).poll();
+        if (pooled != null) {
+            pooledBytes.addAndGet(-size);
+            HITS.inc();
+            return pooled;
+        }
+        MISSES.inc();
+        return new byte[size];
+    }
+
+    /**
+     * Returns a buffer to the pool; buffers that were not acquired from a pool, and null, are ignored.
+     */
+    public void release(final byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        final int sizeClass = sizeClassOf(buffer.length);
+        if (sizeClass < 0) {
+            return;
+        }
+        if (buffer.length <= THREAD_CACHE_MAX_SIZE && threadCache.get() == null) {
+            threadCache.set(buffer);
+            return;
+        }
+        if (pooledBytes.addAndGet(buffer.length) > capacity) {
+            pooledBytes.addAndGet(-buffer.length);
+            DISCARDS.inc();
+            return;
+        }
+        classes.get(sizeClass).offer(buffer);
+    }
+
+    /**
+     * @return the number of bytes held by the shared pool, not counting the thread caches
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * @return a buffered stream whose buffer comes from the pool and goes back to it when the stream is closed
+     */
+    public BufferedOutputStream bufferedOutputStream(final OutputStream out, final int size) {
+        return new PooledOutputStream(out, size);
+    }
+
+    /**
+     * @return a buffered stream whose buffer comes from the pool and goes back to it when the stream is closed
+     */
+    public BufferedInputStream bufferedInputStream(final InputStream in, final int size) {
+        return new PooledInputStream(in, size);
+    }
+
+    private static int sizeClassOf(final int length) {
+        int sizeClass = 0;
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size <<= 1) {
+            if (size == length) {
+                return sizeClass;
+            }
+            ++sizeClass;
+        }
+        return -1;
+    }
+
+    private final class PooledOutputStream extends BufferedOutputStream {
+
+        private boolean released = false;
+
+        PooledOutputStream(final OutputStream out, final int size) {
+            super(out, 1);
+            buf = acquire(size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!released) {
+                    released = true;
+                    final byte[] buffer = buf;
+                    // Anything written after close goes straight through instead of into a buffer now pooled
+                    buf = new byte[1];
+                    count = 0;
+                    release(buffer);
+                }
+            }
+        }
+    }
+
+    private final class PooledInputStream extends BufferedInputStream {
+
+        PooledInputStream(final InputStream in, final int size) {
+            super(in, 1);
+            buf = acquire(size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Closing clears buf, so that the buffer is released only once; it may have been replaced by a larger,
+            // unpooled one if mark() asked for more than it holds
+            final byte[] buffer = buf;
+            try {
+                super.close();
+            } finally {
+                release(buffer);
+            }
+        }
+    }
+
+    private static final Counter HITS = MetricsRegistry.getInstance().counter("bufferpool.hits");
+    private static final Counter MISSES = MetricsRegistry.getInstance().counter("bufferpool.misses");
+    private static final Counter OVERSIZE = MetricsRegistry.getInstance().counter("bufferpool.oversize");
+    private static final Counter DISCARDS = MetricsRegistry.getInstance().counter("bufferpool.discards");
+}
@@ -0,0 +1,114 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.util.BitSet;
+
+import org.nema.medical.mint.metadata.Attribute;
+import org.nema.medical.mint.metadata.Instance;
+import org.nema.medical.mint.metadata.Series;
+import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.utils.Iter;
+import org.nema.medical.mint.utils.StudyTraversals;
+import org.nema.medical.mint.utils.StudyTraversals.TraversalException;
+
+/**
+ * The binary items of a study type that hold pixel data already compressed by the transfer syntax of their
+ * instance (JPEG, JPEG 2000, RLE, MPEG, ...). Compressing such items again costs CPU and gains nothing, so transfer
+ * compression skips them; every other binary item (native pixel data, overlays, waveforms, ...) is compressible.
+ *
+ * An index is built from the metadata of the study type and covers the binary items stored at that time; items
+ * appended by a later update are outside of it and call for a new index.
+ */
+public final class EncapsulatedItemIndex {
+
+    private static final int PIXEL_DATA_TAG = 0x7FE00010;
+
+    private final BitSet encapsulated;
+    private final int highestId;
+
+    private EncapsulatedItemIndex(final BitSet encapsulated, final int highestId) {
+        this.encapsulated = encapsulated;
+        this.highestId = highestId;
+    }
+
+    /**
+     * @param study the metadata of the study type
+     * @param highestId the highest bid stored for the study type when its metadata was read
+     */
+    public static EncapsulatedItemIndex build(final StudyMetadata study, final int highestId) {
+        final BitSet encapsulated = new BitSet();
+        for (final Series series: Iter.iter(study.seriesIterator())) {
+            for (final Instance instance: Iter.iter(series.instanceIterator())) {
+                if (isNativeTransferSyntax(instance.getTransferSyntaxUID())) {
+                    continue;
+                }
+                try {
+                    StudyTraversals.hierarchicalAttributeContainerTraverser(instance,
+                            new StudyTraversals.AttributeAction() {
+                        public void doAction(final Attribute attribute) {
+                            final int bid = attribute.getBid();
+                            if (attribute.getTag() == PIXEL_DATA_TAG && bid >= 0) {
+                                // Encapsulated multi-frame pixel data is stored one frame per binary item
+                                encapsulated.set(bid, bid + Math.max(1, attribute.getFrameCount()));
+                            }
+                        }
+                    });
+                } catch (final TraversalException e) {
+                    // The action never throws
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return new EncapsulatedItemIndex(encapsulated, highestId);
+    }
+
+    /**
+     * @return true if the binary item holds pixel data compressed by its instance's transfer syntax
+     */
+    public boolean isEncapsulated(final int bid) {
+        return encapsulated.get(bid);
+    }
+
+    /**
+     * @return true if the binary item was stored when this index was built
+     */
+    public boolean covers(final int bid) {
+        return bid <= highestId;
+    }
+
+    /**
+     * @return true if pixel data in the given transfer syntax is stored uncompressed; instances without a
+     * transfer syntax are taken to be native
+     */
+    public static boolean isNativeTransferSyntax(final String transferSyntaxUID) {
+        if (transferSyntaxUID == null) {
+            return true;
+        }
+        final String uid = transferSyntaxUID.trim();
+        return uid.length() == 0
+                || uid.equals(IMPLICIT_VR_LITTLE_ENDIAN)
+                || uid.equals(EXPLICIT_VR_LITTLE_ENDIAN)
+                || uid.equals(EXPLICIT_VR_BIG_ENDIAN)
+                // Deflate applies to the data set encoding; the pixel data inside it is native
+                || uid.equals(DEFLATED_EXPLICIT_VR_LITTLE_ENDIAN);
+    }
+
+    private static final String IMPLICIT_VR_LITTLE_ENDIAN = "1.2.840.10008.1.2";
+    private static final String EXPLICIT_VR_LITTLE_ENDIAN = "1.2.840.10008.1.2.1";
+    private static final String EXPLICIT_VR_BIG_ENDIAN = "1.2.840.10008.1.2.2";
+    private static final String DEFLATED_EXPLICIT_VR_LITTLE_ENDIAN = "1.2.840.10008.1.2.1.99";
+}
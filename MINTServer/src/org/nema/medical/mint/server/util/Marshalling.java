@@ -0,0 +1,108 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jibx.runtime.BindingDirectory;
+import org.jibx.runtime.IBindingFactory;
+import org.jibx.runtime.IMarshallingContext;
+import org.jibx.runtime.JiBXException;
+import org.nema.medical.mint.server.metrics.Counter;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+
+/**
+ * JiBX marshalling for small, frequent responses (search results, changelogs, job status): binding factories are
+ * looked up once, and marshalling contexts are reset and reused instead of being created for every document.
+ */
+public final class Marshalling {
+
+    // Idle contexts kept per binding; enough for the request threads marshalling at the same time
+    private static final int MAX_IDLE_CONTEXTS = 16;
+
+    private static final ConcurrentMap<String, Binding> BINDINGS = new ConcurrentHashMap<String, Binding>();
+
+    private Marshalling() {
+    }
+
+    /**
+     * Writes a document to out as XML.
+     *
+     * @param compact if true, the XML is written without indentation or stylesheet
+     * @param xmlStylesheet the stylesheet processing instruction for readable XML, or null for none
+     */
+    public static void marshal(final Object document, final String bindingName, final Class<?> rootClass,
+                               final OutputStream out, final boolean compact, final String xmlStylesheet)
+            throws IOException, JiBXException {
+        final Binding binding = getBinding(bindingName, rootClass);
+        IMarshallingContext mctx = binding.idle.poll();
+        if (mctx == null) {
+            mctx = binding.factory.createMarshallingContext();
+            CONTEXTS_CREATED.inc();
+        } else {
+            binding.idleCount.decrementAndGet();
+            CONTEXTS_REUSED.inc();
+        }
+
+        mctx.setIndent(compact ? -1 : 2);
+        mctx.startDocument("UTF-8", null, out);
+        if (!compact && xmlStylesheet != null) {
+            mctx.getXmlWriter().writePI("xml-stylesheet", xmlStylesheet);
+        }
+        mctx.marshalDocument(document);
+        mctx.endDocument();
+
+        // Contexts that failed part way are dropped rather than returned in an unknown state
+        mctx.reset();
+        if (binding.idleCount.incrementAndGet() <= MAX_IDLE_CONTEXTS) {
+            binding.idle.offer(mctx);
+        } else {
+            binding.idleCount.decrementAndGet();
+        }
+    }
+
+    private static Binding getBinding(final String bindingName, final Class<?> rootClass) throws JiBXException {
+        final String key = bindingName + "/" + rootClass.getName();
+        Binding binding = BINDINGS.get(key);
+        if (binding == null) {
+            binding = new Binding(BindingDirectory.getFactory(bindingName, rootClass));
+            final Binding existing = BINDINGS.putIfAbsent(key, binding);
+            if (existing != null) {
+                binding = existing;
+            }
+        }
+        return binding;
+    }
+
+    private static final class Binding {
+        final IBindingFactory factory;
+        final Queue<IMarshallingContext> idle = new ConcurrentLinkedQueue<IMarshallingContext>();
+        final AtomicInteger idleCount = new AtomicInteger();
+
+        Binding(final IBindingFactory factory) {
+            this.factory = factory;
+        }
+    }
+
+    private static final Counter CONTEXTS_CREATED = MetricsRegistry.getInstance().counter("marshalling.created");
+    private static final Counter CONTEXTS_REUSED = MetricsRegistry.getInstance().counter("marshalling.reused");
+}
@@ -0,0 +1,184 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.nema.medical.mint.utils.Iter.iter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.nema.medical.mint.changelog.ChangeOperation;
+import org.nema.medical.mint.metadata.Attribute;
+import org.nema.medical.mint.metadata.Instance;
+import org.nema.medical.mint.metadata.Series;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.server.domain.Change;
+
+/**
+ * Merges the update documents kept in a study's changelog into a single update, so that a client holding one
+ * version of a study type can be brought to the current version without fetching the whole study again.
+ *
+ * The merged update has the same effect as applying the updates one after the other: later attributes replace
+ * earlier ones, excludes are kept (an exclude also covers anything added by an earlier update), and normalized
+ * instance attributes are pushed into the instances of the update they came with, as the update processor does.
+ * Excluding a series or an instance and adding it again in a later update cannot be expressed in one update
+ * document; such ranges are reported with an IllegalStateException.
+ */
+public final class MetadataDelta {
+
+    private MetadataDelta() {
+    }
+
+    /**
+     * @return the changelog indexes of the versions of a study type, the index of version N at position N
+     */
+    public static List<Integer> findVersionIndexes(final List<Change> changes, final String type) {
+        final List<Integer> indexes = new ArrayList<Integer>();
+        if (changes != null) {
+            for (final Change change: changes) {
+                if (type.equals(change.getType()) && change.getOperation() != ChangeOperation.DELETE) {
+                    indexes.add(change.getIndex());
+                }
+            }
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * Loads the updates of versions sinceVersion + 1 to the latest from the changelog and merges them.
+     *
+     * @param versionIndexes as returned by findVersionIndexes
+     * @throws IllegalArgumentException if sinceVersion is not a version of the study type
+     * @throws IllegalStateException if the changes cannot be expressed as one update
+     */
+    public static StudyMetadata load(final File changelogRoot, final List<Integer> versionIndexes,
+                                     final int sinceVersion) throws IOException {
+        if (sinceVersion < 0 || sinceVersion >= versionIndexes.size()) {
+            throw new IllegalArgumentException("Invalid version requested: " + sinceVersion);
+        }
+        final List<StudyMetadata> updates = new ArrayList<StudyMetadata>();
+        for (final Integer index: versionIndexes.subList(sinceVersion + 1, versionIndexes.size())) {
+            updates.add(StudyIO.loadStudy(new File(changelogRoot, index.toString())));
+        }
+        final StudyMetadata delta = merge(updates);
+        delta.setVersion(versionIndexes.size() - 1);
+        return delta;
+    }
+
+    /**
+     * Merges update documents, in the order they were applied. The documents are consumed by the merge.
+     */
+    public static StudyMetadata merge(final List<StudyMetadata> updates) {
+        final StudyMetadata delta = new StudyMetadata();
+        for (final StudyMetadata update: updates) {
+            if (delta.getStudyInstanceUID() == null) {
+                delta.setStudyInstanceUID(update.getStudyInstanceUID());
+            }
+            if (update.getType() != null) {
+                delta.setType(update.getType());
+            }
+            for (final Attribute attribute: iter(update.attributeIterator())) {
+                delta.putAttribute(attribute);
+            }
+            for (final Series series: iter(update.seriesIterator())) {
+                mergeSeries(delta, series);
+            }
+        }
+        return delta;
+    }
+
+    private static void mergeSeries(final StudyMetadata delta, final Series series) {
+        final String uid = series.getSeriesInstanceUID();
+        if (series.isExcluded()) {
+            final Series exclude = new Series();
+            exclude.setSeriesInstanceUID(uid);
+            exclude.setExcluded(true);
+            delta.putSeries(exclude);
+            return;
+        }
+        denormalize(series);
+
+        final Series deltaSeries = delta.getSeries(uid);
+        if (deltaSeries == null) {
+            delta.putSeries(series);
+            return;
+        }
+        if (deltaSeries.isExcluded()) {
+            throw new IllegalStateException("Series " + uid + " is excluded and added again");
+        }
+        for (final Attribute attribute: iter(series.attributeIterator())) {
+            deltaSeries.putAttribute(attribute);
+        }
+        for (final Attribute attribute: iter(series.normalizedInstanceAttributeIterator())) {
+            deltaSeries.putNormalizedInstanceAttribute(attribute);
+        }
+        for (final Instance instance: iter(series.instanceIterator())) {
+            mergeInstance(deltaSeries, instance);
+        }
+    }
+
+    private static void mergeInstance(final Series deltaSeries, final Instance instance) {
+        final String uid = instance.getSOPInstanceUID();
+        if (instance.isExcluded()) {
+            final Instance exclude = new Instance();
+            exclude.setSOPInstanceUID(uid);
+            exclude.setExcluded(true);
+            deltaSeries.putInstance(exclude);
+            return;
+        }
+
+        final Instance deltaInstance = deltaSeries.getInstance(uid);
+        if (deltaInstance == null) {
+            deltaSeries.putInstance(instance);
+            return;
+        }
+        if (deltaInstance.isExcluded()) {
+            throw new IllegalStateException("Instance " + uid + " is excluded and added again");
+        }
+        final String transferSyntaxUID = instance.getTransferSyntaxUID();
+        if (transferSyntaxUID != null && !transferSyntaxUID.isEmpty()) {
+            deltaInstance.setTransferSyntaxUID(transferSyntaxUID);
+        }
+        for (final Attribute attribute: iter(instance.attributeIterator())) {
+            deltaInstance.putAttribute(attribute);
+        }
+    }
+
+    /**
+     * Pushes the normalized instance attributes of an update series into its instances, leaving only the excludes
+     * of normalized attributes, which apply to the series they are merged into.
+     */
+    private static void denormalize(final Series series) {
+        for (final Iterator<Attribute> i = series.normalizedInstanceAttributeIterator(); i.hasNext();) {
+            final Attribute attribute = i.next();
+            if (attribute.isExcluded()) {
+                continue;
+            }
+            for (final Instance instance: iter(series.instanceIterator())) {
+                if (!instance.isExcluded() && instance.getAttribute(attribute.getTag()) == null) {
+                    instance.putAttribute(attribute);
+                }
+            }
+            i.remove();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.utils.StudyUtils;
+
+/**
+ * Earlier versions of a study type, rebuilt from the update documents in the changelog.
+ *
+ * Replaying every update from version 0 gets slow for long-lived studies, so a full snapshot of the study is kept
+ * every interval versions, in snapshots/{version}/metadata.gpb under the type folder. A version is rebuilt from
+ * the closest snapshot at or below it by replaying at most interval - 1 updates, the way the update processor
+ * applies them. Snapshots are written when such a version is stored, and while replaying for studies stored
+ * before they were kept.
+ */
+public final class MetadataHistory {
+
+    public static final String SNAPSHOT_FOLDER = "snapshots";
+
+    private MetadataHistory() {
+    }
+
+    /**
+     * Rebuilds a version of a study type.
+     *
+     * @param versionIndexes the changelog indexes of the versions, as returned by MetadataDelta.findVersionIndexes
+     * @throws IllegalArgumentException if version is not a version of the study type
+     */
+    public static StudyMetadata load(final File typeFolder, final File changelogRoot,
+                                     final List<Integer> versionIndexes, final int version, final int interval)
+            throws IOException {
+        if (version < 0 || version >= versionIndexes.size()) {
+            throw new IllegalArgumentException("Invalid version requested: " + version);
+        }
+        if (version == versionIndexes.size() - 1) {
+            return StudyIO.loadStudy(typeFolder);
+        }
+
+        int base = interval > 0 ? version - version % interval : 0;
+        StudyMetadata study = null;
+        for (; base > 0; base -= interval) {
+            final File snapshot = getSnapshotFile(typeFolder, base);
+            if (snapshot.exists()) {
+                study = StudyIO.parseFile(snapshot);
+                break;
+            }
+        }
+        if (study == null) {
+            base = 0;
+            study = apply(null, loadUpdate(changelogRoot, versionIndexes, 0));
+        }
+        for (int next = base + 1; next <= version; ++next) {
+            study = apply(study, loadUpdate(changelogRoot, versionIndexes, next));
+            if (interval > 0 && next % interval == 0) {
+                writeSnapshot(study, typeFolder, next);
+            }
+        }
+        study.setVersion(version);
+        return study;
+    }
+
+    /**
+     * Keeps a snapshot of a newly stored version if it is due one.
+     */
+    public static void keepSnapshot(final StudyMetadata study, final File typeFolder, final int interval)
+            throws IOException {
+        final int version = study.getVersion();
+        if (interval > 0 && version > 0 && version % interval == 0) {
+            writeSnapshot(study, typeFolder, version);
+        }
+    }
+
+    /**
+     * Applies an update document to a study as the update processor does, changing both; the study is null for
+     * the first version.
+     *
+     * @return the updated study
+     */
+    public static StudyMetadata apply(final StudyMetadata study, final StudyMetadata update) {
+        final Collection<Integer> excludedBids = new HashSet<Integer>();
+        if (study != null) {
+            StudyUtils.applyExcludes(study, update, excludedBids);
+        }
+        StudyUtils.removeStudyExcludes(update);
+        StudyUtils.denormalizeStudy(update);
+        StudyMetadata result = update;
+        if (study != null) {
+            StudyUtils.denormalizeStudy(study);
+            StudyUtils.mergeStudy(study, update, excludedBids);
+            result = study;
+        }
+        StudyUtils.normalizeStudy(result);
+        return result;
+    }
+
+    static File getSnapshotFile(final File typeFolder, final int version) {
+        return new File(new File(new File(typeFolder, SNAPSHOT_FOLDER), Integer.toString(version)), "metadata.gpb");
+    }
+
+    private static StudyMetadata loadUpdate(final File changelogRoot, final List<Integer> versionIndexes,
+                                            final int version) throws IOException {
+        return StudyIO.loadStudy(new File(changelogRoot, versionIndexes.get(version).toString()));
+    }
+
+    private static void writeSnapshot(final StudyMetadata study, final File typeFolder, final int version)
+            throws IOException {
+        final File snapshot = getSnapshotFile(typeFolder, version);
+        if (snapshot.exists()) {
+            return;
+        }
+        // Readers only ever see complete snapshots
+        final File folder = snapshot.getParentFile();
+        folder.mkdirs();
+        final File temp = File.createTempFile("metadata", ".gpb", folder);
+        try {
+            StudyIO.writeToGPB(study, temp);
+            if (!temp.renameTo(snapshot) && !snapshot.exists()) {
+                throw new IOException("Unable to write snapshot " + snapshot);
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+        LOG.debug("Wrote snapshot of version " + version + " to " + folder);
+    }
+
+    private static final Logger LOG = Logger.getLogger(MetadataHistory.class);
+}
@@ -0,0 +1,273 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.dcm4che2.data.Tag;
+import org.nema.medical.mint.metadata.StudyIO;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * A projection of study metadata onto a set of attributes and levels, for clients that only need a few tags of
+ * each instance rather than the whole study.
+ *
+ * The projection is computed by walking the GPB encoding of the study field by field, without building a
+ * StudyMetadata: attributes are copied through verbatim when selected and skipped otherwise, and only the
+ * (small) projected series and instances are buffered to compute their lengths. The result is a valid study
+ * document with the same structure, identifiers and instance counts; normalized instance attributes stay at the
+ * series level.
+ */
+public final class MetadataProjection {
+
+    public static final int STUDY = 1;
+    public static final int SERIES = 2;
+    public static final int INSTANCE = 4;
+    public static final int ALL_LEVELS = STUDY | SERIES | INSTANCE;
+
+    // Field numbers of mint.proto
+    private static final int STUDY_ATTRIBUTES = 2;
+    private static final int STUDY_SERIES = 3;
+    private static final int SERIES_ATTRIBUTES = 3;
+    private static final int SERIES_NORMALIZED_ATTRIBUTES = 4;
+    private static final int SERIES_INSTANCES = 5;
+    private static final int INSTANCE_ATTRIBUTES = 4;
+    private static final int ATTRIBUTE_TAG = 1;
+
+    // Wire types of the GPB encoding
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int LENGTH_DELIMITED = 2;
+    private static final int FIXED32 = 5;
+
+    private static final Pattern HEX_TAG = Pattern.compile("[0-9A-Fa-f]{8}");
+
+    private final int[] tags;
+    private final int levels;
+
+    /**
+     * @param tags the attributes to keep, or null to keep all attributes of the selected levels
+     * @param levels the levels whose attributes are kept (STUDY, SERIES and/or INSTANCE); instances are left out
+     * entirely when INSTANCE is not selected
+     */
+    public MetadataProjection(final SortedSet<Integer> tags, final int levels) {
+        if (tags == null) {
+            this.tags = null;
+        } else {
+            this.tags = new int[tags.size()];
+            int i = 0;
+            for (final Integer tag: tags) {
+                this.tags[i++] = tag;
+            }
+        }
+        this.levels = levels;
+    }
+
+    /**
+     * Parses the tags= and levels= parameters of a metadata request.
+     *
+     * @param tags comma-separated tags, as 8 hex digits (00200013) or DICOM keywords (InstanceNumber), or null
+     * @param levels comma-separated levels out of study, series and instance, or null for all of them
+     * @return the projection, or null if neither parameter is given
+     * @throws IllegalArgumentException if a tag or level is unknown
+     */
+    public static MetadataProjection parse(final String tags, final String levels) {
+        if (tags == null && levels == null) {
+            return null;
+        }
+        SortedSet<Integer> tagSet = null;
+        if (tags != null) {
+            tagSet = new TreeSet<Integer>();
+            for (final String element: tags.split(",")) {
+                final String name = element.trim();
+                if (name.length() == 0) {
+                    continue;
+                }
+                tagSet.add(HEX_TAG.matcher(name).matches() ? StudyIO.hex2int(name) : Tag.forName(name));
+            }
+        }
+        int levelMask = ALL_LEVELS;
+        if (levels != null) {
+            levelMask = 0;
+            for (final String element: levels.split(",")) {
+                final String name = element.trim();
+                if ("study".equalsIgnoreCase(name)) {
+                    levelMask |= STUDY;
+                } else if ("series".equalsIgnoreCase(name)) {
+                    levelMask |= SERIES;
+                } else if ("instance".equalsIgnoreCase(name)) {
+                    levelMask |= INSTANCE;
+                } else if (name.length() > 0) {
+                    throw new IllegalArgumentException("Unknown level: " + name);
+                }
+            }
+        }
+        return new MetadataProjection(tagSet, levelMask);
+    }
+
+    /**
+     * @return a canonical description of the projection, the same for all requests asking for it
+     */
+    public String getKey() {
+        final StringBuilder key = new StringBuilder();
+        key.append(levels);
+        if (tags != null) {
+            for (int i = 0; i < tags.length; ++i) {
+                key.append(i == 0 ? '/' : ',').append(StudyIO.int2hex(tags[i]));
+            }
+        }
+        return key.toString();
+    }
+
+    public boolean includes(final int level, final int tag) {
+        return (levels & level) != 0 && (tags == null || Arrays.binarySearch(tags, tag) >= 0);
+    }
+
+    /**
+     * Writes the projection of the GPB study document read from in to out, in GPB.
+     */
+    public void project(final InputStream in, final OutputStream out) throws IOException {
+        final CodedInputStream input = CodedInputStream.newInstance(in);
+        input.setSizeLimit(Integer.MAX_VALUE);
+        final CodedOutputStream output = CodedOutputStream.newInstance(out);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            final int field = fieldNumber(tag);
+            if (field == STUDY_ATTRIBUTES) {
+                copyAttribute(input, output, tag, STUDY);
+            } else if (field == STUDY_SERIES) {
+                final int limit = input.pushLimit(input.readRawVarint32());
+                final ByteString series = projectSeries(input);
+                input.popLimit(limit);
+                output.writeBytes(STUDY_SERIES, series);
+            } else {
+                copyField(input, output, tag);
+            }
+        }
+        output.flush();
+    }
+
+    private ByteString projectSeries(final CodedInputStream input) throws IOException {
+        final ByteString.Output buffer = ByteString.newOutput();
+        final CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            final int field = fieldNumber(tag);
+            if (field == SERIES_ATTRIBUTES) {
+                copyAttribute(input, output, tag, SERIES);
+            } else if (field == SERIES_NORMALIZED_ATTRIBUTES) {
+                copyAttribute(input, output, tag, INSTANCE);
+            } else if (field == SERIES_INSTANCES) {
+                if ((levels & INSTANCE) == 0) {
+                    input.skipField(tag);
+                    continue;
+                }
+                final int limit = input.pushLimit(input.readRawVarint32());
+                final ByteString instance = projectInstance(input);
+                input.popLimit(limit);
+                output.writeBytes(SERIES_INSTANCES, instance);
+            } else {
+                copyField(input, output, tag);
+            }
+        }
+        output.flush();
+        return buffer.toByteString();
+    }
+
+    private ByteString projectInstance(final CodedInputStream input) throws IOException {
+        final ByteString.Output buffer = ByteString.newOutput();
+        final CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (fieldNumber(tag) == INSTANCE_ATTRIBUTES) {
+                copyAttribute(input, output, tag, INSTANCE);
+            } else {
+                copyField(input, output, tag);
+            }
+        }
+        output.flush();
+        return buffer.toByteString();
+    }
+
+    /**
+     * Copies an attribute if it is part of the projection, looking no further into it than its tag.
+     */
+    private void copyAttribute(final CodedInputStream input, final CodedOutputStream output, final int tag,
+                               final int level) throws IOException {
+        if ((levels & level) == 0) {
+            input.skipField(tag);
+            return;
+        }
+        final ByteString attribute = input.readBytes();
+        if (includes(level, attributeTag(attribute))) {
+            output.writeRawVarint32(tag);
+            output.writeBytesNoTag(attribute);
+        }
+    }
+
+    private static int attributeTag(final ByteString attribute) throws IOException {
+        final CodedInputStream input = attribute.newCodedInput();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (fieldNumber(tag) == ATTRIBUTE_TAG) {
+                return input.readUInt32();
+            }
+            input.skipField(tag);
+        }
+        return 0;
+    }
+
+    /**
+     * Copies a field that is not subject to the projection (identifiers, counts) unchanged.
+     */
+    private static void copyField(final CodedInputStream input, final CodedOutputStream output, final int tag)
+            throws IOException {
+        switch (tag & 7) {
+        case VARINT:
+            output.writeRawVarint32(tag);
+            output.writeRawVarint64(input.readRawVarint64());
+            break;
+        case FIXED64:
+            output.writeRawVarint32(tag);
+            output.writeRawLittleEndian64(input.readRawLittleEndian64());
+            break;
+        case LENGTH_DELIMITED:
+            output.writeRawVarint32(tag);
+            output.writeBytesNoTag(input.readBytes());
+            break;
+        case FIXED32:
+            output.writeRawVarint32(tag);
+            output.writeRawLittleEndian32(input.readRawLittleEndian32());
+            break;
+        default:
+            // Groups are not used by mint.proto
+            input.skipField(tag);
+        }
+    }
+
+    private static int fieldNumber(final int tag) {
+        return tag >>> 3;
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.server.metrics.Counter;
+import org.nema.medical.mint.server.metrics.Gauge;
+import org.nema.medical.mint.server.metrics.MetricsRegistry;
+
+/**
+ * The stored representations of study metadata in a folder (a type folder, a changelog entry, a series folder).
+ *
+ * Only the canonical metadata.gpb is written while a job runs; the derived representations (XML, gzipped, the
+ * summary) of a new version are written in the background, or when first requested if that comes earlier. Every
+ * file is written to a temporary file and renamed into place, so readers never see a partial one, and concurrent
+ * requests for a missing representation wait for a single build instead of each generating it.
+ *
+ * Writing a new version removes the derived representations of the previous one first (StudyIO.loadStudy would
+ * otherwise prefer a stale metadata.gpb.gz), and a background or on-demand build of an older version that finishes
+ * afterwards is discarded rather than renamed into place. Background builds hold the whole study in memory, so only
+ * a few are queued; the derived representations of versions written while the queue is full are built on request.
+ */
+public final class MetadataVariants {
+
+    public static final String CANONICAL = "metadata.gpb";
+    public static final List<String> DERIVED = Collections.unmodifiableList(
+            Arrays.asList("metadata.xml", "metadata.gpb.gz", "metadata.xml.gz", "summary.xml"));
+
+    // The generation of each folder written to since startup, which also guards the folder's files. Generations
+    // are drawn from one sequence, so a folder that is forgotten and written again never repeats an earlier one.
+    private static final ConcurrentMap<File, AtomicLong> GENERATIONS = new ConcurrentHashMap<File, AtomicLong>();
+    private static final AtomicLong NEXT_GENERATION = new AtomicLong();
+
+    private static final int MAX_QUEUED_WRITES = 16;
+
+    private static final ConcurrentMap<File, FutureTask<File>> BUILDS = new ConcurrentHashMap<File, FutureTask<File>>();
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(MAX_QUEUED_WRITES), new ThreadFactory() {
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "metadata-variants");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+        MetricsRegistry.getInstance().registerGauge("metadata.variants.queueDepth", new Gauge() {
+            public long getValue() {
+                return EXECUTOR.getQueue().size();
+            }
+        });
+    }
+
+    private MetadataVariants() {
+    }
+
+    /**
+     * Writes a new version of the metadata in a folder: the canonical GPB now, the derived representations in the
+     * background. The study must not be changed afterwards, as it is still being read from.
+     */
+    public static void write(final StudyMetadata study, final File folder) throws IOException {
+        final long generation = writeCanonical(study, folder);
+        try {
+            EXECUTOR.execute(new Runnable() {
+                public void run() {
+                    for (final String filename: DERIVED) {
+                        if (!folder.isDirectory()) {
+                            // The study was deleted meanwhile
+                            return;
+                        }
+                        try {
+                            writeDerived(study, folder, filename, generation);
+                        } catch (final IOException e) {
+                            LOG.warn("Unable to write " + filename + " to " + folder
+                                    + "; it will be written on request", e);
+                        }
+                    }
+                    ASYNC_WRITES.inc();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            SKIPPED_WRITES.inc();
+            LOG.debug("Background writes are queued up; the representations of " + folder
+                    + " will be written on request");
+        }
+    }
+
+    /**
+     * Writes the canonical GPB of a new version of the metadata in a folder, removing the representations derived
+     * from the previous version. The derived representations are written when requested.
+     *
+     * @return the generation of the folder's files, to tell whether a derived representation is still current
+     */
+    public static long writeCanonical(final StudyMetadata study, final File folder) throws IOException {
+        final File temp = File.createTempFile("metadata", ".tmp", folder);
+        final File named = rename(temp, CANONICAL);
+        try {
+            StudyIO.writeFile(study, named);
+            final AtomicLong folderGeneration = generationOf(folder);
+            synchronized (folderGeneration) {
+                final long generation = NEXT_GENERATION.incrementAndGet();
+                folderGeneration.set(generation);
+                for (final String filename: DERIVED) {
+                    FileUtils.deleteQuietly(new File(folder, filename));
+                }
+                replace(named, new File(folder, CANONICAL));
+                return generation;
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp);
+            FileUtils.deleteQuietly(named);
+        }
+    }
+
+    /**
+     * Returns a representation of the metadata in a folder, building it first if it is missing. Concurrent calls
+     * for the same representation share one build.
+     *
+     * @throws IOException if there is no metadata in the folder, or the representation could not be written
+     */
+    public static File ensure(final File folder, final String filename) throws IOException {
+        final File file = new File(folder, filename);
+        if (file.exists()) {
+            return file;
+        }
+
+        FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+            public File call() throws IOException {
+                // A new version may be written while building; the build is then discarded and repeated
+                for (int attempt = 0; attempt < 3 && !file.exists(); ++attempt) {
+                    final long generation = generation(folder);
+                    final File canonical = new File(folder, CANONICAL);
+                    final StudyMetadata study = canonical.exists()
+                            ? StudyIO.parseFile(canonical) : StudyIO.loadStudy(folder);
+                    if (CANONICAL.equals(filename)) {
+                        writeFile(study, folder, filename, generation);
+                    } else {
+                        writeDerived(study, folder, filename, generation);
+                    }
+                }
+                return file;
+            }
+        });
+        final FutureTask<File> existing = BUILDS.putIfAbsent(file, task);
+        if (existing == null) {
+            ON_DEMAND_WRITES.inc();
+            try {
+                task.run();
+            } finally {
+                BUILDS.remove(file, task);
+            }
+        } else {
+            SHARED_WRITES.inc();
+            task = existing;
+        }
+
+        try {
+            final File built = task.get();
+            if (!built.exists()) {
+                throw new IOException("Unable to write " + built);
+            }
+            return built;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + file + " to be written");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Unable to write " + file + ": " + cause);
+        }
+    }
+
+    /**
+     * @return whether a derived representation is a known one
+     */
+    public static boolean isDerived(final String filename) {
+        return DERIVED.contains(filename);
+    }
+
+    private static void writeDerived(final StudyMetadata study, final File folder, final String filename,
+                                     final long generation) throws IOException {
+        if (new File(folder, filename).exists()) {
+            return;
+        }
+        writeFile(study, folder, filename, generation);
+    }
+
+    /**
+     * Writes a representation to a temporary file and renames it into place, unless a new version has been
+     * written to the folder since generation.
+     */
+    private static void writeFile(final StudyMetadata study, final File folder, final String filename,
+                                  final long generation) throws IOException {
+        final File temp = File.createTempFile("metadata", ".tmp", folder);
+        // The name tells StudyIO the representation to write
+        final File named = rename(temp, filename);
+        try {
+            if ("summary.xml".equals(filename)) {
+                StudyIO.writeSummaryToXML(study, named);
+            } else {
+                StudyIO.writeFile(study, named);
+            }
+            final AtomicLong folderGeneration = generationOf(folder);
+            synchronized (folderGeneration) {
+                if (folderGeneration.get() == generation) {
+                    replace(named, new File(folder, filename));
+                } else {
+                    DISCARDED_WRITES.inc();
+                }
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp);
+            FileUtils.deleteQuietly(named);
+        }
+    }
+
+    private static File rename(final File temp, final String filename) {
+        return new File(temp.getParentFile(), temp.getName() + "." + filename);
+    }
+
+    private static void replace(final File source, final File target) throws IOException {
+        if (!source.renameTo(target)) {
+            // Renaming over an existing file fails on some platforms
+            FileUtils.deleteQuietly(target);
+            if (!source.renameTo(target)) {
+                throw new IOException("Unable to rename " + source + " to " + target);
+            }
+        }
+    }
+
+    /**
+     * Replaces metadata folders by other means than {@link #writeCanonical}, as by renaming a new tree of them into
+     * place. The replacement runs while no derived representation can be renamed into any of the folders, and the
+     * builds in them that started before are discarded.
+     */
+    public static void replace(final List<File> folders, final Callable<Void> replacement) throws IOException {
+        replace(folders, 0, replacement);
+    }
+
+    private static void replace(final List<File> folders, final int index, final Callable<Void> replacement)
+            throws IOException {
+        if (index < folders.size()) {
+            final AtomicLong folderGeneration = generationOf(folders.get(index));
+            synchronized (folderGeneration) {
+                replace(folders, index + 1, replacement);
+                // Advanced after the replacement, so that a build cannot pick up the new generation and then read
+                // the replaced files
+                folderGeneration.set(NEXT_GENERATION.incrementAndGet());
+            }
+            return;
+        }
+        try {
+            replacement.call();
+        } catch (final IOException e) {
+            throw e;
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IOException("Unable to replace " + folders + ": " + e);
+        }
+    }
+
+    /**
+     * Forgets the generations of a deleted folder and the folders below it.
+     */
+    public static void forget(final File root) {
+        final String path = root.getAbsolutePath();
+        for (final Iterator<File> i = GENERATIONS.keySet().iterator(); i.hasNext();) {
+            final String folder = i.next().getPath();
+            if (folder.equals(path) || folder.startsWith(path + File.separator)) {
+                i.remove();
+            }
+        }
+    }
+
+    private static long generation(final File folder) {
+        return generationOf(folder).get();
+    }
+
+    private static AtomicLong generationOf(final File folder) {
+        final File key = folder.getAbsoluteFile();
+        AtomicLong generation = GENERATIONS.get(key);
+        if (generation == null) {
+            final AtomicLong created = new AtomicLong();
+            generation = GENERATIONS.putIfAbsent(key, created);
+            if (generation == null) {
+                generation = created;
+            }
+        }
+        return generation;
+    }
+
+    private static final Logger LOG = Logger.getLogger(MetadataVariants.class);
+    private static final Counter ASYNC_WRITES =
+            MetricsRegistry.getInstance().counter("metadata.variants.asyncWrites");
+    private static final Counter ON_DEMAND_WRITES =
+            MetricsRegistry.getInstance().counter("metadata.variants.onDemandWrites");
+    private static final Counter SHARED_WRITES =
+            MetricsRegistry.getInstance().counter("metadata.variants.sharedWrites");
+    private static final Counter SKIPPED_WRITES =
+            MetricsRegistry.getInstance().counter("metadata.variants.skippedWrites");
+    private static final Counter DISCARDED_WRITES =
+            MetricsRegistry.getInstance().counter("metadata.variants.discardedWrites");
+}
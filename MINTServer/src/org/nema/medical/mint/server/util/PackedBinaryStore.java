@@ -0,0 +1,277 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Packed binary item layout: the items of a study type are appended to a few large container files
+ * (items-0.pack, items-1.pack, ...) instead of being stored one file each, and items.idx holds one fixed-size
+ * record per bid giving the container, offset and length of the item. Records are at bid * RECORD_SIZE, so looking
+ * up an item is a single positional read of the index, and excluding an item sets a flag in its record instead of
+ * renaming a file.
+ *
+ * Container files are only ever appended to, and an item's index record is written only after its bytes have been
+ * forced to disk, so readers never see a record pointing at missing data. Writers must be serialized per study,
+ * which the job processors already do.
+ */
+public final class PackedBinaryStore extends BinaryItemStore {
+
+    public static final String INDEX_FILE_NAME = "items.idx";
+
+    /** offset (long), length (long), container number (int), flags (int) */
+    static final int RECORD_SIZE = 24;
+    private static final int FLAGS_OFFSET = 20;
+    private static final int PRESENT = 1;
+    private static final int EXCLUDED = 2;
+
+    /** A new container is started rather than letting one grow past this size, unless it is still empty */
+    static final long MAX_CONTAINER_SIZE = 1L << 30;
+
+    private final File binaryRoot;
+    private final FileChannel index;
+    private final Map<File, FileChannel> containers = new HashMap<File, FileChannel>();
+    private boolean closed = false;
+
+    PackedBinaryStore(final File binaryRoot) throws IOException {
+        this.binaryRoot = binaryRoot;
+        this.index = new RandomAccessFile(new File(binaryRoot, INDEX_FILE_NAME), "r").getChannel();
+    }
+
+    /**
+     * @return true if the binary items folder uses the packed layout
+     */
+    public static boolean isPacked(final File binaryRoot) {
+        return new File(binaryRoot, INDEX_FILE_NAME).exists();
+    }
+
+    /**
+     * @return the highest binary item id in the packed binary items folder, counting excluded items, or -1 if
+     * there are none
+     */
+    public static int readHighestId(final File binaryRoot) {
+        return (int) (new File(binaryRoot, INDEX_FILE_NAME).length() / RECORD_SIZE) - 1;
+    }
+
+    @Override
+    public int getHighestId() throws IOException {
+        return (int) (index.size() / RECORD_SIZE) - 1;
+    }
+
+    @Override
+    public BinaryItem getItem(final int bid, final boolean includeExcluded) throws IOException {
+        if (bid < 0 || bid > getHighestId()) {
+            return null;
+        }
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        readFully(index, record, (long) bid * RECORD_SIZE);
+        record.flip();
+        final long offset = record.getLong();
+        final long length = record.getLong();
+        final int container = record.getInt();
+        final int flags = record.getInt();
+        if ((flags & PRESENT) == 0) {
+            return null;
+        }
+        final boolean excluded = (flags & EXCLUDED) != 0;
+        if (excluded && !includeExcluded) {
+            return null;
+        }
+        return new BinaryItem(containerFile(binaryRoot, container), offset, length, excluded);
+    }
+
+    /**
+     * Containers stay open until the store is closed, so a request for many items opens each container once.
+     */
+    @Override
+    protected synchronized FileChannel openChannel(final File file) throws IOException {
+        if (closed) {
+            throw new IOException("Binary item store " + binaryRoot.getPath() + " is closed");
+        }
+        FileChannel channel = containers.get(file);
+        if (channel == null) {
+            channel = super.openChannel(file);
+            containers.put(file, channel);
+        }
+        return channel;
+    }
+
+    @Override
+    protected void releaseChannel(final FileChannel channel) {
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        try {
+            for (final FileChannel channel: containers.values()) {
+                channel.close();
+            }
+            containers.clear();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Appends the binary items of a job folder (bid.dat files, metadata is skipped) to the packed binary items
+     * folder, creating it if necessary. The job files are left in place for the caller to delete.
+     *
+     * @param jobFolder folder with the binary item files, already shifted to their final bids
+     * @param binaryRoot the binaryitems folder of the study type
+     * @throws IOException if an item could not be copied or the index could not be written
+     */
+    public static void append(final File jobFolder, final File binaryRoot) throws IOException {
+        final SortedMap<Integer, File> items = new TreeMap<Integer, File>();
+        for (final File file: jobFolder.listFiles()) {
+            final String fileName = file.getName();
+            if (fileName.startsWith("metadata")) {
+                continue;
+            }
+            final int extStart = fileName.indexOf('.');
+            try {
+                items.put(Integer.parseInt(extStart > 0 ? fileName.substring(0, extStart) : fileName), file);
+            } catch (final NumberFormatException e) {
+                throw new IOException("Binary item file name '" + file.getPath() + "' is not an integer");
+            }
+        }
+        if (items.isEmpty() && isPacked(binaryRoot)) {
+            return;
+        }
+
+        binaryRoot.mkdirs();
+        int container = 0;
+        while (containerFile(binaryRoot, container + 1).exists()) {
+            ++container;
+        }
+        final ByteBuffer records = ByteBuffer.allocate(items.size() * RECORD_SIZE);
+        FileChannel out = new RandomAccessFile(containerFile(binaryRoot, container), "rw").getChannel();
+        try {
+            long position = out.size();
+            for (final File file: items.values()) {
+                final long length = file.length();
+                if (position > 0 && position + length > MAX_CONTAINER_SIZE) {
+                    out.force(false);
+                    out.close();
+                    out = new RandomAccessFile(containerFile(binaryRoot, ++container), "rw").getChannel();
+                    position = out.size();
+                }
+                final FileChannel in = new FileInputStream(file).getChannel();
+                try {
+                    long copied = 0;
+                    while (copied < length) {
+                        final long amount = out.transferFrom(in, position + copied, length - copied);
+                        if (amount <= 0) {
+                            throw new EOFException("Binary item file '" + file.getPath() + "' ended after "
+                                    + copied + " of " + length + " bytes");
+                        }
+                        copied += amount;
+                    }
+                } finally {
+                    in.close();
+                }
+                records.putLong(position).putLong(length).putInt(container).putInt(PRESENT);
+                position += length;
+            }
+            out.force(false);
+        } finally {
+            out.close();
+        }
+
+        final FileChannel indexChannel = new RandomAccessFile(new File(binaryRoot, INDEX_FILE_NAME), "rw").getChannel();
+        try {
+            records.flip();
+            for (final int bid: items.keySet()) {
+                records.limit(records.position() + RECORD_SIZE);
+                writeFully(indexChannel, records, (long) bid * RECORD_SIZE);
+            }
+            indexChannel.force(false);
+        } finally {
+            indexChannel.close();
+        }
+    }
+
+    /**
+     * Marks binary items as excluded in the index of a packed binary items folder; the packed equivalent of
+     * {@link StorageUtil#renameExcludedFiles(File, Collection)}. The item data stays in its container.
+     *
+     * @throws IOException if the index could not be updated
+     */
+    public static void markExcluded(final File binaryRoot, final Collection<Integer> excludedBids)
+            throws IOException {
+        final FileChannel indexChannel = new RandomAccessFile(new File(binaryRoot, INDEX_FILE_NAME), "rw").getChannel();
+        try {
+            final ByteBuffer flagsBuffer = ByteBuffer.allocate(4);
+            for (final int bid: excludedBids) {
+                final long position = (long) bid * RECORD_SIZE + FLAGS_OFFSET;
+                if (bid < 0 || position >= indexChannel.size()) {
+                    LOG.warn("Cannot exclude binary item " + bid + ", it is not in " + binaryRoot.getPath());
+                    continue;
+                }
+                flagsBuffer.clear();
+                readFully(indexChannel, flagsBuffer, position);
+                final int flags = flagsBuffer.getInt(0);
+                if ((flags & PRESENT) == 0) {
+                    LOG.warn("Cannot exclude binary item " + bid + ", it is not in " + binaryRoot.getPath());
+                    continue;
+                }
+                flagsBuffer.clear();
+                flagsBuffer.putInt(flags | EXCLUDED).flip();
+                writeFully(indexChannel, flagsBuffer, position);
+            }
+            indexChannel.force(false);
+        } finally {
+            indexChannel.close();
+        }
+    }
+
+    private static File containerFile(final File binaryRoot, final int container) {
+        return new File(binaryRoot, "items-" + container + ".pack");
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        final int initial = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - initial) == -1) {
+                throw new EOFException("Unexpected end of binary item index");
+            }
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        final int initial = buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position() - initial);
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(PackedBinaryStore.class);
+}
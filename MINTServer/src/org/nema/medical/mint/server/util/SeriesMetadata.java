@@ -0,0 +1,368 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.nema.medical.mint.metadata.Attribute;
+import org.nema.medical.mint.metadata.AttributeContainer;
+import org.nema.medical.mint.metadata.Instance;
+import org.nema.medical.mint.metadata.Series;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.utils.Iter;
+import org.nema.medical.mint.utils.StudyTraversals;
+import org.nema.medical.mint.utils.StudyTraversals.TraversalException;
+
+/**
+ * Per-series metadata: for each series of a study type, a study document with the study-level attributes and that
+ * series only, so that a client opening one series of a large study does not have to fetch and parse all of them.
+ *
+ * The documents are split off when a study version is written, into series/{seriesInstanceUID}/metadata.gpb under
+ * the type folder; the other representations (XML, gzipped) are generated from it when first requested. A marker
+ * file, written last, tells that the series folder is complete.
+ *
+ * Next to it, binaryitems.idx indexes the binary items of the series, so that they can be retrieved without
+ * reading any metadata. It has one line per attribute container, giving the bids of its attributes as a binary
+ * item sequence ("0-3,7", or "-" for none):
+ * <pre>
+ * series 12
+ * normalized 13
+ * instance 1.2.840.1.3 0-3
+ * instance 1.2.840.1.4 4-7
+ * </pre>
+ * for the series attributes, the normalized instance attributes (which are part of every instance), and each
+ * instance's own attributes.
+ * <p>
+ * A series whose instance UID cannot be used as a folder name gets no per-series metadata; it is still part of
+ * the study's metadata.
+ */
+public final class SeriesMetadata {
+
+    public static final String SERIES_FOLDER = "series";
+    public static final String BINARY_ITEM_INDEX = "binaryitems.idx";
+
+    private static final Logger LOG = Logger.getLogger(SeriesMetadata.class);
+    private static final String NEW_SERIES_FOLDER = SERIES_FOLDER + ".new";
+    private static final String OLD_SERIES_FOLDER = SERIES_FOLDER + ".old";
+    private static final String WRITTEN_MARKER = ".written";
+
+    // Serializes the writes to each type folder
+    private static final ConcurrentMap<File, Object> TYPE_FOLDER_LOCKS = new ConcurrentHashMap<File, Object>();
+
+    // Series instance UIDs are digits and dots; anything that could leave the series folder is refused
+    private static final Pattern FOLDER_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private SeriesMetadata() {
+    }
+
+    /**
+     * Writes the per-series metadata of a study version into its type folder, replacing that of the previous
+     * version, including the representations generated from it, and the series that are no longer part of the
+     * study. The new series folder is written next to the old one and renamed into place, so that a failed
+     * write leaves the previous version intact.
+     */
+    public static void write(final StudyMetadata study, final File typeFolder) throws IOException {
+        synchronized (lockOf(typeFolder)) {
+            writeLocked(study, typeFolder);
+        }
+    }
+
+    private static void writeLocked(final StudyMetadata study, final File typeFolder) throws IOException {
+        final File seriesRoot = new File(typeFolder, SERIES_FOLDER);
+        final File newSeriesRoot = new File(typeFolder, NEW_SERIES_FOLDER);
+        final File oldSeriesRoot = new File(typeFolder, OLD_SERIES_FOLDER);
+        // Left over from a write that failed
+        FileUtils.deleteDirectory(newSeriesRoot);
+        FileUtils.deleteDirectory(oldSeriesRoot);
+
+        if (!newSeriesRoot.mkdirs()) {
+            throw new IOException("Unable to create folder " + newSeriesRoot);
+        }
+        final Set<String> seriesInstanceUIDs = new TreeSet<String>(list(typeFolder));
+        for (final Series series: Iter.iter(study.seriesIterator())) {
+            final String seriesInstanceUID = series.getSeriesInstanceUID();
+            if (!isFolderName(seriesInstanceUID)) {
+                LOG.warn("Not writing per-series metadata for series instance UID '" + seriesInstanceUID
+                        + "' of study " + study.getStudyInstanceUID() + ": it cannot be used as a folder name");
+                continue;
+            }
+            final File seriesFolder = new File(newSeriesRoot, seriesInstanceUID);
+            if (!seriesFolder.mkdir()) {
+                throw new IOException("Unable to create folder " + seriesFolder);
+            }
+            StudyIO.writeToGPB(extract(study, series), new File(seriesFolder, MetadataVariants.CANONICAL));
+            writeBinaryItemIndex(series, new File(seriesFolder, BINARY_ITEM_INDEX));
+            seriesInstanceUIDs.add(seriesInstanceUID);
+        }
+        if (!new File(newSeriesRoot, WRITTEN_MARKER).createNewFile()) {
+            throw new IOException("Unable to create " + new File(newSeriesRoot, WRITTEN_MARKER));
+        }
+
+        // Representations of the previous version that are being built in the old and new series folders must not
+        // end up in the new ones
+        final List<File> seriesFolders = new ArrayList<File>();
+        for (final String seriesInstanceUID: seriesInstanceUIDs) {
+            seriesFolders.add(new File(seriesRoot, seriesInstanceUID));
+        }
+        MetadataVariants.replace(seriesFolders, new Callable<Void>() {
+            public Void call() throws IOException {
+                if (seriesRoot.exists() && !seriesRoot.renameTo(oldSeriesRoot)) {
+                    throw new IOException("Unable to move " + seriesRoot + " to " + oldSeriesRoot);
+                }
+                if (!newSeriesRoot.renameTo(seriesRoot)) {
+                    oldSeriesRoot.renameTo(seriesRoot);
+                    throw new IOException("Unable to move " + newSeriesRoot + " to " + seriesRoot);
+                }
+                return null;
+            }
+        });
+        FileUtils.deleteDirectory(oldSeriesRoot);
+    }
+
+    /**
+     * @return whether the per-series metadata of the type folder has been written
+     */
+    public static boolean exists(final File typeFolder) {
+        return new File(new File(typeFolder, SERIES_FOLDER), WRITTEN_MARKER).exists();
+    }
+
+    /**
+     * Splits the metadata of a type folder by series if that has not been done yet, as for studies stored before
+     * metadata was split, or before the split included the binary item index. Checking takes a single stat once
+     * the metadata has been split.
+     *
+     * @return true if the metadata had to be split
+     */
+    public static boolean ensureWritten(final File typeFolder) throws IOException {
+        final File marker = new File(new File(typeFolder, SERIES_FOLDER), WRITTEN_MARKER);
+        if (marker.exists()) {
+            return false;
+        }
+        synchronized (lockOf(typeFolder)) {
+            if (marker.exists()) {
+                return false;
+            }
+            writeLocked(StudyIO.loadStudy(typeFolder), typeFolder);
+            return true;
+        }
+    }
+
+    private static Object lockOf(final File typeFolder) {
+        final File key = typeFolder.getAbsoluteFile();
+        Object lock = TYPE_FOLDER_LOCKS.get(key);
+        if (lock == null) {
+            final Object created = new Object();
+            lock = TYPE_FOLDER_LOCKS.putIfAbsent(key, created);
+            if (lock == null) {
+                lock = created;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * Looks up binary items in the index of a series.
+     *
+     * @param sopInstanceUID the instance to look up, or null for the whole series
+     * @return the bids as a binary item sequence ("0-3,7"), empty if there are none, or null if the instance is not
+     * part of the series
+     */
+    public static String findBinaryItems(final File seriesFolder, final String sopInstanceUID) throws IOException {
+        final StringBuilder seq = new StringBuilder();
+        boolean found = sopInstanceUID == null;
+        final BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(new File(seriesFolder, BINARY_ITEM_INDEX)), "US-ASCII"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String[] fields = line.split(" ");
+                final String bids;
+                if (fields[0].equals("instance")) {
+                    if (sopInstanceUID != null && !sopInstanceUID.equals(fields[1])) {
+                        continue;
+                    }
+                    found = true;
+                    bids = fields[2];
+                } else if (fields[0].equals("normalized") || sopInstanceUID == null) {
+                    bids = fields[1];
+                } else {
+                    continue;
+                }
+                if (!bids.equals("-")) {
+                    if (seq.length() > 0) {
+                        seq.append(',');
+                    }
+                    seq.append(bids);
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return found ? seq.toString() : null;
+    }
+
+    private static void writeBinaryItemIndex(final Series series, final File file) throws IOException {
+        final Writer out = new OutputStreamWriter(new FileOutputStream(file), "US-ASCII");
+        try {
+            final SortedSet<Integer> bids = new TreeSet<Integer>();
+            collectBids(series, bids);
+            out.write("series " + toSequence(bids) + "\n");
+
+            bids.clear();
+            for (final Attribute attribute: Iter.iter(series.normalizedInstanceAttributeIterator())) {
+                try {
+                    StudyTraversals.hierarchicalAttributeTraverser(attribute, bidCollector(bids));
+                } catch (final TraversalException e) {
+                    // The collector never throws
+                    throw new IllegalStateException(e);
+                }
+            }
+            out.write("normalized " + toSequence(bids) + "\n");
+
+            for (final Instance instance: Iter.iter(series.instanceIterator())) {
+                bids.clear();
+                collectBids(instance, bids);
+                out.write("instance " + instance.getSOPInstanceUID() + " " + toSequence(bids) + "\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void collectBids(final AttributeContainer attributes, final SortedSet<Integer> bids) {
+        try {
+            StudyTraversals.hierarchicalAttributeContainerTraverser(attributes, bidCollector(bids));
+        } catch (final TraversalException e) {
+            // The collector never throws
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static StudyTraversals.AttributeAction bidCollector(final SortedSet<Integer> bids) {
+        return new StudyTraversals.AttributeAction() {
+            public void doAction(final Attribute attribute) {
+                final int bid = attribute.getBid();
+                if (bid >= 0) {
+                    // Multi-frame pixel data is stored one frame per binary item
+                    for (int frame = 0; frame < Math.max(1, attribute.getFrameCount()); ++frame) {
+                        bids.add(bid + frame);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the ids as a binary item sequence of ranges, e.g. "0-3,7", or "-" if there are none
+     */
+    static String toSequence(final SortedSet<Integer> ids) {
+        if (ids.isEmpty()) {
+            return "-";
+        }
+        final StringBuilder seq = new StringBuilder();
+        int first = -1;
+        int last = -1;
+        for (final int id: ids) {
+            if (first >= 0 && id == last + 1) {
+                last = id;
+                continue;
+            }
+            appendRange(seq, first, last);
+            first = id;
+            last = id;
+        }
+        appendRange(seq, first, last);
+        return seq.toString();
+    }
+
+    private static void appendRange(final StringBuilder seq, final int first, final int last) {
+        if (first < 0) {
+            return;
+        }
+        if (seq.length() > 0) {
+            seq.append(',');
+        }
+        seq.append(first);
+        if (last > first) {
+            seq.append('-').append(last);
+        }
+    }
+
+    /**
+     * @return the series instance UIDs of the per-series metadata in the type folder, in no particular order
+     */
+    public static List<String> list(final File typeFolder) {
+        final List<String> seriesInstanceUIDs = new ArrayList<String>();
+        final File[] seriesFolders = new File(typeFolder, SERIES_FOLDER).listFiles();
+        if (seriesFolders != null) {
+            for (final File seriesFolder: seriesFolders) {
+                if (seriesFolder.isDirectory()) {
+                    seriesInstanceUIDs.add(seriesFolder.getName());
+                }
+            }
+        }
+        return seriesInstanceUIDs;
+    }
+
+    /**
+     * @return the folder of the series' metadata, which may not exist, or null if the UID is not a valid folder name
+     */
+    public static File getSeriesFolder(final File typeFolder, final String seriesInstanceUID) {
+        if (!isFolderName(seriesInstanceUID)) {
+            return null;
+        }
+        return new File(new File(typeFolder, SERIES_FOLDER), seriesInstanceUID);
+    }
+
+    private static boolean isFolderName(final String seriesInstanceUID) {
+        return seriesInstanceUID != null && FOLDER_NAME.matcher(seriesInstanceUID).matches()
+                && !seriesInstanceUID.equals(".") && !seriesInstanceUID.equals("..");
+    }
+
+    /**
+     * @return a study with the version, type and study-level attributes of the given study, and the given series
+     */
+    static StudyMetadata extract(final StudyMetadata study, final Series series) {
+        final StudyMetadata seriesStudy = new StudyMetadata();
+        seriesStudy.setStudyInstanceUID(study.getStudyInstanceUID());
+        seriesStudy.setVersion(study.getVersion());
+        seriesStudy.setType(study.getType());
+        for (final Attribute attribute: Iter.iter(study.attributeIterator())) {
+            seriesStudy.putAttribute(attribute);
+        }
+        seriesStudy.putSeries(series);
+        return seriesStudy;
+    }
+}
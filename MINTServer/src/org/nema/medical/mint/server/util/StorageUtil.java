@@ -15,6 +15,7 @@
  */
 package org.nema.medical.mint.server.util;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.nema.medical.mint.datadictionary.MetadataType;
@@ -36,12 +37,14 @@ public final class StorageUtil {
 
     public static final String BINARY_FILE_EXTENSION = "dat";
     public static final String EXCLUDED_BINARY_FILE_EXTENSION = "exclude";
+    public static final String HIGHEST_ID_FILE = "highest.id";
 
     /**
-     * This method will looks for BINARY_FILE_EXTENSION files and will try to
-     * perform a parseInt on the front of the files. The largest int parsed will
-     * be returned. -1 will be returned when not BINARY_FILE_EXTENSION files are
-     * encountered.
+     * This method will looks for BINARY_FILE_EXTENSION and EXCLUDED_BINARY_FILE_EXTENSION
+     * files and will try to perform a parseInt on the front of the files. The largest int
+     * parsed will be returned. -1 will be returned when no such files are encountered, or
+     * the directory does not exist. The whole directory is listed, as binary item ids need
+     * not be consecutive.
      *
      * This method assumes that the BINARY_FILE_EXTENSION files start with an
      * integer and will need to be re thought if what binary item IDs are is
@@ -53,15 +56,25 @@ public final class StorageUtil {
     public static int getHighestNumberedBinaryItem(File directory)
     {
         String[] fileNames = directory.list();
+        if(fileNames == null)
+        {
+            return -1;
+        }
 
         int max = -1;
         for(String name : fileNames)
         {
-            if(name.endsWith(BINARY_FILE_EXTENSION))
+            final int extStart = name.indexOf('.');
+            if(extStart <= 0 || name.startsWith("metadata"))
+            {
+                continue;
+            }
+            final String extension = name.substring(extStart + 1);
+            if(extension.equals(BINARY_FILE_EXTENSION) || extension.equals(EXCLUDED_BINARY_FILE_EXTENSION))
             {
                 try
                 {
-                    int n = Integer.parseInt(name.substring(0, name.indexOf('.')));
+                    int n = Integer.parseInt(name.substring(0, extStart));
 
                     if(n > max)
                     {
@@ -78,6 +91,48 @@ public final class StorageUtil {
         return max;
     }
 
+    /**
+     * Returns the highest binary item id of a study's binary items directory, counting excluded items, as recorded
+     * by {@link #writeHighestBinaryItemId} when binary items were last added. Directories written before the id was
+     * recorded are listed instead.
+     *
+     * @param directory binary items directory
+     * @return highest id, or -1 if there are no binary items or the directory does not exist
+     */
+    public static int readHighestBinaryItemId(final File directory) throws IOException {
+        final File file = new File(directory, HIGHEST_ID_FILE);
+        if (!file.exists()) {
+            return getHighestNumberedBinaryItem(directory);
+        }
+        try {
+            return Integer.parseInt(FileUtils.readFileToString(file, "US-ASCII").trim());
+        } catch (final NumberFormatException e) {
+            throw new IOException("Invalid highest binary item id in " + file);
+        }
+    }
+
+    /**
+     * Records the highest binary item id of a study's binary items directory, once binary items have been moved
+     * into it, so that it can be read without listing the directory. The file is replaced by renaming, so readers
+     * never see a partial one.
+     */
+    public static void writeHighestBinaryItemId(final File directory, final int highestId) throws IOException {
+        final File temp = File.createTempFile(HIGHEST_ID_FILE, ".tmp", directory);
+        try {
+            FileUtils.writeStringToFile(temp, highestId + "\n", "US-ASCII");
+            final File file = new File(directory, HIGHEST_ID_FILE);
+            if (!temp.renameTo(file)) {
+                // Renaming over an existing file fails on some platforms
+                FileUtils.deleteQuietly(file);
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Unable to rename " + temp + " to " + file);
+                }
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
     /**
      * This method will shift all binary item IDs found in the binaryDirectory
      * by the provided the shiftAmount and will also update the provided StudyMetadata
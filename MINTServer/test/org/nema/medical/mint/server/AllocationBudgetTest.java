@@ -0,0 +1,419 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.nema.medical.mint.server;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.nema.medical.mint.datadictionary.LevelAttributes;
+import org.nema.medical.mint.dcm2mint.BinaryDcmData;
+import org.nema.medical.mint.dcm2mint.Dcm2MetaBuilder;
+import org.nema.medical.mint.dcm2mint.MetaBinaryPairImpl;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.server.cache.BinaryItemCache;
+import org.nema.medical.mint.server.controller.StudyBinaryItemsController;
+import org.nema.medical.mint.server.util.StorageUtil;
+import org.nema.medical.mint.utils.StudyUtils;
+
+/**
+ * Guards the hot paths against allocation regressions. Each operation is run against a synthetic reference
+ * study and the bytes allocated by the current thread are compared against the budgets below. When a change
+ * legitimately moves one of these numbers, re-measure and update the budget in the same commit.
+ */
+public final class AllocationBudgetTest {
+    private static final Logger LOG = Logger.getLogger(AllocationBudgetTest.class);
+
+    /* Reference study shape */
+    private static final int SERIES_COUNT = 2;
+    private static final int INSTANCES_PER_SERIES = 40;
+    private static final int ROWS = 64;
+    private static final int COLUMNS = 64;
+    private static final int STREAMED_ITEM_COUNT = 100;
+    private static final int CACHED_ITEM_COUNT = 50;
+    private static final int STREAM_BUFFER_SIZE = 16384;
+    private static final String STUDY_UUID = "budget";
+    private static final String STUDY_TYPE = "DICOM";
+
+    /*
+     * Budgets in bytes, per single run of the operation over the reference study. Each is about 25% above the
+     * highest figure measured on JDK 8, 11, 17 and 21, given in the comment next to it. XML parsing depends on
+     * the pull parser JiBX finds on the classpath: XPP3 and the JDK's StAX parser take up to 231 KB, but it has
+     * been measured at 862 KB elsewhere, so that budget covers the larger figure.
+     */
+    private static final long GPB_PARSE_BUDGET = 288 * 1024;     // 229 KB
+    private static final long GPB_WRITE_BUDGET = 288 * 1024;     // 236 KB
+    private static final long XML_PARSE_BUDGET = 1024 * 1024;    // 862 KB
+    private static final long XML_WRITE_BUDGET = 960 * 1024;     // 777 KB
+    private static final long NORMALIZE_BUDGET = 84 * 1024;      // 68 KB
+    private static final long STREAM_ITEMS_BUDGET = 404 * 1024;  // 322 KB
+    private static final long ACCUMULATE_BUDGET = 1280 * 1024;   // 1041 KB
+
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 5;
+
+    private static File tempDir;
+    private static File studiesRoot;
+    private static List<File> dcmFiles;
+    private static List<DicomObject> dcmObjects;
+    private static byte[] referenceGPB;
+    private static byte[] referenceXML;
+
+    @BeforeClass
+    public static void createReferenceStudy() throws IOException {
+        tempDir = File.createTempFile("allocbudget", "");
+        tempDir.delete();
+        tempDir.mkdirs();
+
+        dcmFiles = new ArrayList<File>();
+        dcmObjects = new ArrayList<DicomObject>();
+        for (int s = 0; s < SERIES_COUNT; ++s) {
+            for (int i = 0; i < INSTANCES_PER_SERIES; ++i) {
+                final DicomObject dcmObj = new BasicDicomObject();
+                dcmObj.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4");
+                dcmObj.putString(Tag.SeriesInstanceUID, VR.UI, "1.2.3.4." + s);
+                dcmObj.putString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4." + s + "." + i);
+                dcmObj.putString(Tag.SOPClassUID, VR.UI, UID.CTImageStorage);
+                dcmObj.putString(Tag.PatientName, VR.PN, "Budget^Allocation");
+                dcmObj.putString(Tag.PatientID, VR.LO, "ALLOC01");
+                dcmObj.putString(Tag.Modality, VR.CS, "CT");
+                dcmObj.putString(Tag.SeriesDescription, VR.LO, "Series " + s);
+                dcmObj.putInt(Tag.InstanceNumber, VR.IS, i + 1);
+                dcmObj.putString(Tag.ImagePositionPatient, VR.DS, "0\\0\\" + i);
+                dcmObj.putString(Tag.ImageOrientationPatient, VR.DS, "1\\0\\0\\0\\1\\0");
+                dcmObj.putInt(Tag.SamplesPerPixel, VR.US, 1);
+                dcmObj.putString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+                dcmObj.putInt(Tag.Rows, VR.US, ROWS);
+                dcmObj.putInt(Tag.Columns, VR.US, COLUMNS);
+                dcmObj.putInt(Tag.BitsAllocated, VR.US, 16);
+                dcmObj.putInt(Tag.BitsStored, VR.US, 12);
+                dcmObj.putInt(Tag.HighBit, VR.US, 11);
+                dcmObj.putInt(Tag.PixelRepresentation, VR.US, 0);
+                final byte[] pixels = new byte[ROWS * COLUMNS * 2];
+                for (int p = 0; p < pixels.length; ++p) {
+                    pixels[p] = (byte) (p + i);
+                }
+                dcmObj.putBytes(Tag.PixelData, VR.OW, pixels);
+                dcmObj.initFileMetaInformation(UID.ExplicitVRLittleEndian);
+                dcmObjects.add(dcmObj);
+                dcmFiles.add(new File(tempDir, s + "_" + i + ".dcm"));
+            }
+        }
+
+        final StudyMetadata study = accumulate().getMetadata();
+        StudyUtils.normalizeStudy(study);
+        final ByteArrayOutputStream gpbOut = new ByteArrayOutputStream();
+        StudyIO.writeToGPB(study, gpbOut);
+        referenceGPB = gpbOut.toByteArray();
+        final ByteArrayOutputStream xmlOut = new ByteArrayOutputStream();
+        StudyIO.writeToXML(study, xmlOut);
+        referenceXML = xmlOut.toByteArray();
+
+        studiesRoot = new File(tempDir, "studies");
+        final File binaryItemDir = getBinaryItemDir();
+        binaryItemDir.mkdirs();
+        final byte[] itemBytes = new byte[ROWS * COLUMNS * 2];
+        for (int i = 0; i < STREAMED_ITEM_COUNT; ++i) {
+            final OutputStream out = new FileOutputStream(new File(binaryItemDir, i + ".dat"));
+            try {
+                out.write(itemBytes);
+            } finally {
+                out.close();
+            }
+        }
+        StorageUtil.writeHighestBinaryItemId(binaryItemDir, STREAMED_ITEM_COUNT - 1);
+    }
+
+    private static File getBinaryItemDir() {
+        return new File(new File(new File(studiesRoot, STUDY_UUID), STUDY_TYPE), "binaryitems");
+    }
+
+    @AfterClass
+    public static void deleteReferenceStudy() throws IOException {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testParseGPB() throws Exception {
+        assertWithinBudget("GPB parse", GPB_PARSE_BUDGET, new Operation() {
+            public void run() throws Exception {
+                StudyIO.parseFromGPB(new ByteArrayInputStream(referenceGPB));
+            }
+        });
+    }
+
+    @Test
+    public void testWriteGPB() throws Exception {
+        final StudyMetadata study = StudyIO.parseFromGPB(new ByteArrayInputStream(referenceGPB));
+        assertWithinBudget("GPB write", GPB_WRITE_BUDGET, new Operation() {
+            public void run() throws Exception {
+                StudyIO.writeToGPB(study, new NullOutputStream());
+            }
+        });
+    }
+
+    @Test
+    public void testParseXML() throws Exception {
+        assertWithinBudget("XML parse", XML_PARSE_BUDGET, new Operation() {
+            public void run() throws Exception {
+                StudyIO.parseFromXML(new ByteArrayInputStream(referenceXML));
+            }
+        });
+    }
+
+    @Test
+    public void testWriteXML() throws Exception {
+        final StudyMetadata study = StudyIO.parseFromGPB(new ByteArrayInputStream(referenceGPB));
+        assertWithinBudget("XML write", XML_WRITE_BUDGET, new Operation() {
+            public void run() throws Exception {
+                StudyIO.writeToXML(study, new NullOutputStream());
+            }
+        });
+    }
+
+    @Test
+    public void testNormalize() throws Exception {
+        //Normalization mutates the study, so each run works on a fresh denormalized copy prepared up front
+        final int runs = WARMUP_RUNS + MEASURED_RUNS;
+        final List<StudyMetadata> studies = new ArrayList<StudyMetadata>(runs);
+        for (int i = 0; i < runs; ++i) {
+            final StudyMetadata study = StudyIO.parseFromGPB(new ByteArrayInputStream(referenceGPB));
+            StudyUtils.denormalizeStudy(study);
+            studies.add(study);
+        }
+        assertWithinBudget("normalize", NORMALIZE_BUDGET, new Operation() {
+            public void run() throws Exception {
+                StudyUtils.normalizeStudy(studies.remove(studies.size() - 1));
+            }
+        });
+    }
+
+    /**
+     * A multipart request for all items of the reference study through the controller, half of them cached, so
+     * that the per-item part headers, the read-ahead and the cache lookups are measured along with the copying.
+     */
+    @Test
+    public void testStreamBinaryItems() throws Exception {
+        final BinaryItemCache cache = new BinaryItemCache(8 * 1024 * 1024, 4 * 1024 * 1024);
+        final List<Integer> cachedBids = new ArrayList<Integer>();
+        for (int i = 0; i < CACHED_ITEM_COUNT; ++i) {
+            cachedBids.add(i);
+        }
+        cache.admit(STUDY_UUID, STUDY_TYPE, getBinaryItemDir(), cachedBids);
+
+        final StudyBinaryItemsController controller = newBinaryItemsController(cache);
+        controller.setupStreaming();
+        try {
+            final HttpServletRequest req = request();
+            final HttpServletResponse res = response();
+            final String seq = "0-" + (STREAMED_ITEM_COUNT - 1);
+            assertWithinBudget("stream " + seq + " binary items", STREAM_ITEMS_BUDGET, new Operation() {
+                public void run() throws Exception {
+                    controller.studiesBinaryItems(res, req, STUDY_UUID, STUDY_TYPE, seq);
+                }
+            });
+        } finally {
+            controller.stopStreaming();
+        }
+    }
+
+    /**
+     * @return the controller configured as by the default configuration, except that items are read ahead on the
+     * request thread rather than on the prefetch pool, so that all allocation for the request is counted
+     */
+    private static StudyBinaryItemsController newBinaryItemsController(final BinaryItemCache cache) {
+        return new StudyBinaryItemsController() {
+            {
+                studiesRoot = AllocationBudgetTest.studiesRoot;
+                binaryItemResponseBufferSize = 65536;
+                binaryItemStreamBufferSize = STREAM_BUFFER_SIZE;
+                useSendfile = false;
+                binaryItemRequestLimit = 10000;
+                binaryItemMaxStreams = 100;
+                binaryItemStreamQueueTimeoutMS = 2000;
+                binaryItemWriteTimeoutMS = 30000;
+                binaryItemMinBytesPerSecond = 1024;
+                binaryItemPrefetchDepth = 4;
+                binaryItemPrefetchMaxItemKB = 256;
+                binaryItemPrefetchThreads = 0;
+                binaryItemCache = cache;
+                binaryItemCompression = false;
+                binaryItemCompressionLevel = 1;
+                binaryItemCompressionMinBytes = 1024;
+                cacheCompressedBinaryItems = false;
+            }
+        };
+    }
+
+    /**
+     * @return a GET request without headers that keeps attributes, such as the streaming slot
+     */
+    private static HttpServletRequest request() {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        return (HttpServletRequest) Proxy.newProxyInstance(AllocationBudgetTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        final String name = method.getName();
+                        if (name.equals("getMethod")) {
+                            return "GET";
+                        } else if (name.equals("getHeader")) {
+                            return null;
+                        } else if (name.equals("getAttribute")) {
+                            return attributes.get(args[0]);
+                        } else if (name.equals("setAttribute")) {
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        } else if (name.equals("removeAttribute")) {
+                            attributes.remove(args[0]);
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    /**
+     * @return a response that discards its content and fails on errors
+     */
+    private static HttpServletResponse response() {
+        final ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(final int b) {
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(AllocationBudgetTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        final String name = method.getName();
+                        if (name.equals("getOutputStream")) {
+                            return out;
+                        } else if (name.equals("getBufferSize")) {
+                            return 8192;
+                        } else if (name.equals("setBufferSize") || name.equals("setHeader")
+                                || name.equals("setContentType")) {
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(name + " " + Arrays.toString(args));
+                    }
+                });
+    }
+
+    @Test
+    public void testAccumulateFile() throws Exception {
+        assertWithinBudget("accumulateFile", ACCUMULATE_BUDGET, new Operation() {
+            public void run() throws Exception {
+                accumulate();
+            }
+        });
+    }
+
+    private static MetaBinaryPairImpl accumulate() {
+        final MetaBinaryPairImpl metaBinaryPair = new MetaBinaryPairImpl();
+        metaBinaryPair.setBinaryData(new BinaryDcmData());
+        final LevelAttributes studyLevelTags = new LevelAttributes();
+        studyLevelTags.addAttributeType(Tag.PatientName, "Patient's Name");
+        studyLevelTags.addAttributeType(Tag.PatientID, "Patient ID");
+        final LevelAttributes seriesLevelTags = new LevelAttributes();
+        seriesLevelTags.addAttributeType(Tag.Modality, "Modality");
+        seriesLevelTags.addAttributeType(Tag.SeriesDescription, "Series Description");
+        final Dcm2MetaBuilder builder = new Dcm2MetaBuilder(studyLevelTags, seriesLevelTags, metaBinaryPair);
+        for (int i = 0; i < dcmObjects.size(); ++i) {
+            builder.accumulateFile(dcmFiles.get(i), dcmObjects.get(i), TransferSyntax.ExplicitVRLittleEndian);
+        }
+        return metaBinaryPair;
+    }
+
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs the operation a few times to get class loading and one-time initialization out of the way, then
+     * takes the smallest allocation figure of the measured runs to keep GC-related noise out of the result.
+     */
+    private static void assertWithinBudget(final String name, final long budget, final Operation operation)
+            throws Exception {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocMXBean.isThreadAllocatedMemorySupported());
+        if (!allocMXBean.isThreadAllocatedMemoryEnabled()) {
+            allocMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        final long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_RUNS; ++i) {
+            operation.run();
+        }
+        long allocated = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; ++i) {
+            final long start = allocMXBean.getThreadAllocatedBytes(threadId);
+            operation.run();
+            final long end = allocMXBean.getThreadAllocatedBytes(threadId);
+            allocated = Math.min(allocated, end - start);
+        }
+
+        LOG.info(name + " allocated " + allocated + " bytes (budget " + budget + ")");
+        assertTrue(name + " allocated " + allocated + " bytes, exceeding its budget of " + budget + " bytes",
+                allocated <= budget);
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    }
+}
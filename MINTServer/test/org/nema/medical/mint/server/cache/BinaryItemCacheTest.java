@@ -0,0 +1,138 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nema.medical.mint.server.util.BinaryItemStore;
+
+public class BinaryItemCacheTest {
+
+    private File binaryRoot;
+    private BinaryItemStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        binaryRoot = File.createTempFile("itemcache", "");
+        binaryRoot.delete();
+        binaryRoot.mkdirs();
+        for (int bid = 0; bid < 10; ++bid) {
+            FileUtils.writeStringToFile(new File(binaryRoot, bid + ".dat"), "0123456789".substring(0, bid + 1),
+                    "US-ASCII");
+        }
+        store = BinaryItemStore.open(binaryRoot);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        FileUtils.deleteDirectory(binaryRoot);
+    }
+
+    @Test
+    public void testLoadAndHit() throws IOException {
+        final BinaryItemCache cache = new BinaryItemCache(100, 10);
+        assertNull(cache.getIfPresent("s/DICOM/4"));
+        final BinaryItemCache.CachedItem loaded = cache.get("s/DICOM/4", store, store.getItem(4, false));
+        assertEquals("01234", toString(loaded));
+        assertEquals("01234", toString(cache.getIfPresent("s/DICOM/4")));
+        // Counted at the size class
+        assertEquals(8, cache.getSize());
+    }
+
+    @Test
+    public void testTooLargeIsNotCached() throws IOException {
+        final BinaryItemCache cache = new BinaryItemCache(100, 4);
+        assertNull(cache.get("s/DICOM/9", store, store.getItem(9, false)));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void testDisabled() throws IOException {
+        final BinaryItemCache cache = new BinaryItemCache(0, 10);
+        assertNull(cache.get("s/DICOM/1", store, store.getItem(1, false)));
+        assertNull(cache.getIfPresent("s/DICOM/1"));
+    }
+
+    @Test
+    public void testScanDoesNotEvictProtectedItems() throws IOException {
+        // 20 bytes, of which the protected segment may hold 16
+        final BinaryItemCache cache = new BinaryItemCache(20, 10);
+        cache.get("s/DICOM/4", store, store.getItem(4, false));
+        assertNotNull(cache.getIfPresent("s/DICOM/4"));
+        for (int bid = 0; bid < 10; ++bid) {
+            cache.get("t/DICOM/" + bid, store, store.getItem(bid, false));
+        }
+        assertNotNull(cache.getIfPresent("s/DICOM/4"));
+        assertTrue(cache.getSize() <= 20);
+    }
+
+    @Test
+    public void testInvalidateStudy() throws IOException {
+        final BinaryItemCache cache = new BinaryItemCache(100, 10);
+        cache.admit("s", "DICOM", binaryRoot, Arrays.asList(0, 1, 2));
+        cache.get("t/DICOM/3", store, store.getItem(3, false));
+        assertEquals(4, cache.getEntryCount());
+        cache.invalidateStudy("s");
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(4, cache.getSize());
+        assertNull(cache.getIfPresent("s/DICOM/0"));
+    }
+
+    @Test
+    public void testReusesFreedBuffers() throws IOException {
+        final BinaryItemCache cache = new BinaryItemCache(32, 10);
+        cache.load("s/DICOM/4", store, store.getItem(4, false)).release();
+        cache.invalidateStudy("s");
+        assertEquals(8, cache.getFreeBytes());
+        // Another item of the same size class takes the freed buffer
+        assertEquals("0123456", toString(cache.load("t/DICOM/6", store, store.getItem(6, false))));
+        assertEquals(0, cache.getFreeBytes());
+    }
+
+    @Test
+    public void testPinnedBufferIsNotReused() throws IOException {
+        final BinaryItemCache cache = new BinaryItemCache(32, 10);
+        final BinaryItemCache.CachedItem pinned = cache.load("s/DICOM/4", store, store.getItem(4, false));
+        cache.invalidateStudy("s");
+        assertEquals(0, cache.getFreeBytes());
+        cache.load("t/DICOM/7", store, store.getItem(7, false)).release();
+        assertEquals("01234", toString(pinned));
+        pinned.release();
+        assertEquals(8, cache.getFreeBytes());
+        pinned.release();
+        assertEquals(8, cache.getFreeBytes());
+    }
+
+    private static String toString(final BinaryItemCache.CachedItem cached) {
+        final ByteBuffer buffer = cached.getContent();
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetadataCacheTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("metadata", ".xml");
+        FileUtils.writeStringToFile(file, "<study/>", "US-ASCII");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testLoadAndHit() throws IOException {
+        final MetadataCache cache = new MetadataCache(100, 50);
+        final String key = MetadataCache.key("s", "DICOM", 3, "metadata.xml");
+        assertNull(cache.getIfPresent(key));
+        assertEquals("<study/>", toString(cache.get(key, file)));
+        file.delete();
+        assertEquals("<study/>", toString(cache.getIfPresent(key)));
+        assertEquals(8, cache.getSize());
+        // Another version is another entry
+        assertNull(cache.getIfPresent(MetadataCache.key("s", "DICOM", 4, "metadata.xml")));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBySize() {
+        final MetadataCache cache = new MetadataCache(20, 20);
+        cache.put("a/DICOM/1/summary.xml", new byte[8], 8);
+        cache.put("b/DICOM/1/summary.xml", new byte[8], 8);
+        cache.getIfPresent("a/DICOM/1/summary.xml");
+        cache.put("c/DICOM/1/summary.xml", new byte[8], 8);
+        assertNull(cache.getIfPresent("b/DICOM/1/summary.xml"));
+        assertEquals(16, cache.getSize());
+        assertNull(cache.put("d/DICOM/1/summary.xml", new byte[21], 21));
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void testInvalidateStudy() {
+        final MetadataCache cache = new MetadataCache(100, 50);
+        cache.put("s/DICOM/1/metadata.gpb", new byte[4], 4);
+        cache.put("s/DICOM/1/summary.xml", new byte[4], 4);
+        cache.put("t/DICOM/1/summary.xml", new byte[4], 4);
+        cache.invalidateStudy("s");
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(4, cache.getSize());
+    }
+
+    private static String toString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class BatchMetadataControllerTest {
+
+    @Test
+    public void testParseStudyIDs() {
+        assertEquals(Collections.emptyList(), BatchMetadataController.parseStudyIDs(null));
+        assertEquals(Collections.emptyList(), BatchMetadataController.parseStudyIDs(new String[] {" , "}));
+        assertEquals(Arrays.asList("a", "b", "c"),
+                BatchMetadataController.parseStudyIDs(new String[] {"a,b", "c\na", " b "}));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BinaryItemSequenceTest {
+
+    @Test
+    public void testMergesAndSorts() {
+        final BinaryItemSequence sequence = BinaryItemSequence.parse("7,2-4,3-5,0,6,10-11");
+        assertEquals(9, sequence.size());
+        assertEquals(11, sequence.getHighestId());
+        assertEquals(Arrays.asList(0, 2, 3, 4, 5, 6, 7, 10, 11), toList(sequence));
+    }
+
+    @Test
+    public void testLargeRangeIsLazy() {
+        final BinaryItemSequence sequence = BinaryItemSequence.parse("0-1999999999");
+        assertEquals(2000000000L, sequence.size());
+        assertEquals(Integer.valueOf(0), sequence.next());
+        assertEquals(Integer.valueOf(1), sequence.next());
+    }
+
+    @Test
+    public void testSkipTo() {
+        final BinaryItemSequence sequence = BinaryItemSequence.parse("0-2,5-7,10");
+        sequence.skipTo(1);
+        assertEquals(Integer.valueOf(1), sequence.next());
+        sequence.skipTo(0);
+        assertEquals(Integer.valueOf(2), sequence.next());
+        sequence.skipTo(3);
+        assertEquals(Arrays.asList(5, 6, 7, 10), toList(sequence));
+
+        final BinaryItemSequence skipped = BinaryItemSequence.parse("0-2,5-7");
+        skipped.skipTo(8);
+        assertFalse(skipped.hasNext());
+    }
+
+    @Test
+    public void testAll() {
+        assertEquals(Arrays.asList(0, 1, 2), toList(BinaryItemSequence.all(2)));
+        final BinaryItemSequence empty = BinaryItemSequence.all(-1);
+        assertFalse(empty.hasNext());
+        assertEquals(0, empty.size());
+        assertEquals(-1, empty.getHighestId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotANumber() {
+        BinaryItemSequence.parse("1,x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegative() {
+        BinaryItemSequence.parse("-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDescendingRange() {
+        BinaryItemSequence.parse("5-2");
+    }
+
+    private static List<Integer> toList(final BinaryItemSequence sequence) {
+        final List<Integer> ids = new ArrayList<Integer>();
+        while (sequence.hasNext()) {
+            ids.add(sequence.next());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BulkManifestTest {
+
+    @Test
+    public void testParseAndMerge() throws IOException {
+        final List<BulkManifest.Entry> entries = parse("# nightly pull\n"
+                + "study1 DICOM 0-9\n"
+                + "\n"
+                + "  study2\n"
+                + "study1 DICOM 20,12\n"
+                + "study1 other all\n"
+                + "study2 DICOM 5\n", 10);
+        assertEquals(3, entries.size());
+        assertEquals("study1", entries.get(0).getUuid());
+        assertEquals("DICOM", entries.get(0).getType());
+        assertEquals("0-9,20,12", entries.get(0).getSeq());
+        assertEquals("study2", entries.get(1).getUuid());
+        assertEquals("DICOM", entries.get(1).getType());
+        assertEquals("all", entries.get(1).getSeq());
+        assertEquals("other", entries.get(2).getType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyFields() throws IOException {
+        parse("study1 DICOM 0-9 extra\n", 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyEntries() throws IOException {
+        parse("study1\nstudy2\nstudy1 DICOM 3\nstudy3\n", 2);
+    }
+
+    @Test
+    public void testCursor() {
+        final BulkManifest.Cursor start = BulkManifest.Cursor.parse(null);
+        assertEquals(0, start.getEntry());
+        assertEquals(0, start.getBid());
+        final BulkManifest.Cursor cursor = BulkManifest.Cursor.parse("12:345");
+        assertEquals(12, cursor.getEntry());
+        assertEquals(345, cursor.getBid());
+        assertEquals("12:345", cursor.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCursor() {
+        BulkManifest.Cursor.parse("12");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCursor() {
+        BulkManifest.Cursor.parse("1:-2");
+    }
+
+    private static List<BulkManifest.Entry> parse(final String manifest, final int maxEntries) throws IOException {
+        return BulkManifest.parse(new BufferedReader(new StringReader(manifest)), maxEntries);
+    }
+}
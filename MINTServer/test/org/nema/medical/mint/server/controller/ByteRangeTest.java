@@ -0,0 +1,78 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testSingleRanges() {
+        assertRanges(ByteRange.parse("bytes=0-499", 1000), 0, 499);
+        assertRanges(ByteRange.parse("bytes=500-", 1000), 500, 999);
+        assertRanges(ByteRange.parse("bytes=-200", 1000), 800, 999);
+        assertRanges(ByteRange.parse("bytes=-2000", 1000), 0, 999);
+        assertRanges(ByteRange.parse("bytes=900-1999", 1000), 900, 999);
+    }
+
+    @Test
+    public void testMultipleRanges() {
+        assertRanges(ByteRange.parse("bytes=0-9, 20-29 ,-5", 100), 0, 9, 20, 29, 95, 99);
+        // Unsatisfiable ranges are dropped as long as one remains
+        assertRanges(ByteRange.parse("bytes=0-9,200-300", 100), 0, 9);
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 1000).isEmpty());
+        assertTrue(ByteRange.parse("bytes=0-10", 0).isEmpty());
+    }
+
+    @Test
+    public void testIgnored() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-1", 1000));
+        assertNull(ByteRange.parse("bytes=abc", 1000));
+        assertNull(ByteRange.parse("bytes=5-1", 1000));
+        assertNull(ByteRange.parse("bytes=1-x", 1000));
+        final StringBuilder tooMany = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= ByteRange.MAX_RANGES; ++i) {
+            tooMany.append(',').append(i).append('-').append(i);
+        }
+        assertNull(ByteRange.parse(tooMany.toString(), 1000));
+    }
+
+    @Test
+    public void testContentRange() {
+        assertEquals("bytes 0-499/1000", new ByteRange(0, 499).toContentRange(1000));
+        assertEquals(500, new ByteRange(0, 499).getLength());
+    }
+
+    private static void assertRanges(final List<ByteRange> ranges, final long... bounds) {
+        assertEquals(bounds.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); ++i) {
+            assertEquals(bounds[2 * i], ranges.get(i).getFirst());
+            assertEquals(bounds[2 * i + 1], ranges.get(i).getLast());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConditionalRequestTest {
+
+    private static final String ETAG = ConditionalRequest.etag("abc", 3, 1024);
+
+    @Test
+    public void testEtag() {
+        assertEquals("\"abc-3-1024\"", ETAG);
+    }
+
+    @Test
+    public void testIfNoneMatch() {
+        assertTrue(ConditionalRequest.etagMatches("\"abc-3-1024\"", ETAG, false));
+        assertTrue(ConditionalRequest.etagMatches("\"x\", W/\"abc-3-1024\"", ETAG, false));
+        assertTrue(ConditionalRequest.etagMatches(" * ", ETAG, false));
+        assertFalse(ConditionalRequest.etagMatches("\"abc-3-1025\"", ETAG, false));
+    }
+
+    @Test
+    public void testIfRangeUsesStrongComparison() {
+        assertTrue(ConditionalRequest.etagMatches("\"abc-3-1024\"", ETAG, true));
+        assertFalse(ConditionalRequest.etagMatches("W/\"abc-3-1024\"", ETAG, true));
+        assertFalse(ConditionalRequest.etagMatches("*", ETAG, true));
+    }
+}
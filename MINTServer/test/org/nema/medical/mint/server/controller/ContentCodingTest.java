@@ -0,0 +1,93 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class ContentCodingTest {
+
+    @Test
+    public void testNegotiate() {
+        assertNull(ContentCoding.negotiate(null));
+        assertNull(ContentCoding.negotiate("identity"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip, deflate"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("deflate, gzip"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("deflate"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*"));
+        assertNull(ContentCoding.negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(ContentCoding.negotiate("*;q=0, identity"));
+    }
+
+    @Test
+    public void testGzipWithLevelChanges() throws IOException {
+        final byte[] native1 = new byte[100000];
+        final byte[] compressed = new byte[50000];
+        new Random(7).nextBytes(compressed);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ContentCoding.Encoder encoder = ContentCoding.encoder(out, ContentCoding.GZIP, 1, 4096);
+        try {
+            encoder.write(native1);
+            encoder.setLevel(Deflater.NO_COMPRESSION);
+            encoder.write(compressed);
+            encoder.setLevel(1);
+            encoder.write(native1, 0, 10);
+            encoder.finish();
+            encoder.finish();
+            assertEquals(out.size(), encoder.getEncodedLength());
+        } finally {
+            encoder.release();
+        }
+        assertEquals(native1.length + compressed.length + 10, encoder.getLength());
+
+        final byte[] decoded = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(native1);
+        expected.write(compressed);
+        expected.write(native1, 0, 10);
+        assertArrayEquals(expected.toByteArray(), decoded);
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        final byte[] data = "binary item binary item binary item".getBytes();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ContentCoding.Encoder encoder = ContentCoding.encoder(out, ContentCoding.DEFLATE, 6, 512);
+        try {
+            encoder.write(data);
+            encoder.finish();
+            assertEquals(out.size(), encoder.getEncodedLength());
+        } finally {
+            encoder.release();
+        }
+        final InputStream in = new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.nema.medical.mint.changelog.Change;
+import org.nema.medical.mint.changelog.ChangeOperation;
+import org.nema.medical.mint.changelog.ChangeSet;
+import org.nema.medical.mint.responses.ResponsesGPB.ChangeData;
+import org.nema.medical.mint.responses.ResponsesGPB.ChangeSetData;
+import org.nema.medical.mint.responses.ResponsesGPB.SearchResultStudyData;
+import org.nema.medical.mint.responses.ResponsesGPB.SearchResultsData;
+import org.nema.medical.mint.studies.SearchResultStudy;
+import org.nema.medical.mint.studies.SearchResults;
+
+public class GPBResponsesTest {
+
+    @Test
+    public void testSearchResults() throws IOException {
+        final SearchResults results = new SearchResults(null, "A123", null, "P1", null, null, null, null, null, null,
+                5, 10);
+        results.addStudy(new SearchResultStudy("1234-5678", new Timestamp(1000L), 3));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GPBResponses.write(results, out);
+
+        final SearchResultsData data = SearchResultsData.parseFrom(out.toByteArray());
+        assertFalse(data.hasStudyInstanceUid());
+        assertEquals("A123", data.getAccessionNumber());
+        assertFalse(data.hasIssuerOfAccessionNumber());
+        assertEquals("P1", data.getPatientId());
+        assertFalse(data.hasMinStudyDateTime());
+        assertEquals(5, data.getOffset());
+        assertEquals(10, data.getLimit());
+        assertEquals(1, data.getStudiesCount());
+
+        final SearchResultStudyData study = data.getStudies(0);
+        assertEquals("1234-5678", study.getStudyUuid());
+        assertEquals(1000L, study.getLastModified());
+        assertEquals(3, study.getVersion());
+    }
+
+    @Test
+    public void testChangeSet() throws IOException {
+        final Change change = new Change("1234-5678", 7, "DICOM", new Timestamp(2000L), null, null,
+                ChangeOperation.UPDATE);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GPBResponses.write(new ChangeSet("1234-5678", Arrays.asList(change)), out);
+
+        final ChangeSetData data = ChangeSetData.parseFrom(out.toByteArray());
+        assertEquals("1234-5678", data.getStudyUuid());
+        assertEquals(1, data.getChangesCount());
+
+        final ChangeData changeData = data.getChanges(0);
+        assertEquals("1234-5678", changeData.getStudyUuid());
+        assertEquals(7, changeData.getChangeNumber());
+        assertEquals("DICOM", changeData.getType());
+        assertEquals(2000L, changeData.getDateTime());
+        assertFalse(changeData.hasRemoteHost());
+        assertFalse(changeData.hasRemoteUser());
+        assertEquals("UPDATE", changeData.getOperation());
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class MultipartOutputTest {
+
+    @Test
+    public void testParts() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final MultipartOutput multipart = new MultipartOutput(out, "b");
+        assertEquals("multipart/mixed; boundary=b", multipart.getContentType());
+
+        multipart.writePart("text/xml", "<a/>".getBytes(), "Content-ID: <DICOM@1>");
+        multipart.startPart("application/octet-stream", 3);
+        out.write(new byte[] {1, 2, 3});
+        multipart.endPart();
+        multipart.writePart("text/plain", ByteBuffer.wrap("abcde".getBytes(), 1, 3), new byte[2]);
+        multipart.finish();
+
+        assertEquals("--b\r\nContent-Type: text/xml\r\nContent-ID: <DICOM@1>\r\nContent-Length: 4\r\n\r\n<a/>\r\n"
+                + "--b\r\nContent-Type: application/octet-stream\r\nContent-Length: 3\r\n\r\n\u0001\u0002\u0003\r\n"
+                + "--b\r\nContent-Type: text/plain\r\nContent-Length: 3\r\n\r\nbcd\r\n"
+                + "--b--\r\n", out.toString("ISO-8859-1"));
+    }
+}
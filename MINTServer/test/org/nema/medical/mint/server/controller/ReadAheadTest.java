@@ -0,0 +1,120 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nema.medical.mint.server.cache.BinaryItemCache;
+import org.nema.medical.mint.server.util.BinaryItemStore;
+
+public class ReadAheadTest {
+
+    private static final BinaryItemCache NO_CACHE = new BinaryItemCache(0, 0);
+
+    private File binaryRoot;
+    private BinaryItemStore store;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        binaryRoot = File.createTempFile("readahead", "");
+        binaryRoot.delete();
+        binaryRoot.mkdirs();
+        for (int bid = 0; bid < 10; ++bid) {
+            if (bid != 6) {
+                FileUtils.writeStringToFile(new File(binaryRoot, bid + ".dat"), "item " + bid, "US-ASCII");
+            }
+        }
+        store = BinaryItemStore.open(binaryRoot);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        store.close();
+        FileUtils.deleteDirectory(binaryRoot);
+    }
+
+    @Test
+    public void testReadsAheadInOrder() throws IOException {
+        final ReadAhead readAhead = new ReadAhead(executor, store, NO_CACHE, "s/DICOM/",
+                BinaryItemSequence.parse("2-7"), false, 3, 4);
+        for (int bid = 2; bid <= 7; ++bid) {
+            final ReadAhead.PrefetchedItem prefetched = readAhead.next();
+            assertEquals(bid, prefetched.getBid());
+            if (bid == 6) {
+                assertNull(prefetched.getItem());
+            } else {
+                assertEquals(6, prefetched.getItem().getLength());
+                assertEquals(4, prefetched.getHeadLength());
+                assertEquals("item", new String(prefetched.getHead(), 0, 4, "US-ASCII"));
+            }
+        }
+        assertFalse(readAhead.hasNext());
+        readAhead.close();
+    }
+
+    @Test
+    public void testTakesCachedItems() throws IOException {
+        final BinaryItemCache cache = new BinaryItemCache(100, 100);
+        cache.load("s/DICOM/1", store, store.getItem(1, false));
+        final ReadAhead readAhead = new ReadAhead(executor, store, cache, "s/DICOM/",
+                BinaryItemSequence.parse("1-2"), false, 3, 4);
+        final ReadAhead.PrefetchedItem hit = readAhead.next();
+        assertEquals(0, hit.getHeadLength());
+        assertEquals(6, hit.getCached().remaining());
+        // Misses are read from the store without being added to the cache
+        final ReadAhead.PrefetchedItem miss = readAhead.next();
+        assertNull(miss.getCached());
+        assertEquals(4, miss.getHeadLength());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testWithoutCache() throws IOException {
+        final ReadAhead readAhead = new ReadAhead(executor, store, null, null,
+                BinaryItemSequence.parse("1-2"), false, 3, 4);
+        for (int bid = 1; bid <= 2; ++bid) {
+            final ReadAhead.PrefetchedItem prefetched = readAhead.next();
+            assertNull(prefetched.getCached());
+            assertEquals(4, prefetched.getHeadLength());
+        }
+        assertFalse(readAhead.hasNext());
+    }
+
+    @Test
+    public void testWithoutExecutor() throws IOException {
+        final ReadAhead readAhead = new ReadAhead(null, store, NO_CACHE, "s/DICOM/",
+                BinaryItemSequence.parse("0,9"), false, 3, 4);
+        assertEquals(0, readAhead.next().getBid());
+        final ReadAhead.PrefetchedItem last = readAhead.next();
+        assertEquals(9, last.getBid());
+        assertEquals(0, last.getHeadLength());
+        assertFalse(readAhead.hasNext());
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ResponseFormatTest {
+
+    @Test
+    public void testNegotiate() {
+        assertEquals(ResponseFormat.XML, ResponseFormat.negotiate(null, null));
+        assertEquals(ResponseFormat.XML, ResponseFormat.negotiate(null, "text/html, */*"));
+        assertEquals(ResponseFormat.GPB, ResponseFormat.negotiate(null, "application/x-protobuf"));
+        assertEquals(ResponseFormat.GPB, ResponseFormat.negotiate(null, "text/xml;q=0.5, application/vnd.google.protobuf"));
+        assertEquals(ResponseFormat.COMPACT_XML, ResponseFormat.negotiate("compact", "application/x-protobuf"));
+        assertEquals(ResponseFormat.GPB, ResponseFormat.negotiate("GPB", null));
+        assertEquals(ResponseFormat.XML, ResponseFormat.negotiate("xml", null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormat() {
+        ResponseFormat.negotiate("json", null);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+public class StreamingLimiterTest {
+
+    @Test
+    public void testAcquireAndRelease() {
+        final StreamingLimiter limiter = new StreamingLimiter(2, 10, 0, 0);
+        final HttpServletRequest first = request();
+        final HttpServletRequest second = request();
+        final HttpServletRequest third = request();
+        assertTrue(limiter.acquire(first));
+        // A request holds at most one slot
+        assertTrue(limiter.acquire(first));
+        assertEquals(1, limiter.getActiveStreams());
+        assertTrue(limiter.acquire(second));
+        assertEquals(2, limiter.getActiveStreams());
+
+        assertFalse(limiter.acquire(third));
+        limiter.release(first);
+        limiter.release(first);
+        assertEquals(1, limiter.getActiveStreams());
+        assertTrue(limiter.acquire(third));
+        limiter.release(second);
+        limiter.release(third);
+        assertEquals(0, limiter.getActiveStreams());
+    }
+
+    @Test
+    public void testUnlimited() {
+        final StreamingLimiter limiter = new StreamingLimiter(0, 10, 0, 0);
+        final HttpServletRequest req = request();
+        assertTrue(limiter.acquire(req));
+        assertEquals(0, limiter.getActiveStreams());
+        limiter.release(req);
+    }
+
+    @Test
+    public void testGuardDisabledWithoutWriteTimeout() {
+        final OutputStream out = new NullOutputStream();
+        assertSame(out, new StreamingLimiter(0, 0, 0, 1024).guard(out));
+    }
+
+    @Test(expected = IOException.class)
+    public void testSlowWriteIsCutOff() throws IOException {
+        final OutputStream out = new StreamingLimiter(0, 0, 50, 0).guard(new SlowOutputStream(200));
+        out.write(new byte[16]);
+    }
+
+    @Test
+    public void testSlowRateIsCutOff() throws IOException {
+        // Each write blocks for 20 ms, well within the write timeout, but 100 bytes per 20 ms is 5 KB/s
+        final OutputStream out = new StreamingLimiter(0, 0, 200, 64 * 1024).guard(new SlowOutputStream(20));
+        int writes = 0;
+        try {
+            while (writes < 100) {
+                out.write(new byte[100]);
+                ++writes;
+            }
+        } catch (final IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("minimum rate"));
+        }
+        // Cut off once writes have blocked for the write timeout, after about 10 of them
+        assertTrue("Cut off after " + writes + " writes", writes >= 5 && writes < 100);
+    }
+
+    @Test
+    public void testServerStallsDoNotCount() throws IOException, InterruptedException {
+        final OutputStream out = new StreamingLimiter(0, 0, 50, 64 * 1024).guard(new NullOutputStream());
+        for (int i = 0; i < 3; ++i) {
+            out.write(new byte[100]);
+            out.flush();
+            // The server stalls, e.g. reading the next item; the client is not to blame
+            Thread.sleep(40);
+        }
+    }
+
+    /**
+     * A client that takes the given time to accept each write.
+     */
+    private static final class SlowOutputStream extends OutputStream {
+        private final long delayMS;
+
+        SlowOutputStream(final long delayMS) {
+            this.delayMS = delayMS;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            try {
+                Thread.sleep(delayMS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted");
+            }
+        }
+    }
+
+    /**
+     * @return a request that only keeps attributes
+     */
+    private static HttpServletRequest request() {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        return (HttpServletRequest) Proxy.newProxyInstance(StreamingLimiterTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        final String name = method.getName();
+                        if (name.equals("getAttribute")) {
+                            return attributes.get(args[0]);
+                        } else if (name.equals("setAttribute")) {
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        } else if (name.equals("removeAttribute")) {
+                            attributes.remove(args[0]);
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.controller;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UtilsTest {
+
+    @Test
+    public void testIsPathElement() {
+        assertTrue(Utils.isPathElement("4e1c2f0a-1b2c-4d5e-8f90-123456789abc"));
+        assertTrue(Utils.isPathElement("DICOM"));
+        assertFalse(Utils.isPathElement(".."));
+        assertFalse(Utils.isPathElement("."));
+        assertFalse(Utils.isPathElement("a/b"));
+        assertFalse(Utils.isPathElement("a\\b"));
+        assertFalse(Utils.isPathElement(""));
+        assertFalse(Utils.isPathElement(null));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+
+    @Test
+    public void testLookupReturnsSameMetric() {
+        assertSame(metrics.counter("test.lookup.counter"), metrics.counter("test.lookup.counter"));
+        assertSame(metrics.meter("test.lookup.meter"), metrics.meter("test.lookup.meter"));
+        assertSame(metrics.histogram("test.lookup.histogram"), metrics.histogram("test.lookup.histogram"));
+    }
+
+    @Test
+    public void testSnapshot() {
+        metrics.counter("test.snapshot.counter").inc(3);
+        metrics.meter("test.snapshot.meter").mark(5);
+        metrics.histogram("test.snapshot.histogram").update(2, TimeUnit.MILLISECONDS);
+
+        final Map<String, Map<String, Number>> snapshot = metrics.snapshot();
+        assertEquals(3L, snapshot.get("test.snapshot.counter").get("count"));
+        assertEquals(5L, snapshot.get("test.snapshot.meter").get("count"));
+        assertEquals(1L, snapshot.get("test.snapshot.histogram").get("count"));
+    }
+
+    @Test
+    public void testGauges() {
+        metrics.registerGauge("test.gauge", new Gauge() {
+            public long getValue() {
+                return 42;
+            }
+        });
+        metrics.registerGauge("test.gauge.failing", new Gauge() {
+            public long getValue() {
+                throw new IllegalStateException("shut down");
+            }
+        });
+        try {
+            final Map<String, Map<String, Number>> snapshot = metrics.snapshot();
+            assertEquals(42L, snapshot.get("test.gauge").get("value"));
+            // A failing gauge is reported as -1 rather than failing the snapshot
+            assertEquals(-1L, snapshot.get("test.gauge.failing").get("value"));
+        } finally {
+            metrics.unregisterGauge("test.gauge");
+            metrics.unregisterGauge("test.gauge.failing");
+        }
+        assertFalse(metrics.snapshot().containsKey("test.gauge"));
+    }
+
+    @Test
+    public void testHistogramQuantiles() {
+        final Histogram histogram = new Histogram();
+        for (int i = 0; i < 99; ++i) {
+            histogram.update(200, TimeUnit.MICROSECONDS);
+        }
+        histogram.update(40, TimeUnit.MILLISECONDS);
+        assertEquals(100, histogram.getCount());
+        assertEquals(0.25, histogram.getQuantileMillis(0.5), 0.0);
+        // Bucket bounds are capped at the observed maximum
+        assertEquals(40.0, histogram.getQuantileMillis(1.0), 0.0);
+        assertEquals(40.0, histogram.getMaxMillis(), 0.0);
+    }
+
+    @Test
+    public void testWriteText() {
+        metrics.counter("test.text.counter").inc();
+        final StringWriter text = new StringWriter();
+        metrics.writeText(new PrintWriter(text));
+        assertTrue(text.toString().contains("test.text.counter count=1\n"));
+    }
+
+    @Test
+    public void testWriteJSON() {
+        metrics.counter("test.json.\"counter\"").inc(2);
+        final StringWriter json = new StringWriter();
+        metrics.writeJSON(new PrintWriter(json));
+        assertTrue(json.toString().startsWith("{"));
+        assertTrue(json.toString().contains("\"test.json.\\\"counter\\\"\": {\"count\": 2}"));
+    }
+
+    @Test
+    public void testFormatNumberIgnoresLocale() {
+        assertEquals("1.500", MetricsRegistry.formatNumber(1.5));
+        assertEquals("7", MetricsRegistry.formatNumber(7L));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nema.medical.mint.server.domain.JobInfo;
+import org.nema.medical.mint.server.domain.JobInfoDAO;
+
+public class JobProgressTest {
+
+    private JobInfo jobInfo;
+    private StubJobInfoDAO jobInfoDAO;
+
+    @Before
+    public void setUp() {
+        jobInfo = new JobInfo();
+        jobInfo.setId("job");
+        jobInfoDAO = new StubJobInfoDAO();
+    }
+
+    @Test
+    public void testProgressThroughStages() {
+        final JobProgress progress = newProgress();
+        progress.stage("load");
+        assertEquals(Integer.valueOf(0), jobInfo.getProgress());
+        assertEquals("load", jobInfo.getCurrentStage());
+        assertEquals("0% complete (load)", jobInfo.getStatusDescription());
+        assertNull(jobInfo.getStageTimings());
+
+        progress.stage("validate");
+        assertEquals(Integer.valueOf(25), jobInfo.getProgress());
+        assertEquals("25% complete (validate)", jobInfo.getStatusDescription());
+        assertTrue(jobInfo.getStageTimings().matches("load=\\d+"));
+
+        // Skipping a stage counts it as done
+        progress.stage("commit");
+        assertEquals(Integer.valueOf(75), jobInfo.getProgress());
+        assertEquals(3, jobInfoDAO.saves);
+
+        progress.finish();
+        assertEquals(Integer.valueOf(100), jobInfo.getProgress());
+        assertNull(jobInfo.getCurrentStage());
+        assertTrue(jobInfo.getStageTimings(),
+                jobInfo.getStageTimings().matches("load=\\d+, validate=\\d+, commit=\\d+"));
+        // The caller saves the final state
+        assertEquals(3, jobInfoDAO.saves);
+    }
+
+    @Test
+    public void testStageTimingsMeasureEachStage() throws InterruptedException {
+        final JobProgress progress = newProgress();
+        progress.stage("load");
+        Thread.sleep(50);
+        progress.stage("validate");
+        progress.finish();
+        final Matcher timings = Pattern.compile("load=(\\d+), validate=(\\d+)").matcher(jobInfo.getStageTimings());
+        assertTrue(jobInfo.getStageTimings(), timings.matches());
+        assertTrue(timings.group(1), Long.parseLong(timings.group(1)) >= 50);
+    }
+
+    @Test
+    public void testFailKeepsTheCurrentStage() {
+        final JobProgress progress = newProgress();
+        progress.stage("load");
+        progress.stage("validate");
+        progress.fail();
+        assertEquals("validate", jobInfo.getCurrentStage());
+        assertEquals(Integer.valueOf(25), jobInfo.getProgress());
+        assertTrue(jobInfo.getStageTimings(), jobInfo.getStageTimings().matches("load=\\d+, validate=\\d+"));
+
+        // The failed stage is only recorded once
+        final String timings = jobInfo.getStageTimings();
+        progress.fail();
+        assertEquals(timings, jobInfo.getStageTimings());
+        assertEquals(2, jobInfoDAO.saves);
+    }
+
+    @Test
+    public void testFailBeforeAnyStage() {
+        newProgress().fail();
+        assertNull(jobInfo.getStageTimings());
+        assertNull(jobInfo.getCurrentStage());
+    }
+
+    @Test
+    public void testProgressSurvivesSaveFailures() {
+        jobInfoDAO.failing = true;
+        final JobProgress progress = newProgress();
+        progress.stage("load");
+        progress.stage("validate");
+        assertEquals(Integer.valueOf(25), jobInfo.getProgress());
+        assertEquals("validate", jobInfo.getCurrentStage());
+        assertEquals(2, jobInfoDAO.saves);
+    }
+
+    private JobProgress newProgress() {
+        return new JobProgress(jobInfo, jobInfoDAO, "test.job", "load", "validate", "write", "commit");
+    }
+
+    /**
+     * Counts saves instead of going to the database; fails them if asked to.
+     */
+    private static final class StubJobInfoDAO extends JobInfoDAO {
+        private int saves = 0;
+        private boolean failing = false;
+
+        @Override
+        public JobInfo saveOrUpdateJobInfo(final JobInfo jobInfo) {
+            ++saves;
+            if (failing) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            return jobInfo;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        final BufferPool pool = new BufferPool(1024 * 1024);
+        assertEquals(BufferPool.MIN_SIZE, pool.acquire(0).length);
+        assertEquals(16 * 1024, pool.acquire(16 * 1024).length);
+        assertEquals(32 * 1024, pool.acquire(16 * 1024 + 1).length);
+        assertEquals(BufferPool.MAX_SIZE, pool.acquire(600000).length);
+        assertEquals(BufferPool.MAX_SIZE + 1, pool.acquire(BufferPool.MAX_SIZE + 1).length);
+    }
+
+    @Test
+    public void testReuse() {
+        final BufferPool pool = new BufferPool(1024 * 1024);
+        // The first small buffer is kept by the thread, the second goes to the shared pool
+        final byte[] first = pool.acquire(8192);
+        final byte[] second = pool.acquire(8192);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(8192, pool.getPooledBytes());
+        assertSame(first, pool.acquire(8192));
+        assertSame(second, pool.acquire(8192));
+        assertEquals(0, pool.getPooledBytes());
+
+        // Buffers the pool did not hand out are ignored
+        pool.release(new byte[1000]);
+        pool.release(null);
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testCapacity() {
+        final BufferPool pool = new BufferPool(BufferPool.MAX_SIZE);
+        final byte[] first = pool.acquire(BufferPool.MAX_SIZE);
+        final byte[] second = pool.acquire(BufferPool.MAX_SIZE);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(BufferPool.MAX_SIZE, pool.getPooledBytes());
+        assertSame(first, pool.acquire(BufferPool.MAX_SIZE));
+        assertNotSame(second, pool.acquire(BufferPool.MAX_SIZE));
+    }
+
+    @Test
+    public void testBufferedStreams() throws IOException {
+        final BufferPool pool = new BufferPool(4 * 1024 * 1024);
+        final byte[] data = new byte[300000];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final BufferedOutputStream out = pool.bufferedOutputStream(bytes, 600000);
+        out.write(data, 0, 10);
+        out.write(data, 10, data.length - 10);
+        out.close();
+        out.close();
+        assertArrayEquals(data, bytes.toByteArray());
+        assertEquals(BufferPool.MAX_SIZE, pool.getPooledBytes());
+
+        final BufferedInputStream in = pool.bufferedInputStream(new ByteArrayInputStream(data), 600000);
+        assertEquals(0, pool.getPooledBytes());
+        final byte[] read = new byte[data.length];
+        int total = 0;
+        while (total < read.length) {
+            total += in.read(read, total, read.length - total);
+        }
+        in.close();
+        in.close();
+        assertArrayEquals(data, read);
+        assertEquals(BufferPool.MAX_SIZE, pool.getPooledBytes());
+    }
+}
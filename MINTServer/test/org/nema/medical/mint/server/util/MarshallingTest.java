@@ -0,0 +1,68 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import org.jibx.runtime.JiBXException;
+import org.junit.Test;
+import org.nema.medical.mint.changelog.Change;
+import org.nema.medical.mint.changelog.ChangeOperation;
+import org.nema.medical.mint.changelog.ChangeSet;
+
+public class MarshallingTest {
+
+    private static final String STYLESHEET = "type=\"text/xsl\" href=\"/style.xsl\"";
+
+    @Test
+    public void testReadableAndCompact() throws Exception {
+        final String readable = marshal(false);
+        assertTrue(readable.contains("<?xml-stylesheet " + STYLESHEET + "?>"));
+        assertTrue(readable.contains("\n  <change "));
+
+        final String compact = marshal(true);
+        assertFalse(compact.contains("xml-stylesheet"));
+        assertFalse(compact.contains("\n"));
+        assertTrue(compact.contains("changeNumber=\"3\""));
+        assertTrue(compact.length() < readable.length());
+    }
+
+    @Test
+    public void testReusedContextGivesSameOutput() throws Exception {
+        final String readable = marshal(false);
+        final String compact = marshal(true);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(readable, marshal(false));
+            assertEquals(compact, marshal(true));
+        }
+    }
+
+    private static String marshal(final boolean compact) throws IOException, JiBXException {
+        final Change change = new Change("1234-5678", 3, "DICOM", new Timestamp(0L), "localhost", "mint",
+                ChangeOperation.CREATE);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Marshalling.marshal(new ChangeSet(Arrays.asList(change)), "serverChangelog", ChangeSet.class, out, compact,
+                STYLESHEET);
+        return out.toString();
+    }
+}
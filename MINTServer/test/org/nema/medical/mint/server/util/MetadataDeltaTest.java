@@ -0,0 +1,160 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.nema.medical.mint.changelog.ChangeOperation;
+import org.nema.medical.mint.metadata.Attribute;
+import org.nema.medical.mint.metadata.Instance;
+import org.nema.medical.mint.metadata.Series;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+import org.nema.medical.mint.server.domain.Change;
+
+public class MetadataDeltaTest {
+
+    private static final int INSTANCE_NUMBER = 0x00200013;
+    private static final int SLICE_THICKNESS = 0x00180050;
+    private static final int STUDY_DESCRIPTION = 0x00081030;
+
+    @Test
+    public void testLaterUpdatesWin() {
+        final StudyMetadata first = update("1.2.3", "1.2.3.1");
+        first.putAttribute(attribute(STUDY_DESCRIPTION, "first"));
+        final StudyMetadata second = update("1.2.3", "1.2.3.2");
+        second.putAttribute(attribute(STUDY_DESCRIPTION, "second"));
+        final Instance renumbered = new Instance();
+        renumbered.setSOPInstanceUID("1.2.3.1");
+        renumbered.putAttribute(attribute(INSTANCE_NUMBER, "7"));
+        second.getSeries("1.2.3").putInstance(renumbered);
+
+        final StudyMetadata delta = MetadataDelta.merge(Arrays.asList(first, second));
+        assertEquals("second", delta.getValueForAttribute(STUDY_DESCRIPTION));
+        final Series series = delta.getSeries("1.2.3");
+        assertEquals(2, series.instanceCount());
+        assertEquals("7", series.getInstance("1.2.3.1").getValueForAttribute(INSTANCE_NUMBER));
+    }
+
+    @Test
+    public void testKeepsExcludes() {
+        final StudyMetadata first = update("1.2.3", "1.2.3.1");
+        final StudyMetadata second = new StudyMetadata();
+        second.setStudyInstanceUID("1.2");
+        final Series excluded = new Series();
+        excluded.setSeriesInstanceUID("1.2.3");
+        excluded.setExcluded(true);
+        second.putSeries(excluded);
+        final Attribute excludedAttribute = attribute(STUDY_DESCRIPTION, null);
+        excludedAttribute.setExcluded(true);
+        second.putAttribute(excludedAttribute);
+
+        final StudyMetadata delta = MetadataDelta.merge(Arrays.asList(first, second));
+        assertTrue(delta.getAttribute(STUDY_DESCRIPTION).isExcluded());
+        assertTrue(delta.getSeries("1.2.3").isExcluded());
+        assertFalse(delta.getSeries("1.2.3").instanceIterator().hasNext());
+    }
+
+    @Test
+    public void testDenormalizesPerUpdate() {
+        final StudyMetadata first = update("1.2.3", "1.2.3.1");
+        first.getSeries("1.2.3").putNormalizedInstanceAttribute(attribute(SLICE_THICKNESS, "5"));
+        final StudyMetadata second = update("1.2.3", "1.2.3.2");
+
+        final Series series = MetadataDelta.merge(Arrays.asList(first, second)).getSeries("1.2.3");
+        assertFalse(series.normalizedInstanceAttributeIterator().hasNext());
+        assertEquals("5", series.getInstance("1.2.3.1").getValueForAttribute(SLICE_THICKNESS));
+        assertNull(series.getInstance("1.2.3.2").getAttribute(SLICE_THICKNESS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsExcludedAndAddedAgain() {
+        final StudyMetadata first = update("1.2.3", "1.2.3.1");
+        first.getSeries("1.2.3").getInstance("1.2.3.1").setExcluded(true);
+        MetadataDelta.merge(Arrays.asList(first, update("1.2.3", "1.2.3.1")));
+    }
+
+    @Test
+    public void testLoadFromChangelog() throws IOException {
+        final File changelogRoot = File.createTempFile("changelog", "");
+        changelogRoot.delete();
+        try {
+            final List<Change> changes = new ArrayList<Change>();
+            for (int index = 0; index < 4; ++index) {
+                final File folder = new File(changelogRoot, Integer.toString(index));
+                folder.mkdirs();
+                final StudyMetadata update = update("1.2.3", "1.2.3." + index);
+                update.putAttribute(attribute(STUDY_DESCRIPTION, Integer.toString(index)));
+                StudyIO.writeToGPB(update, new File(folder, "metadata.gpb"));
+                changes.add(change(index, index == 2 ? "OTHER" : "DICOM"));
+            }
+
+            final List<Integer> indexes = MetadataDelta.findVersionIndexes(changes, "DICOM");
+            assertEquals(Arrays.asList(0, 1, 3), indexes);
+            final Series series = MetadataDelta.load(changelogRoot, indexes, 0).getSeries("1.2.3");
+            assertEquals(2, series.instanceCount());
+            assertNull(series.getInstance("1.2.3.2"));
+            assertEquals("3", MetadataDelta.load(changelogRoot, indexes, 1).getValueForAttribute(STUDY_DESCRIPTION));
+            assertFalse(MetadataDelta.load(changelogRoot, indexes, 2).hasSeries());
+        } finally {
+            FileUtils.deleteDirectory(changelogRoot);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownVersions() throws IOException {
+        MetadataDelta.load(new File("changelog"), Arrays.asList(0, 1), 2);
+    }
+
+    private static Change change(final int index, final String type) {
+        final Change change = new Change();
+        change.setIndex(index);
+        change.setType(type);
+        change.setOperation(index == 0 ? ChangeOperation.CREATE : ChangeOperation.UPDATE);
+        return change;
+    }
+
+    private static StudyMetadata update(final String seriesInstanceUID, final String sopInstanceUID) {
+        final StudyMetadata study = new StudyMetadata();
+        study.setStudyInstanceUID("1.2");
+        final Series series = new Series();
+        series.setSeriesInstanceUID(seriesInstanceUID);
+        final Instance instance = new Instance();
+        instance.setSOPInstanceUID(sopInstanceUID);
+        series.putInstance(instance);
+        study.putSeries(series);
+        return study;
+    }
+
+    private static Attribute attribute(final int tag, final String value) {
+        final Attribute attribute = new Attribute();
+        attribute.setTag(tag);
+        attribute.setVr("LO");
+        attribute.setVal(value);
+        return attribute;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nema.medical.mint.metadata.Attribute;
+import org.nema.medical.mint.metadata.Instance;
+import org.nema.medical.mint.metadata.Series;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+
+public class MetadataHistoryTest {
+
+    private static final int STUDY_DESCRIPTION = 0x00081030;
+
+    private File studyFolder;
+    private File typeFolder;
+    private File changelogRoot;
+    private List<Integer> versionIndexes;
+
+    /**
+     * Five versions, each adding an instance and changing the study description; version 3 also drops the
+     * instance of version 1.
+     */
+    @Before
+    public void setUp() throws IOException {
+        studyFolder = File.createTempFile("history", "");
+        studyFolder.delete();
+        typeFolder = new File(studyFolder, "DICOM");
+        changelogRoot = new File(studyFolder, "changelog");
+        typeFolder.mkdirs();
+
+        StudyMetadata current = null;
+        for (int version = 0; version < 5; ++version) {
+            final File folder = new File(changelogRoot, Integer.toString(version));
+            folder.mkdirs();
+            final StudyMetadata update = update(version);
+            StudyIO.writeToGPB(update, new File(folder, "metadata.gpb"));
+            current = MetadataHistory.apply(current, StudyIO.loadStudy(folder));
+        }
+        StudyIO.writeToGPB(current, new File(typeFolder, "metadata.gpb"));
+        versionIndexes = Arrays.asList(0, 1, 2, 3, 4);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(studyFolder);
+    }
+
+    @Test
+    public void testRebuildsVersions() throws IOException {
+        final StudyMetadata first = MetadataHistory.load(typeFolder, changelogRoot, versionIndexes, 0, 2);
+        assertEquals("0", first.getValueForAttribute(STUDY_DESCRIPTION));
+        assertEquals(1, first.getSeries("1.2.3").instanceCount());
+
+        final StudyMetadata third = MetadataHistory.load(typeFolder, changelogRoot, versionIndexes, 2, 2);
+        assertEquals("2", third.getValueForAttribute(STUDY_DESCRIPTION));
+        assertEquals(3, third.getSeries("1.2.3").instanceCount());
+
+        final Series fourth = MetadataHistory.load(typeFolder, changelogRoot, versionIndexes, 3, 2).getSeries("1.2.3");
+        assertEquals(3, fourth.instanceCount());
+        assertNull(fourth.getInstance("1.2.3.1"));
+
+        assertEquals("4", MetadataHistory.load(typeFolder, changelogRoot, versionIndexes, 4, 2)
+                .getValueForAttribute(STUDY_DESCRIPTION));
+    }
+
+    @Test
+    public void testReplaysFromSnapshots() throws IOException {
+        MetadataHistory.load(typeFolder, changelogRoot, versionIndexes, 3, 2);
+        final File snapshot = MetadataHistory.getSnapshotFile(typeFolder, 2);
+        assertTrue(snapshot.exists());
+        assertFalse(MetadataHistory.getSnapshotFile(typeFolder, 0).exists());
+
+        // The snapshot is used instead of the updates before it
+        FileUtils.deleteDirectory(new File(changelogRoot, "1"));
+        assertEquals("3", MetadataHistory.load(typeFolder, changelogRoot, versionIndexes, 3, 2)
+                .getValueForAttribute(STUDY_DESCRIPTION));
+    }
+
+    @Test
+    public void testWithoutSnapshots() throws IOException {
+        assertEquals("3", MetadataHistory.load(typeFolder, changelogRoot, versionIndexes, 3, 0)
+                .getValueForAttribute(STUDY_DESCRIPTION));
+        assertFalse(new File(typeFolder, MetadataHistory.SNAPSHOT_FOLDER).exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownVersions() throws IOException {
+        MetadataHistory.load(typeFolder, changelogRoot, versionIndexes, 5, 2);
+    }
+
+    private static StudyMetadata update(final int version) {
+        final StudyMetadata study = new StudyMetadata();
+        study.setStudyInstanceUID("1.2");
+        final Attribute description = new Attribute();
+        description.setTag(STUDY_DESCRIPTION);
+        description.setVr("LO");
+        description.setVal(Integer.toString(version));
+        study.putAttribute(description);
+        final Series series = new Series();
+        series.setSeriesInstanceUID("1.2.3");
+        final Instance instance = new Instance();
+        instance.setSOPInstanceUID("1.2.3." + version);
+        series.putInstance(instance);
+        if (version == 3) {
+            final Instance excluded = new Instance();
+            excluded.setSOPInstanceUID("1.2.3.1");
+            excluded.setExcluded(true);
+            series.putInstance(excluded);
+        }
+        study.putSeries(series);
+        return study;
+    }
+}
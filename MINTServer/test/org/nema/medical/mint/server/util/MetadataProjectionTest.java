@@ -0,0 +1,132 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.nema.medical.mint.metadata.Attribute;
+import org.nema.medical.mint.metadata.Instance;
+import org.nema.medical.mint.metadata.Series;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+
+public class MetadataProjectionTest {
+
+    private static final int PATIENT_NAME = 0x00100010;
+    private static final int MODALITY = 0x00080060;
+    private static final int INSTANCE_NUMBER = 0x00200013;
+    private static final int SLICE_THICKNESS = 0x00180050;
+    private static final int PIXEL_DATA = 0x7FE00010;
+
+    @Test
+    public void testProjectsTags() throws IOException {
+        final StudyMetadata projected = project(MetadataProjection.parse("InstanceNumber,00180050", null));
+        assertEquals("1.2", projected.getStudyInstanceUID());
+        assertNull(projected.getAttribute(PATIENT_NAME));
+
+        final Series series = projected.getSeries("1.2.3");
+        assertNotNull(series);
+        assertNull(series.getAttribute(MODALITY));
+        assertEquals("5", series.getNormalizedInstanceAttribute(SLICE_THICKNESS).getVal());
+        assertEquals(2, series.getInstanceCount());
+
+        final Instance instance = series.getInstance("1.2.3.2");
+        assertEquals("1.2.840.10008.1.2.1", instance.getTransferSyntaxUID());
+        assertEquals("2", instance.getAttribute(INSTANCE_NUMBER).getVal());
+        assertNull(instance.getAttribute(PIXEL_DATA));
+    }
+
+    @Test
+    public void testProjectsLevels() throws IOException {
+        final StudyMetadata projected = project(MetadataProjection.parse(null, "study,series"));
+        assertEquals("Doe^John", projected.getAttribute(PATIENT_NAME).getVal());
+        final Series series = projected.getSeries("1.2.3");
+        assertEquals("CT", series.getAttribute(MODALITY).getVal());
+        assertNull(series.getNormalizedInstanceAttribute(SLICE_THICKNESS));
+        assertFalse(series.instanceIterator().hasNext());
+    }
+
+    @Test
+    public void testParse() {
+        assertNull(MetadataProjection.parse(null, null));
+        assertEquals(MetadataProjection.parse("00200013, SliceThickness", "instance").getKey(),
+                MetadataProjection.parse("SliceThickness,InstanceNumber", "INSTANCE").getKey());
+        assertTrue(MetadataProjection.parse("InstanceNumber", null).includes(MetadataProjection.STUDY,
+                INSTANCE_NUMBER));
+        assertFalse(MetadataProjection.parse("InstanceNumber", "series").includes(MetadataProjection.INSTANCE,
+                INSTANCE_NUMBER));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownTags() {
+        MetadataProjection.parse("NoSuchKeyword", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownLevels() {
+        MetadataProjection.parse(null, "frame");
+    }
+
+    private static StudyMetadata project(final MetadataProjection projection) throws IOException {
+        final ByteArrayOutputStream gpb = new ByteArrayOutputStream();
+        StudyIO.writeToGPB(study(), gpb);
+        final ByteArrayOutputStream projected = new ByteArrayOutputStream();
+        projection.project(new ByteArrayInputStream(gpb.toByteArray()), projected);
+        assertTrue(projected.size() < gpb.size());
+        return StudyIO.parseFromGPB(new ByteArrayInputStream(projected.toByteArray()));
+    }
+
+    private static StudyMetadata study() {
+        final StudyMetadata study = new StudyMetadata();
+        study.setStudyInstanceUID("1.2");
+        study.putAttribute(attribute(PATIENT_NAME, "PN", "Doe^John"));
+        final Series series = new Series();
+        series.setSeriesInstanceUID("1.2.3");
+        series.putAttribute(attribute(MODALITY, "CS", "CT"));
+        series.putNormalizedInstanceAttribute(attribute(SLICE_THICKNESS, "DS", "5"));
+        for (int i = 1; i <= 2; ++i) {
+            final Instance instance = new Instance();
+            instance.setSOPInstanceUID("1.2.3." + i);
+            instance.setTransferSyntaxUID("1.2.840.10008.1.2.1");
+            instance.putAttribute(attribute(INSTANCE_NUMBER, "IS", String.valueOf(i)));
+            final Attribute pixelData = new Attribute();
+            pixelData.setTag(PIXEL_DATA);
+            pixelData.setVr("OW");
+            pixelData.setBid(i);
+            instance.putAttribute(pixelData);
+            series.putInstance(instance);
+        }
+        study.putSeries(series);
+        return study;
+    }
+
+    private static Attribute attribute(final int tag, final String vr, final String value) {
+        final Attribute attribute = new Attribute();
+        attribute.setTag(tag);
+        attribute.setVr(vr);
+        attribute.setVal(value);
+        return attribute;
+    }
+}
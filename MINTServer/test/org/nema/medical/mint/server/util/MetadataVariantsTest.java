@@ -0,0 +1,144 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nema.medical.mint.metadata.Attribute;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+
+public class MetadataVariantsTest {
+
+    private static final int STUDY_DESCRIPTION = 0x00081030;
+
+    private File folder;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = File.createTempFile("variants", "");
+        folder.delete();
+        folder.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // Background writes may still be renaming files into place
+        for (int attempt = 0; ; ++attempt) {
+            try {
+                FileUtils.deleteDirectory(folder);
+                return;
+            } catch (final IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteCanonicalReplacesDerived() throws IOException {
+        StudyIO.writeFile(study("old"), new File(folder, "metadata.xml.gz"));
+        StudyIO.writeFile(study("old"), new File(folder, "metadata.gpb.gz"));
+        MetadataVariants.writeCanonical(study("new"), folder);
+
+        assertTrue(new File(folder, MetadataVariants.CANONICAL).exists());
+        assertFalse(new File(folder, "metadata.gpb.gz").exists());
+        assertEquals("new", StudyIO.loadStudy(folder).getValueForAttribute(STUDY_DESCRIPTION));
+        final File xml = MetadataVariants.ensure(folder, "metadata.xml.gz");
+        assertEquals("new", StudyIO.parseFile(xml).getValueForAttribute(STUDY_DESCRIPTION));
+        assertEquals(2, folder.list().length);
+    }
+
+    @Test
+    public void testEnsureIsSingleFlight() throws Exception {
+        MetadataVariants.writeCanonical(study("single"), folder);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<File>> builds = new ArrayList<Future<File>>();
+            for (int i = 0; i < 8; ++i) {
+                builds.add(executor.submit(new Callable<File>() {
+                    public File call() throws IOException {
+                        return MetadataVariants.ensure(folder, "summary.xml");
+                    }
+                }));
+            }
+            for (final Future<File> build: builds) {
+                assertTrue(build.get().exists());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // No temporary files are left behind by concurrent builds
+        assertEquals(2, folder.list().length);
+    }
+
+    @Test
+    public void testWriteDerivesInBackground() throws Exception {
+        MetadataVariants.write(study("async"), folder);
+        assertTrue(new File(folder, MetadataVariants.CANONICAL).exists());
+        for (final String filename: MetadataVariants.DERIVED) {
+            // Whether written in the background already or now, the representation is of the new version
+            assertTrue(MetadataVariants.ensure(folder, filename).exists());
+        }
+        assertEquals("async", StudyIO.parseFile(new File(folder, "metadata.xml")).getValueForAttribute(
+                STUDY_DESCRIPTION));
+    }
+
+    @Test
+    public void testWriteFallsBackToOnDemandWhenQueueIsFull() throws Exception {
+        // More versions than the background queue holds; those that are not queued are written on request
+        final List<File> folders = new ArrayList<File>();
+        for (int i = 0; i < 64; ++i) {
+            final File studyFolder = new File(folder, Integer.toString(i));
+            studyFolder.mkdir();
+            MetadataVariants.write(study("burst " + i), studyFolder);
+            folders.add(studyFolder);
+        }
+        for (int i = 0; i < folders.size(); ++i) {
+            final File xml = MetadataVariants.ensure(folders.get(i), "metadata.xml");
+            assertEquals("burst " + i, StudyIO.parseFile(xml).getValueForAttribute(STUDY_DESCRIPTION));
+        }
+        MetadataVariants.forget(folder);
+    }
+
+    private static StudyMetadata study(final String description) {
+        final StudyMetadata study = new StudyMetadata();
+        study.setStudyInstanceUID("1.2");
+        final Attribute attribute = new Attribute();
+        attribute.setTag(STUDY_DESCRIPTION);
+        attribute.setVr("LO");
+        attribute.setVal(description);
+        study.putAttribute(attribute);
+        return study;
+    }
+}
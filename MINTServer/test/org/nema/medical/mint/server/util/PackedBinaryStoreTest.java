@@ -0,0 +1,123 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nema.medical.mint.server.util.BinaryItemStore.BinaryItem;
+
+public class PackedBinaryStoreTest {
+
+    private File root;
+    private File binaryRoot;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("packed", "");
+        root.delete();
+        root.mkdirs();
+        binaryRoot = new File(root, "binaryitems");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(root);
+    }
+
+    @Test
+    public void testAppendAndRead() throws IOException {
+        final File job = createJob("job1", "metadata.gpb", "0.dat", "1.dat", "2.dat");
+        assertFalse(PackedBinaryStore.isPacked(binaryRoot));
+        PackedBinaryStore.append(job, binaryRoot);
+        assertTrue(PackedBinaryStore.isPacked(binaryRoot));
+        assertEquals(2, PackedBinaryStore.readHighestId(binaryRoot));
+
+        final BinaryItemStore store = BinaryItemStore.open(binaryRoot);
+        try {
+            assertEquals(2, store.getHighestId());
+            assertEquals("0.dat", read(store, store.getItem(0, false)));
+            assertEquals("2.dat", read(store, store.getItem(2, false)));
+            assertNull(store.getItem(3, true));
+
+            final BinaryItem item = store.getItem(1, false);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            store.copyTo(item, 1, 2, out, new byte[1]);
+            assertEquals(".d", out.toString("US-ASCII"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testAppendAfterUpdateAndExclude() throws IOException {
+        PackedBinaryStore.append(createJob("job1", "0.dat", "1.dat"), binaryRoot);
+        PackedBinaryStore.append(createJob("job2", "metadata.xml", "2.dat", "3.dat"), binaryRoot);
+        PackedBinaryStore.markExcluded(binaryRoot, Arrays.asList(1, 7));
+
+        final BinaryItemStore store = BinaryItemStore.open(binaryRoot);
+        try {
+            assertEquals(3, store.getHighestId());
+            assertNull(store.getItem(1, false));
+            final BinaryItem excluded = store.getItem(1, true);
+            assertTrue(excluded.isExcluded());
+            assertEquals("1.dat", read(store, excluded));
+            assertEquals("3.dat", read(store, store.getItem(3, false)));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testSparseBids() throws IOException {
+        PackedBinaryStore.append(createJob("job1", "0.dat", "5.dat"), binaryRoot);
+        final BinaryItemStore store = BinaryItemStore.open(binaryRoot);
+        try {
+            assertEquals(5, store.getHighestId());
+            assertNull(store.getItem(3, true));
+            assertEquals("5.dat", read(store, store.getItem(5, false)));
+        } finally {
+            store.close();
+        }
+    }
+
+    /** Creates a job folder whose files contain their own names */
+    private File createJob(final String name, final String... fileNames) throws IOException {
+        final File job = new File(root, name);
+        job.mkdirs();
+        for (final String fileName: fileNames) {
+            FileUtils.writeStringToFile(new File(job, fileName), fileName, "US-ASCII");
+        }
+        return job;
+    }
+
+    private static String read(final BinaryItemStore store, final BinaryItem item) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.copyTo(item, 0, item.getLength(), out, new byte[3]);
+        return out.toString("US-ASCII");
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *   Copyright 2010 MINT Working Group
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.nema.medical.mint.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nema.medical.mint.metadata.Attribute;
+import org.nema.medical.mint.metadata.Instance;
+import org.nema.medical.mint.metadata.Series;
+import org.nema.medical.mint.metadata.StudyIO;
+import org.nema.medical.mint.metadata.StudyMetadata;
+
+public class SeriesMetadataTest {
+
+    private File typeFolder;
+
+    @Before
+    public void setUp() throws IOException {
+        typeFolder = File.createTempFile("seriesmetadata", "");
+        typeFolder.delete();
+        typeFolder.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(typeFolder);
+    }
+
+    @Test
+    public void testWriteAndList() throws IOException {
+        assertFalse(SeriesMetadata.exists(typeFolder));
+        SeriesMetadata.write(study("1.2.3", "1.2.4"), typeFolder);
+        assertTrue(SeriesMetadata.exists(typeFolder));
+        final List<String> series = SeriesMetadata.list(typeFolder);
+        Collections.sort(series);
+        assertEquals("[1.2.3, 1.2.4]", series.toString());
+
+        final StudyMetadata seriesStudy = StudyIO.loadStudy(SeriesMetadata.getSeriesFolder(typeFolder, "1.2.4"));
+        assertEquals("1.2", seriesStudy.getStudyInstanceUID());
+        assertEquals("Doe^John", seriesStudy.getValueForAttribute(0x00100010));
+        assertNotNull(seriesStudy.getSeries("1.2.4"));
+        assertNull(seriesStudy.getSeries("1.2.3"));
+    }
+
+    @Test
+    public void testRewriteRemovesStaleSeries() throws IOException {
+        SeriesMetadata.write(study("1.2.3", "1.2.4"), typeFolder);
+        final File seriesFolder = SeriesMetadata.getSeriesFolder(typeFolder, "1.2.3");
+        FileUtils.writeStringToFile(new File(seriesFolder, "metadata.xml"), "<old/>");
+        SeriesMetadata.write(study("1.2.3"), typeFolder);
+        assertEquals("[1.2.3]", SeriesMetadata.list(typeFolder).toString());
+        assertFalse(new File(seriesFolder, "metadata.xml").exists());
+        assertTrue(new File(seriesFolder, "metadata.gpb").exists());
+    }
+
+    @Test
+    public void testSkipsUnsafeSeries() throws IOException {
+        SeriesMetadata.write(study("1.2.3", "1.2/../4", "1.2 5"), typeFolder);
+        assertEquals("[1.2.3]", SeriesMetadata.list(typeFolder).toString());
+        assertFalse(new File(typeFolder, "series.new").exists());
+    }
+
+    @Test
+    public void testEnsureWrittenRewritesIncompleteSplits() throws IOException {
+        final StudyMetadata study = study("1.2.3", "1.2.4", "1.2.5");
+        StudyIO.writeToGPB(study, new File(typeFolder, "metadata.gpb"));
+        assertTrue(SeriesMetadata.ensureWritten(typeFolder));
+        assertFalse(SeriesMetadata.ensureWritten(typeFolder));
+
+        // As split before the binary item index was written, which is also before the marker was
+        final File index = new File(SeriesMetadata.getSeriesFolder(typeFolder, "1.2.4"),
+                SeriesMetadata.BINARY_ITEM_INDEX);
+        assertTrue(index.delete());
+        assertTrue(new File(new File(typeFolder, SeriesMetadata.SERIES_FOLDER), ".written").delete());
+        assertFalse(SeriesMetadata.exists(typeFolder));
+        assertTrue(SeriesMetadata.ensureWritten(typeFolder));
+        assertTrue(index.exists());
+        assertTrue(SeriesMetadata.exists(typeFolder));
+    }
+
+
+    @Test
+    public void testBinaryItemIndex() throws IOException {
+        final StudyMetadata study = study("1.2.3");
+        final Series series = study.getSeries("1.2.3");
+        series.putAttribute(binary(0x00091001, 9, 1));
+        series.putNormalizedInstanceAttribute(binary(0x00091002, 8, 1));
+        series.putInstance(instance("1.2.3.1", binary(0x7FE00010, 0, 4)));
+        series.putInstance(instance("1.2.3.2", binary(0x7FE00010, 4, 1)));
+        series.putInstance(instance("1.2.3.3", null));
+        SeriesMetadata.write(study, typeFolder);
+
+        final File seriesFolder = SeriesMetadata.getSeriesFolder(typeFolder, "1.2.3");
+        assertEquals("0-4,8-9", sorted(SeriesMetadata.findBinaryItems(seriesFolder, null)));
+        assertEquals("0-3,8", sorted(SeriesMetadata.findBinaryItems(seriesFolder, "1.2.3.1")));
+        assertEquals("8", SeriesMetadata.findBinaryItems(seriesFolder, "1.2.3.3"));
+        assertNull(SeriesMetadata.findBinaryItems(seriesFolder, "1.2.3.4"));
+        assertFalse(SeriesMetadata.ensureWritten(typeFolder));
+    }
+
+    @Test
+    public void testToSequence() {
+        assertEquals("-", SeriesMetadata.toSequence(new TreeSet<Integer>()));
+        assertEquals("0-2,4,6-7", SeriesMetadata.toSequence(new TreeSet<Integer>(Arrays.asList(7, 0, 1, 2, 4, 6))));
+    }
+
+    @Test
+    public void testRejectsUnsafeFolderNames() {
+        assertNull(SeriesMetadata.getSeriesFolder(typeFolder, ".."));
+        assertNull(SeriesMetadata.getSeriesFolder(typeFolder, "1.2/../3"));
+        assertNull(SeriesMetadata.getSeriesFolder(typeFolder, ""));
+        assertNotNull(SeriesMetadata.getSeriesFolder(typeFolder, "1.2.840.1"));
+    }
+
+    private static Attribute binary(final int tag, final int bid, final int frameCount) {
+        final Attribute attribute = new Attribute();
+        attribute.setTag(tag);
+        attribute.setVr("OB");
+        attribute.setBid(bid);
+        attribute.setFrameCount(frameCount);
+        return attribute;
+    }
+
+    private static Instance instance(final String sopInstanceUID, final Attribute attribute) {
+        final Instance instance = new Instance();
+        instance.setSOPInstanceUID(sopInstanceUID);
+        if (attribute != null) {
+            instance.putAttribute(attribute);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the ids of a binary item sequence made of single ids and ranges, sorted and merged
+     */
+    private static String sorted(final String seq) {
+        final TreeSet<Integer> ids = new TreeSet<Integer>();
+        for (final String element: seq.split(",")) {
+            final String[] range = element.split("-");
+            for (int id = Integer.parseInt(range[0]); id <= Integer.parseInt(range[range.length - 1]); ++id) {
+                ids.add(id);
+            }
+        }
+        return SeriesMetadata.toSequence(ids);
+    }
+
+    private static StudyMetadata study(final String... seriesInstanceUIDs) {
+        final StudyMetadata study = new StudyMetadata();
+        study.setStudyInstanceUID("1.2");
+        study.setVersion(7);
+        study.setType("DICOM");
+        final Attribute name = new Attribute();
+        name.setTag(0x00100010);
+        name.setVr("PN");
+        name.setVal("Doe^John");
+        study.putAttribute(name);
+        for (final String seriesInstanceUID: seriesInstanceUIDs) {
+            final Series series = new Series();
+            series.setSeriesInstanceUID(seriesInstanceUID);
+            study.putSeries(series);
+        }
+        return study;
+    }
+}
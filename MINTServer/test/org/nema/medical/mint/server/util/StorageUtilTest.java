@@ -15,12 +15,14 @@
  */
 package org.nema.medical.mint.server.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.junit.Test;
@@ -90,6 +92,48 @@ public class StorageUtilTest {
 		}
 	}
 
+	/**
+	 * Binary item ids may have gaps; the highest id must still be found, counting excluded items.
+	 */
+	@Test
+	public void testHighestNumberedBinaryItemWithGaps() throws IOException {
+		final File dir = new File(System.getProperty("java.io.tmpdir"), "storageutil-" + System.nanoTime());
+		assertTrue(dir.mkdirs());
+		try {
+			assertEquals(-1, StorageUtil.getHighestNumberedBinaryItem(dir));
+			for (final String name : new String[] {"0.dat", "1.dat", "2.dat", "5.dat", "6.dat", "7.exclude",
+					"metadata.xml", "metadata.gpb"}) {
+				FileUtils.writeStringToFile(new File(dir, name), name);
+			}
+			new File(dir, "compressed").mkdir();
+			assertEquals(7, StorageUtil.getHighestNumberedBinaryItem(dir));
+			assertEquals(-1, StorageUtil.getHighestNumberedBinaryItem(new File(dir, "missing")));
+		} finally {
+			FileUtils.deleteDirectory(dir);
+		}
+	}
+
+	/**
+	 * The recorded highest id is read without listing the directory; directories without one are listed.
+	 */
+	@Test
+	public void testReadHighestBinaryItemId() throws IOException {
+		final File dir = new File(System.getProperty("java.io.tmpdir"), "storageutil-" + System.nanoTime());
+		assertTrue(dir.mkdirs());
+		try {
+			FileUtils.writeStringToFile(new File(dir, "3.dat"), "3");
+			assertEquals(3, StorageUtil.readHighestBinaryItemId(dir));
+			StorageUtil.writeHighestBinaryItemId(dir, 9);
+			assertEquals(9, StorageUtil.readHighestBinaryItemId(dir));
+			StorageUtil.writeHighestBinaryItemId(dir, 12);
+			assertEquals(12, StorageUtil.readHighestBinaryItemId(dir));
+			assertEquals(3, StorageUtil.getHighestNumberedBinaryItem(dir));
+			assertEquals(2, dir.list().length);
+		} finally {
+			FileUtils.deleteDirectory(dir);
+		}
+	}
+
 	/**
 	 * Don't care which study, all of them SHOULD work. This should drill down
 	 * to the DICOM folder level where the metadata should be. Will return null